@@ -0,0 +1,47 @@
+package dataprocessors;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times parsing generated <code>.tsd</code> lines by splitting them, as {@link TSDProcessor} used to, against
+ * {@link TSDLineParser}. This is run by hand with <code>java dataprocessors.TSDLineParserBenchmark [lines]</code>; it
+ * is not part of the test suite.
+ *
+ * @author kevingray
+ */
+public class TSDLineParserBenchmark {
+
+    public static void main(String[] args) {
+        int           count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        StringBuilder text  = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            text.append("@instance").append(i).append("\tlabel").append(i % 4).append('\t')
+                .append(i % 1000 * 0.37).append(',').append(i % 777 * -1.25).append('\n');
+        String tsd = text.toString();
+
+        for (int round = 0; round < 5; round++) {
+            long   start = System.nanoTime();
+            double split = 0;
+            for (String line : tsd.split("\n")) {
+                List<String> list = Arrays.asList(line.split("\t"));
+                String[]     pair = list.get(2).split(",");
+                split += Double.parseDouble(pair[0]) + Double.parseDouble(pair[1]) + list.get(1).length();
+            }
+            long splitNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double                  inPlace = 0;
+            TSDProcessor.LineFields fields  = new TSDProcessor.LineFields();
+            for (int from = 0, to; from < tsd.length(); from = to + 1) {
+                to = tsd.indexOf('\n', from);
+                TSDLineParser.parse(tsd, from, to, fields);
+                inPlace += fields.x + fields.y + fields.label.length();
+            }
+            long inPlaceNanos = System.nanoTime() - start;
+
+            System.out.printf("split: %6d ms   in place: %6d ms   (%s)%n", splitNanos / 1_000_000,
+                              inPlaceNanos / 1_000_000, split == inPlace ? "same sums" : "SUMS DIFFER");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ui;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Random;
+
+/**
+ * Times plotting a million points into a canvas-sized {@link ScatterRaster}, the per-frame work of
+ * {@link CanvasScatterRenderer}. This is run by hand with <code>java ui.ScatterRasterBenchmark [points]</code>; it is
+ * not part of the test suite.
+ *
+ * @author kevingray
+ */
+public class ScatterRasterBenchmark {
+
+    public static void main(String[] args) {
+        int      size     = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random   random   = new Random(219);
+        double[] xs       = new double[size];
+        double[] ys       = new double[size];
+        int[]    labelIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = random.nextGaussian() * 100;
+            ys[i] = random.nextGaussian() * 50;
+            labelIds[i] = random.nextInt(4);
+        }
+        Viewport      viewport = Viewport.around(xs, ys, size);
+        ScatterRaster raster   = new ScatterRaster();
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            raster.reset(1200, 800);
+            raster.plot(xs, ys, labelIds, size, viewport, 1);
+            System.out.printf("%d points: %.1f ms%n", size, (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
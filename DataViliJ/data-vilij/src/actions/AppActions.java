@@ -12,17 +12,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.image.WritableImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
 import vilij.components.ConfirmationDialog;
 
 import javafx.stage.FileChooser;
-import javax.imageio.ImageIO;
+import javafx.stage.Stage;
 import settings.AppPropertyTypes;
 import static settings.AppPropertyTypes.LOAD_WORK_TITLE;
 import ui.AppUI;
-import static ui.AppUI.runInProgress;
+import ui.ChartExportTask;
 
 import vilij.components.Dialog;
 import vilij.components.ErrorDialog;
@@ -45,6 +54,16 @@ public final class AppActions implements ActionComponent {
     
     boolean isUnsaved;
 
+    /** The export sizes offered, as multiples of the chart's size on screen. */
+    private static final int[] EXPORT_SCALES = {1, 2, 4, 8};
+
+    /** Draws and writes exported images, one at a time, away from the JavaFX application thread. */
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chart-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public void setIsUnsaved(boolean b) {
         isUnsaved = b;
     }
@@ -134,7 +153,7 @@ public final class AppActions implements ActionComponent {
                 
             }
         }
-        if(runInProgress()) {
+        if(((AppUI) applicationTemplate.getUIComponent()).getScheduler().hasActiveRuns()) {
             PropertyManager    manager = applicationTemplate.manager;
             ConfirmationDialog dialog  = ConfirmationDialog.getDialog();
             dialog.show(manager.getPropertyValue(AppPropertyTypes.EXIT_WHILE_RUNNING_TITLE.name()),
@@ -152,10 +171,27 @@ public final class AppActions implements ActionComponent {
         // TODO: NOT A PART OF HW 1
     }
 
+    /**
+     * Exports what the chart shows to a PNG file, at the chart's size on screen or a multiple of it. The image is drawn
+     * and written on a background thread while a small window shows the progress and offers to cancel.
+     */
     public void handleScreenshotRequest() throws IOException {
-        WritableImage image = ((AppUI) applicationTemplate.getUIComponent()).getChart()
-                .snapshot(new SnapshotParameters(), null);
-        PropertyManager    manager = applicationTemplate.manager;
+        AppUI           ui      = (AppUI) applicationTemplate.getUIComponent();
+        PropertyManager manager = applicationTemplate.manager;
+        int             width   = (int) Math.ceil(ui.getChart().getWidth());
+        int             height  = (int) Math.ceil(ui.getChart().getHeight());
+        List<String>    sizes   = new ArrayList<>();
+        for (int scale : EXPORT_SCALES)
+            sizes.add(String.format("%d x %d", width * scale, height * scale));
+        ChoiceDialog<String> sizeDialog = new ChoiceDialog<>(sizes.get(0), sizes);
+        sizeDialog.setTitle(manager.getPropertyValue(AppPropertyTypes.EXPORT_SIZE_TITLE.name()));
+        sizeDialog.setHeaderText(null);
+        sizeDialog.setContentText(manager.getPropertyValue(AppPropertyTypes.EXPORT_SIZE.name()));
+        Optional<String> size = sizeDialog.showAndWait();
+        if (!size.isPresent())
+            return;
+        int scale = EXPORT_SCALES[sizes.indexOf(size.get())];
+
         FileChooser fileChooser = new FileChooser();
                 String      dataDirPath = "/" + manager.getPropertyValue(AppPropertyTypes.DATA_RESOURCE_PATH.name());
                 URL         dataDirURL  = getClass().getResource(dataDirPath);
@@ -173,13 +209,36 @@ public final class AppActions implements ActionComponent {
 
                 fileChooser.getExtensionFilters().add(extFilter);
                 File selected = fileChooser.showSaveDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
-                if(selected != null) {
-                    try {
-                        ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", selected); // TODO: handle exception here
-                    } catch(IOException e) {
+                if(selected != null)
+                    export(ui.exportImage(selected.toPath(), width * scale, height * scale));
+    }
 
-                    }
-                }
+    /** Runs an export in the background, with a window showing its progress that closes when it is done. */
+    private void export(ChartExportTask task) {
+        PropertyManager manager  = applicationTemplate.manager;
+        Stage           progress = new Stage();
+        ProgressBar     bar      = new ProgressBar();
+        Button          cancel   = new Button(manager.getPropertyValue(AppPropertyTypes.CANCEL_LABEL.name()));
+        bar.progressProperty().bind(task.progressProperty());
+        bar.setPrefWidth(300);
+        cancel.setOnAction(e -> task.cancel());
+        VBox pane = new VBox(10, new Label(task.getFile().getFileName().toString()), bar, cancel);
+        pane.setPadding(new Insets(10));
+        progress.initOwner(applicationTemplate.getUIComponent().getPrimaryWindow());
+        progress.setTitle(manager.getPropertyValue(AppPropertyTypes.EXPORT_PROGRESS_TITLE.name()));
+        progress.setScene(new Scene(pane));
+        progress.setOnCloseRequest(e -> task.cancel());
+
+        task.setOnSucceeded(e -> progress.close());
+        task.setOnCancelled(e -> progress.close());
+        task.setOnFailed(e -> {
+            progress.close();
+            ErrorDialog dialog = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+            dialog.show(manager.getPropertyValue(PropertyTypes.SAVE_ERROR_TITLE.name()),
+                        manager.getPropertyValue(PropertyTypes.SAVE_ERROR_MSG.name()) + task.getFile());
+        });
+        progress.show();
+        exportExecutor.submit(task);
     }
 
     /**
@@ -220,7 +279,12 @@ public final class AppActions implements ActionComponent {
                 FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter(String.format("%s (.*%s)", description, extension),
                                                                 String.format("*.%s", extension));
 
-                fileChooser.getExtensionFilters().add(extFilter);
+                String binaryDescription = manager.getPropertyValue(AppPropertyTypes.BINARY_DATA_FILE_EXT_DESC.name());
+                String binaryExtension   = manager.getPropertyValue(AppPropertyTypes.BINARY_DATA_FILE_EXT.name());
+                FileChooser.ExtensionFilter binaryFilter = new FileChooser.ExtensionFilter(
+                        String.format("%s (*%s)", binaryDescription, binaryExtension), String.format("*%s", binaryExtension));
+
+                fileChooser.getExtensionFilters().addAll(extFilter, binaryFilter);
                 File selected = fileChooser.showSaveDialog(applicationTemplate.getUIComponent().getPrimaryWindow());
                 if (selected != null) {
                     dataFilePath = selected.toPath();
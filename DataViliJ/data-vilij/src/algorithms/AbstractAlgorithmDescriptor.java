@@ -0,0 +1,53 @@
+package algorithms;
+
+import dataprocessors.DataSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The fixed parts of an {@link AlgorithmDescriptor}, given once to the constructor, leaving only {@link #make} to
+ * write. An algorithm that takes the {@link Parameter#SEED seed} parameter is seeded when one is set.
+ *
+ * @author kevingray
+ */
+public abstract class AbstractAlgorithmDescriptor implements AlgorithmDescriptor {
+
+    private final String             id;
+    private final String             name;
+    private final TaskType           taskType;
+    private final List<Parameter<?>> parameters;
+
+    protected AbstractAlgorithmDescriptor(String id, String name, TaskType taskType, Parameter<?>... parameters) {
+        this.id = id;
+        this.name = name;
+        this.taskType = taskType;
+        this.parameters = Collections.unmodifiableList(Arrays.asList(parameters.clone()));
+    }
+
+    @Override
+    public String getId()                     { return id; }
+
+    @Override
+    public String getName()                   { return name; }
+
+    @Override
+    public TaskType getTaskType()             { return taskType; }
+
+    @Override
+    public List<Parameter<?>> getParameters() { return parameters; }
+
+    @Override
+    public final Algorithm create(DataSet dataSet, ParameterValues values) {
+        Algorithm algorithm = make(dataSet, values);
+        if (parameters.contains(Parameter.SEED) && values.get(Parameter.SEED) != 0)
+            algorithm.setSeed(values.get(Parameter.SEED));
+        return algorithm;
+    }
+
+    /** Makes the algorithm from the values, as {@link #create} does, leaving the seed to it. */
+    protected abstract Algorithm make(DataSet dataSet, ParameterValues values);
+
+    @Override
+    public String toString()                  { return name; }
+}
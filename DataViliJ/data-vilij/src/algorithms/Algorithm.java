@@ -14,4 +14,10 @@ public interface Algorithm extends Runnable {
 
     boolean tocontinue();
 
+    /**
+     * Makes every following run draw the same random numbers, so that runs can be repeated and compared. An algorithm
+     * that draws none can leave this as it is.
+     */
+    default void setSeed(long seed) { }
+
 }
@@ -0,0 +1,38 @@
+package algorithms;
+
+import dataprocessors.DataSet;
+import java.util.List;
+
+/**
+ * Describes an algorithm the application can run: what it is called, whether it classifies or clusters, the
+ * {@link Parameter parameters} it takes, and how to make one. Descriptors are found by the {@link AlgorithmRegistry}
+ * through {@link java.util.ServiceLoader}, so an algorithm is added by listing its descriptor in a
+ * <code>META-INF/services/algorithms.AlgorithmDescriptor</code> file on the class path, in its own jar or not.
+ * <p>
+ * A descriptor should be a small class of its own that only refers to its algorithm in {@link #create}, so that finding
+ * the descriptors does not load every algorithm.
+ *
+ * @author kevingray
+ */
+public interface AlgorithmDescriptor {
+
+    enum TaskType { CLASSIFICATION, CLUSTERING }
+
+    /** @return a short name without spaces, unique among the descriptors, for choosing the algorithm in scripts */
+    String getId();
+
+    /** @return the name shown to the user */
+    String getName();
+
+    TaskType getTaskType();
+
+    /** @return the parameters the algorithm takes, in the order they are shown */
+    List<Parameter<?>> getParameters();
+
+    /**
+     * Makes the algorithm, ready to run on the data set.
+     *
+     * @param values the values of the parameters; those not set have their defaults
+     */
+    Algorithm create(DataSet dataSet, ParameterValues values);
+}
@@ -0,0 +1,76 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * The {@link AlgorithmDescriptor descriptors} of every algorithm on the class path. The class path is scanned once,
+ * the first time any descriptor is asked for, and the result is kept; the descriptors are loaded then, the algorithms
+ * only when one is made. A descriptor that fails to load is left out, so one broken jar does not take the others with
+ * it, and of two descriptors with the same id the first one found is kept; {@link #getSkipped} says what was left out,
+ * for the caller to report.
+ *
+ * @author kevingray
+ */
+public final class AlgorithmRegistry {
+
+    /** Scanned when first used, which the class loader makes happen once. */
+    private static final class Scan {
+        static final List<String>              SKIPPED     = new ArrayList<>();
+        static final List<AlgorithmDescriptor> DESCRIPTORS = scan(AlgorithmRegistry.class.getClassLoader(), SKIPPED);
+    }
+
+    private AlgorithmRegistry() { }
+
+    /** @return every descriptor found, in the order the service files list them */
+    public static List<AlgorithmDescriptor> getDescriptors() { return Scan.DESCRIPTORS; }
+
+    /** @return why each algorithm left out of the descriptors was left out, empty if none was */
+    public static List<String> getSkipped() { return Collections.unmodifiableList(Scan.SKIPPED); }
+
+    /** @return the descriptors of the algorithms for the given task, in the order they were found */
+    public static List<AlgorithmDescriptor> forTask(AlgorithmDescriptor.TaskType taskType) {
+        List<AlgorithmDescriptor> found = new ArrayList<>();
+        for (AlgorithmDescriptor descriptor : getDescriptors()) {
+            if (descriptor.getTaskType() == taskType)
+                found.add(descriptor);
+        }
+        return found;
+    }
+
+    /** @return the descriptor with the given id, or null if there is none */
+    public static AlgorithmDescriptor find(String id) {
+        for (AlgorithmDescriptor descriptor : getDescriptors()) {
+            if (descriptor.getId().equals(id))
+                return descriptor;
+        }
+        return null;
+    }
+
+    /** @return the descriptors the loader finds, adding to <code>skipped</code> why each one left out was left out */
+    static List<AlgorithmDescriptor> scan(ClassLoader loader, List<String> skipped) {
+        List<AlgorithmDescriptor>     found    = new ArrayList<>();
+        Set<String>                   ids      = new HashSet<>();
+        Iterator<AlgorithmDescriptor> services = ServiceLoader.load(AlgorithmDescriptor.class, loader).iterator();
+        while (true) {
+            try {
+                if (!services.hasNext())
+                    break;
+                AlgorithmDescriptor descriptor = services.next();
+                if (ids.add(descriptor.getId()))
+                    found.add(descriptor);
+                else
+                    skipped.add(String.format("A second algorithm with the id %s was ignored.", descriptor.getId()));
+            } catch (ServiceConfigurationError e) {
+                skipped.add(String.format("An algorithm could not be loaded: %s", e.getMessage()));
+            }
+        }
+        return Collections.unmodifiableList(found);
+    }
+}
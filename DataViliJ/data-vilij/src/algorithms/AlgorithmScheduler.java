@@ -0,0 +1,82 @@
+package algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs algorithms on a pool of background threads, any number at once, and hands out a {@link RunHandle} for each run
+ * to pause, resume or cancel it. A paused run holds on to its thread without using the processor, so the pool grows
+ * with the number of runs rather than queueing them behind a paused one. The threads are daemons and do not keep the
+ * application alive. The snapshots the runs publish all go to the consumer the scheduler was made with, which is how
+ * the same algorithms run in the application and without one.
+ *
+ * @author kevingray
+ */
+public final class AlgorithmScheduler {
+
+    /** Throws away whatever a run publishes. */
+    static final Consumer<RunSnapshot> DISCARD = snapshot -> { };
+
+    private final AtomicInteger   threads = new AtomicInteger();
+    private final List<RunHandle> runs    = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor;
+    private final Consumer<? super RunSnapshot> updates;
+
+    /** Makes a scheduler whose runs show nothing, for running algorithms without a user interface. */
+    public AlgorithmScheduler() {
+        this(DISCARD);
+    }
+
+    /** @param updates takes the snapshots every run publishes, from the run's own thread */
+    public AlgorithmScheduler(Consumer<? super RunSnapshot> updates) {
+        this.updates = updates;
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "algorithm-run-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Starts a run of the algorithm on a thread of its own, showing its updates as it goes. */
+    public RunHandle submit(Algorithm algorithm) {
+        return submit(algorithm, false);
+    }
+
+    /**
+     * Starts a run of the algorithm on a thread of its own.
+     *
+     * @param maxSpeed whether to run to completion without showing or pausing for updates
+     */
+    public RunHandle submit(Algorithm algorithm, boolean maxSpeed) {
+        RunHandle handle = new RunHandle(algorithm, true, maxSpeed, updates);
+        runs.add(handle);
+        handle.started(executor.submit(() -> {
+            handle.running();
+            try {
+                if (!handle.isCancelled())
+                    algorithm.run();
+            } finally {
+                handle.ended();
+                runs.remove(handle);
+            }
+        }));
+        return handle;
+    }
+
+    /** @return the runs that have not ended, paused or not */
+    public List<RunHandle> getActiveRuns() { return new ArrayList<>(runs); }
+
+    public boolean hasActiveRuns()         { return !runs.isEmpty(); }
+
+    /** Cancels every run and stops taking new ones. */
+    public void shutdown() {
+        for (RunHandle run : runs)
+            run.cancel();
+        executor.shutdownNow();
+    }
+}
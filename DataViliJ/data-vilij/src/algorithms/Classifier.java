@@ -1,6 +1,7 @@
 package algorithms;
 
 import java.util.List;
+import java.util.Random;
 
 /**
  * An abstract class for classification algorithms. The output
@@ -23,4 +24,15 @@ public abstract class Classifier implements Algorithm {
 
     public List<Integer> getOutput() { return output; }
 
+    private volatile Long seed;
+
+    @Override
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /** @return the random numbers for one run: the same every run once a seed is set, different each run until then */
+    protected Random newRandom() {
+        Long fixed = seed;
+        return fixed == null ? new Random() : new Random(fixed);
+    }
+
 }
@@ -1,5 +1,8 @@
 package algorithms;
 
+import dataprocessors.DataSet;
+import java.util.Random;
+
 /**
  * @author Ritwik Banerjee
  */
@@ -7,8 +10,27 @@ public abstract class Clusterer implements Algorithm {
 
     protected final int numberOfClusters;
 
+    /**
+     * A copy of the data set with each instance labelled by its cluster, as it was when the last run ended, or null
+     * before any run has taken an iteration.
+     */
+    protected DataSet output;
+
     public int getNumberOfClusters() { return numberOfClusters; }
 
+    public DataSet getOutput() { return output; }
+
+    private volatile Long seed;
+
+    @Override
+    public void setSeed(long seed) { this.seed = seed; }
+
+    /** @return the random numbers for one run: the same every run once a seed is set, different each run until then */
+    protected Random newRandom() {
+        Long fixed = seed;
+        return fixed == null ? new Random() : new Random(fixed);
+    }
+
     public Clusterer(int k) {
         if (k < 2)
             k = 2;
@@ -0,0 +1,105 @@
+package algorithms;
+
+/**
+ * A setting an algorithm takes, as declared by its {@link AlgorithmDescriptor}: a key to find it by, a label to show
+ * next to it, the type of its value and the value it has unless set. Integer settings have a range; a value outside
+ * it is turned away when it is {@link #parse parsed} or {@link ParameterValues#with set}. Two parameters with the same
+ * key are the same parameter.
+ * <p>
+ * The settings most algorithms share are declared here once, so that every descriptor means the same by them.
+ *
+ * @author kevingray
+ */
+public final class Parameter<T> {
+
+    public static final Parameter<Integer> MAX_ITERATIONS  = ofInteger("maxIterations", "Max Iterations: ", 1, 1,
+                                                                       Integer.MAX_VALUE);
+    public static final Parameter<Integer> UPDATE_INTERVAL = ofInteger("updateInterval", "Update Interval: ", 1, 1,
+                                                                       Integer.MAX_VALUE);
+    public static final Parameter<Boolean> CONTINUOUS_RUN  = ofBoolean("continuous", "Continuous Run? ", true);
+    public static final Parameter<Integer> CLUSTERS        = ofInteger("clusters", "Number of Clusters: ", 2, 2, 4);
+    public static final Parameter<Integer> BATCH_SIZE      = ofInteger("batchSize", "Batch Size: ", 1024, 1,
+                                                                       Integer.MAX_VALUE);
+    /** Seeds the random numbers of every run, so that runs repeat; <code>0</code> leaves each run to chance. */
+    public static final Parameter<Integer> SEED            = ofInteger("seed", "Random Seed: ", 0, 0,
+                                                                       Integer.MAX_VALUE);
+
+    private final String   key;
+    private final String   label;
+    private final Class<T> type;
+    private final T        defaultValue;
+    private final int      min;
+    private final int      max;
+
+    private Parameter(String key, String label, Class<T> type, T defaultValue, int min, int max) {
+        this.key = key;
+        this.label = label;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.min = min;
+        this.max = max;
+    }
+
+    /** @return an integer setting that takes values from <code>min</code> to <code>max</code>, both included */
+    public static Parameter<Integer> ofInteger(String key, String label, int defaultValue, int min, int max) {
+        if (defaultValue < min || defaultValue > max)
+            throw new IllegalArgumentException(String.format("The default of %s is out of its range.", key));
+        return new Parameter<>(key, label, Integer.class, defaultValue, min, max);
+    }
+
+    public static Parameter<Boolean> ofBoolean(String key, String label, boolean defaultValue) {
+        return new Parameter<>(key, label, Boolean.class, defaultValue, 0, 0);
+    }
+
+    public String getKey()        { return key; }
+
+    public String getLabel()      { return label; }
+
+    public Class<T> getType()     { return type; }
+
+    public T getDefaultValue()    { return defaultValue; }
+
+    /** @return whether the value is of the right type and, for an integer, in range */
+    public boolean accepts(Object value) {
+        if (!type.isInstance(value))
+            return false;
+        if (type == Integer.class) {
+            int number = (Integer) value;
+            return number >= min && number <= max;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a value from its text, as typed by a user or given on the command line.
+     *
+     * @throws IllegalArgumentException if the text is not a value this parameter accepts
+     */
+    public T parse(String text) {
+        String trimmed = text.trim();
+        Object value;
+        if (type == Integer.class) {
+            value = Integer.valueOf(trimmed);
+        } else if (type == Boolean.class) {
+            if (!trimmed.equalsIgnoreCase("true") && !trimmed.equalsIgnoreCase("false"))
+                throw new IllegalArgumentException(String.format("%s must be true or false.", key));
+            value = Boolean.valueOf(trimmed);
+        } else {
+            throw new IllegalArgumentException(String.format("%s cannot be read from text.", key));
+        }
+        if (!accepts(value))
+            throw new IllegalArgumentException(String.format("%s must be from %d to %d.", key, min, max));
+        return type.cast(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Parameter && ((Parameter<?>) o).key.equals(key);
+    }
+
+    @Override
+    public int hashCode() { return key.hashCode(); }
+
+    @Override
+    public String toString() { return key; }
+}
@@ -0,0 +1,62 @@
+package algorithms;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The values set for an algorithm's {@link Parameter parameters}; any parameter not set has its default. Values are
+ * immutable: {@link #with} returns new values, so one set can be shared between runs and varied for each.
+ *
+ * @author kevingray
+ */
+public final class ParameterValues {
+
+    private static final ParameterValues DEFAULTS = new ParameterValues(Collections.emptyMap());
+
+    private final Map<Parameter<?>, Object> values;
+
+    private ParameterValues(Map<Parameter<?>, Object> values) {
+        this.values = values;
+    }
+
+    /** @return values with every parameter at its default */
+    public static ParameterValues defaults() { return DEFAULTS; }
+
+    public <T> T get(Parameter<T> parameter) {
+        Object value = values.get(parameter);
+        return value == null ? parameter.getDefaultValue() : parameter.getType().cast(value);
+    }
+
+    /**
+     * @return these values with the given parameter set to the given value
+     * @throws IllegalArgumentException if the parameter does not accept the value
+     */
+    public <T> ParameterValues with(Parameter<T> parameter, T value) {
+        if (!parameter.accepts(value))
+            throw new IllegalArgumentException(String.format("%s cannot be %s.", parameter.getKey(), value));
+        Map<Parameter<?>, Object> changed = new LinkedHashMap<>(values);
+        changed.put(parameter, value);
+        return new ParameterValues(Collections.unmodifiableMap(changed));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ParameterValues && ((ParameterValues) o).values.equals(values);
+    }
+
+    @Override
+    public int hashCode() { return values.hashCode(); }
+
+    /** @return the values set, as <code>key=value</code> pairs in the order they were set */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Parameter<?>, Object> entry : values.entrySet()) {
+            if (text.length() > 0)
+                text.append(", ");
+            text.append(entry.getKey().getKey()).append('=').append(entry.getValue());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,228 @@
+package algorithms;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One run of an {@link Algorithm}, as started by an {@link AlgorithmScheduler}: its own iteration counter and the
+ * controls to pause, resume and cancel it. The algorithm finds its handle with {@link #current()} and calls
+ * {@link #pauseHere} where it may stop, such as after showing an update; the thread then blocks until the run is
+ * resumed or cancelled, instead of polling. What the algorithm wants shown it hands to {@link #publish}, which passes
+ * it on to whatever the scheduler was given, so the algorithm itself never touches the user interface.
+ * <p>
+ * A run at {@link #isMaxSpeed() maximum speed} goes to completion without showing or pausing for updates; only its
+ * final state is shown, and {@link #getIterationsPerSecond()} tells how fast it went. Pacing what is shown is left to
+ * whoever shows it, so algorithms never sleep between iterations.
+ * <p>
+ * An algorithm run directly, not through a scheduler, gets a handle of its own that never pauses and runs at maximum
+ * speed and whose updates go nowhere, so the same algorithm code runs headless. Such a run is cancelled by
+ * interrupting its thread, as a thread pool does when it is shut down.
+ *
+ * @author kevingray
+ */
+public final class RunHandle {
+
+    public enum State { QUEUED, RUNNING, PAUSED, FINISHED, CANCELLED }
+
+    private static final ThreadLocal<RunHandle> CURRENT = new ThreadLocal<>();
+
+    private final Algorithm     algorithm;
+    private final boolean       scheduled;
+    private final boolean       maxSpeed;
+    private final Consumer<? super RunSnapshot> updates;
+    private final AtomicInteger iteration = new AtomicInteger();
+    private final ReentrantLock lock      = new ReentrantLock();
+    private final Condition     resumed   = lock.newCondition();
+
+    private volatile State     state;
+    private volatile boolean   pauseRequested;
+    private volatile Future<?> future;
+    private volatile long      startNanos;
+    private volatile long      endNanos;
+
+    RunHandle(Algorithm algorithm, boolean scheduled, boolean maxSpeed, Consumer<? super RunSnapshot> updates) {
+        this.algorithm = algorithm;
+        this.scheduled = scheduled;
+        this.maxSpeed = maxSpeed;
+        this.updates = updates;
+        this.state = scheduled ? State.QUEUED : State.RUNNING;
+        if (!scheduled)
+            startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the handle of the run on the calling thread, or, for an algorithm run directly, a new handle that never
+     *         pauses
+     */
+    public static RunHandle current() {
+        RunHandle handle = CURRENT.get();
+        return handle != null ? handle : new RunHandle(null, false, true, AlgorithmScheduler.DISCARD);
+    }
+
+    public Algorithm getAlgorithm() { return algorithm; }
+
+    public State getState()         { return state; }
+
+    /** @return whether the run has finished or was cancelled */
+    public boolean isDone()         { return state == State.FINISHED || state == State.CANCELLED; }
+
+    /** @return whether the run was cancelled; a run outside a scheduler, asked on its own thread, by an interrupt */
+    public boolean isCancelled() {
+        return state == State.CANCELLED || (!scheduled && Thread.currentThread().isInterrupted());
+    }
+
+    /** @return whether the run should skip showing updates and run to completion */
+    public boolean isMaxSpeed()     { return maxSpeed; }
+
+    /**
+     * @return the iterations started per second of running, so far or over the whole run once it has ended; pauses
+     *         count as running
+     */
+    public double getIterationsPerSecond() {
+        long start = startNanos;
+        if (start == 0)
+            return 0;
+        long end     = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsed = Math.max(1, end - start);
+        return iteration.get() * 1e9 / elapsed;
+    }
+
+    /**
+     * Hands what the algorithm wants shown to whoever started the run. A finished snapshot is given this run's rate, so
+     * that it is reported with the right run even after another has started.
+     */
+    public void publish(RunSnapshot snapshot) {
+        if (snapshot.getPhase() == RunSnapshot.Phase.FINISHED)
+            snapshot = snapshot.at(getIterationsPerSecond());
+        updates.accept(snapshot);
+    }
+
+    /** @return the number of iterations the run has started */
+    public int getIteration()       { return iteration.get(); }
+
+    /** Counts the start of an iteration and returns its number, starting from 1. */
+    public int nextIteration()      { return iteration.incrementAndGet(); }
+
+    /** Asks the run to pause the next time it reaches {@link #pauseHere} or checks {@link #isPauseRequested()}. */
+    public void pause()             { pauseRequested = true; }
+
+    public boolean isPauseRequested() {
+        return pauseRequested;
+    }
+
+    /**
+     * Pauses the run until it is resumed or cancelled, publishing the snapshot to show while it is paused. Called by
+     * the algorithm on its own thread; a run that was not started by a scheduler has nothing to resume it and carries
+     * straight on. The run is paused before the snapshot goes out, so a resume prompted by it is never missed.
+     *
+     * @return <code>false</code> if the run was cancelled and the algorithm should stop
+     */
+    public boolean pauseHere(RunSnapshot paused) {
+        pauseRequested = false;
+        if (!scheduled) {
+            publish(paused);
+            return !isCancelled();
+        }
+        lock.lock();
+        try {
+            if (state != State.RUNNING)
+                return !isCancelled();
+            state = State.PAUSED;
+        } finally {
+            lock.unlock();
+        }
+        publish(paused);
+        lock.lock();
+        try {
+            while (state == State.PAUSED)
+                resumed.await();
+            return state != State.CANCELLED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.CANCELLED;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Lets a paused run carry on at once, until it pauses again. */
+    public void resume() {
+        lock.lock();
+        try {
+            if (state == State.PAUSED) {
+                state = State.RUNNING;
+                resumed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the run: a paused run wakes up and stops, and a running one is interrupted and stops at its next check of
+     * {@link #isCancelled()} or {@link #pauseHere}.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            if (isDone())
+                return;
+            state = State.CANCELLED;
+            resumed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Future<?> running = future;
+        if (running != null)
+            running.cancel(true);
+    }
+
+    /**
+     * Waits for the run to end.
+     *
+     * @throws ExecutionException if the algorithm threw an exception
+     */
+    public void await() throws InterruptedException, ExecutionException {
+        if (future == null)
+            return; // run directly, so over by the time anyone else can ask
+        try {
+            future.get();
+        } catch (CancellationException e) {
+            // cancelled before or while it ran; either way it is over
+        }
+    }
+
+    void started(Future<?> future) {
+        this.future = future;
+    }
+
+    void running() {
+        CURRENT.set(this);
+        startNanos = System.nanoTime();
+        lock.lock();
+        try {
+            if (state == State.QUEUED)
+                state = State.RUNNING;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void ended() {
+        CURRENT.remove();
+        endNanos = System.nanoTime();
+        lock.lock();
+        try {
+            if (state != State.CANCELLED)
+                state = State.FINISHED;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
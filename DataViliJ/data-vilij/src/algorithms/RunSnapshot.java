@@ -0,0 +1,120 @@
+package algorithms;
+
+import dataprocessors.DataSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What a running algorithm wants shown at one point of its run: a data set, the lines drawn with it, and whether the
+ * run is going, paused or over, which decides the state of the run and screenshot buttons. Snapshots are immutable and
+ * are handed to {@link RunHandle#publish}, which passes them on to the consumer the {@link AlgorithmScheduler} was made
+ * with, such as the application's display; only the latest one is shown when the display catches up, so each snapshot
+ * carries everything to show rather than a change to what was shown before. Nothing here depends on how it is shown.
+ *
+ * @author kevingray
+ */
+public final class RunSnapshot {
+
+    public enum Phase { RUNNING, PAUSED, FINISHED }
+
+    /** A named line segment, in data coordinates; two with the same name and ends are equal. */
+    public static final class Line {
+
+        public final String name;
+        public final double x1;
+        public final double y1;
+        public final double x2;
+        public final double y2;
+
+        public Line(String name, double x1, double y1, double x2, double y2) {
+            this.name = name;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Line))
+                return false;
+            Line other = (Line) o;
+            return Objects.equals(name, other.name) && Double.compare(x1, other.x1) == 0
+                   && Double.compare(y1, other.y1) == 0 && Double.compare(x2, other.x2) == 0
+                   && Double.compare(y2, other.y2) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, x1, y1, x2, y2);
+        }
+    }
+
+    private final boolean                 keepsContent;
+    private final DataSet                 dataSet;
+    private final List<Line>              lines;
+    private final Phase                   phase;
+    private final double                  iterationsPerSecond;
+
+    private RunSnapshot(boolean keepsContent, DataSet dataSet, List<Line> lines, Phase phase) {
+        this(keepsContent, dataSet, lines, phase, 0);
+    }
+
+    private RunSnapshot(boolean keepsContent, DataSet dataSet, List<Line> lines, Phase phase,
+                        double iterationsPerSecond) {
+        this.keepsContent = keepsContent;
+        this.dataSet = dataSet;
+        this.lines = lines;
+        this.phase = phase;
+        this.iterationsPerSecond = iterationsPerSecond;
+    }
+
+    /** @return a running snapshot that leaves whatever is shown alone, for an algorithm that has shown nothing yet */
+    public static RunSnapshot unchanged() {
+        return new RunSnapshot(true, null, Collections.emptyList(), Phase.RUNNING);
+    }
+
+    /** @param dataSet a data set nothing will change any more, typically a copy of the one being worked on */
+    public static RunSnapshot of(DataSet dataSet) {
+        return new RunSnapshot(false, dataSet, Collections.emptyList(), Phase.RUNNING);
+    }
+
+    /** @return a running snapshot that shows one line and no data */
+    public static RunSnapshot ofLine(String name, double x1, double y1, double x2, double y2) {
+        return new RunSnapshot(false, null, Collections.singletonList(new Line(name, x1, y1, x2, y2)),
+                               Phase.RUNNING);
+    }
+
+    /** @return a running snapshot that shows the data set with one line drawn over it */
+    public static RunSnapshot ofLine(DataSet dataSet, String name, double x1, double y1, double x2, double y2) {
+        return new RunSnapshot(false, dataSet, Collections.singletonList(new Line(name, x1, y1, x2, y2)),
+                               Phase.RUNNING);
+    }
+
+    /** @return the same content in the given phase */
+    public RunSnapshot in(Phase phase) {
+        return phase == this.phase ? this : new RunSnapshot(keepsContent, dataSet, lines, phase, iterationsPerSecond);
+    }
+
+    /** @return the same content, carrying the rate of the run it came from */
+    RunSnapshot at(double iterationsPerSecond) {
+        return new RunSnapshot(keepsContent, dataSet, lines, phase, iterationsPerSecond);
+    }
+
+    public Phase getPhase() { return phase; }
+
+    /** @return whether showing this snapshot leaves the data and lines as they are, only updating the buttons */
+    public boolean keepsContent() { return keepsContent; }
+
+    /** @return the data set to show, or null for none */
+    public DataSet getDataSet() { return dataSet; }
+
+    public List<Line> getLines() { return lines; }
+
+    /**
+     * @return for a finished snapshot, the iterations per second of the run that published it, as
+     *         {@link RunHandle#getIterationsPerSecond()} gave when it finished; 0 for the other phases
+     */
+    public double getIterationsPerSecond() { return iterationsPerSecond; }
+}
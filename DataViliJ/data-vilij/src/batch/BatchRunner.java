@@ -0,0 +1,188 @@
+package batch;
+
+import algorithms.Algorithm;
+import algorithms.AlgorithmDescriptor;
+import algorithms.AlgorithmRegistry;
+import algorithms.AlgorithmScheduler;
+import algorithms.Classifier;
+import algorithms.Clusterer;
+import algorithms.Parameter;
+import algorithms.ParameterValues;
+import algorithms.RunHandle;
+import dataprocessors.DataSet;
+import dataprocessors.TSDBinaryFormat;
+import dataprocessors.TSDProcessor;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs one algorithm on a <code>.tsd</code> file from the command line, without starting the application:
+ * <pre>
+ *     BatchRunner &lt;tsd file&gt; &lt;algorithm&gt; &lt;max iterations&gt; &lt;update interval&gt; [&lt;clusters&gt;] [&lt;output file&gt;]
+ *                 [&lt;parameter&gt;=&lt;value&gt; ...]
+ * </pre>
+ * The algorithm is named by the id of its {@link AlgorithmDescriptor} in the {@link AlgorithmRegistry}; any other
+ * parameter it takes, such as <code>batchSize</code>, can be set by its key. Only a clusterer takes the number of
+ * clusters; for a classifier the output file comes straight after the update interval, and one argument more is turned
+ * away. The file is loaded with {@link TSDProcessor#load}, so a file the application would turn away is turned away
+ * here too. The run goes at maximum speed to completion. A clusterer writes the data set labelled by cluster as a
+ * <code>.tsd</code> file; a classifier writes its output triple, the x coefficient, y coefficient and constant, on one
+ * tab-separated line. Unless another is given, the output goes next to the input file, named after it and the
+ * algorithm. The time taken to load and to run is printed when the run ends.
+ *
+ * @author kevingray
+ */
+public final class BatchRunner {
+
+    private BatchRunner() { }
+
+    public static void main(String... args) {
+        int status = run(System.out, System.err, args);
+        if (status != 0)
+            System.exit(status);
+    }
+
+    /**
+     * Runs the algorithm the arguments name, printing the timing to <code>out</code> and anything wrong to
+     * <code>err</code>.
+     *
+     * @return the exit status: 0 when the output was written, 1 for bad arguments and 2 when the file did not load
+     *         or the run failed
+     */
+    static int run(PrintStream out, PrintStream err, String... args) {
+        List<String> positional = new ArrayList<>();
+        List<String> settings   = new ArrayList<>();
+        for (String arg : args)
+            (arg.contains("=") ? settings : positional).add(arg);
+        if (positional.size() < 4 || positional.size() > 6) {
+            err.println(usage());
+            return 1;
+        }
+        Path                tsdFile    = Paths.get(positional.get(0));
+        String              name       = positional.get(1);
+        AlgorithmDescriptor descriptor = AlgorithmRegistry.find(name);
+        if (descriptor == null) {
+            err.println(String.format("There is no algorithm named %s.", name));
+            for (String skipped : AlgorithmRegistry.getSkipped())
+                err.println(skipped);
+            err.println(usage());
+            return 1;
+        }
+        boolean clusters = descriptor.getParameters().contains(Parameter.CLUSTERS);
+        int     output   = clusters ? 5 : 4;
+        if (positional.size() > output + 1) {
+            err.println(String.format("%s takes no number of clusters.", name));
+            err.println(usage());
+            return 1;
+        }
+        ParameterValues values = ParameterValues.defaults();
+        try {
+            values = set(values, descriptor, Parameter.MAX_ITERATIONS.getKey(), positional.get(2));
+            values = set(values, descriptor, Parameter.UPDATE_INTERVAL.getKey(), positional.get(3));
+            values = values.with(Parameter.CONTINUOUS_RUN, true);
+            if (clusters && positional.size() > 4)
+                values = set(values, descriptor, Parameter.CLUSTERS.getKey(), positional.get(4));
+            for (String setting : settings) {
+                int split = setting.indexOf('=');
+                values = set(values, descriptor, setting.substring(0, split), setting.substring(split + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(usage());
+            return 1;
+        }
+
+        try {
+            long    loadStart = System.nanoTime();
+            DataSet dataSet   = TSDProcessor.load(tsdFile);
+            long    loadNanos = System.nanoTime() - loadStart;
+
+            Algorithm algorithm  = descriptor.create(dataSet, values);
+            Path      outputFile = positional.size() > output ? Paths.get(positional.get(output))
+                                                              : defaultOutput(tsdFile, name, algorithm);
+
+            AlgorithmScheduler scheduler = new AlgorithmScheduler();
+            RunHandle          run       = scheduler.submit(algorithm, true);
+            long               runStart  = System.nanoTime();
+            run.await();
+            long               runNanos  = System.nanoTime() - runStart;
+            scheduler.shutdown();
+
+            write(algorithm, outputFile);
+            out.println(String.format("%s on %,d instances from %s", name, dataSet.size(), tsdFile));
+            out.println(String.format("Loaded in %.3f s, ran %,d iterations in %.3f s (%,.0f per second)",
+                                      loadNanos / 1e9, run.getIteration(), runNanos / 1e9,
+                                      run.getIterationsPerSecond()));
+            out.println(String.format("Wrote %s", outputFile));
+            return 0;
+        } catch (TSDProcessor.InvalidTSDException e) {
+            err.println(String.format("%s does not load: %s", tsdFile, e.getMessage().trim()));
+            return 2;
+        } catch (IOException | ExecutionException e) {
+            err.println(String.format("The run failed: %s", e.getCause() != null ? e.getCause() : e));
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    /**
+     * @return the values with the descriptor's parameter of the given key set from the text
+     * @throws IllegalArgumentException if the algorithm has no such parameter or it does not take the value
+     */
+    private static ParameterValues set(ParameterValues values, AlgorithmDescriptor descriptor, String key,
+                                       String text) {
+        for (Parameter<?> parameter : descriptor.getParameters()) {
+            if (parameter.getKey().equals(key))
+                return withParsed(values, parameter, text);
+        }
+        throw new IllegalArgumentException(String.format("%s takes no parameter %s.", descriptor.getId(), key));
+    }
+
+    private static <T> ParameterValues withParsed(ParameterValues values, Parameter<T> parameter, String text) {
+        return values.with(parameter, parameter.parse(text));
+    }
+
+    private static Path defaultOutput(Path tsdFile, String name, Algorithm algorithm) {
+        String fileName = tsdFile.getFileName().toString();
+        int    dot      = fileName.lastIndexOf('.');
+        String base     = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String suffix   = algorithm instanceof Clusterer ? ".tsd" : ".txt";
+        return tsdFile.resolveSibling(base + "-" + name + suffix);
+    }
+
+    private static void write(Algorithm algorithm, Path outputFile) throws IOException {
+        if (algorithm instanceof Clusterer) {
+            DataSet labelled = ((Clusterer) algorithm).getOutput();
+            if (labelled == null)
+                throw new IOException("The clusterer ended without an output.");
+            TSDBinaryFormat.writeTSD(labelled, outputFile);
+        } else {
+            List<Integer> output = ((Classifier) algorithm).getOutput();
+            if (output == null)
+                throw new IOException("The classifier ended without an output.");
+            try (Writer writer = Files.newBufferedWriter(outputFile, Charset.defaultCharset())) {
+                writer.write(String.format("%d\t%d\t%d%n", output.get(0), output.get(1), output.get(2)));
+            }
+        }
+    }
+
+    private static String usage() {
+        List<String> ids = new ArrayList<>();
+        for (AlgorithmDescriptor descriptor : AlgorithmRegistry.getDescriptors())
+            ids.add(descriptor.getId());
+        return String.format("Usage: BatchRunner <tsd file> <algorithm> <max iterations> <update interval> "
+                             + "[<clusters>] [<output file>] [<parameter>=<value> ...]%n  where <algorithm> is one of %s"
+                             + "%n  and <clusters> is given only to a clusterer",
+                             String.join(", ", ids));
+    }
+}
@@ -0,0 +1,64 @@
+package batch;
+
+import algorithms.AlgorithmDescriptor;
+import algorithms.ParameterValues;
+
+/**
+ * How one run of a {@link SweepRunner parameter sweep} went: the algorithm and values it ran with, how good the result
+ * was and how long it took. A clustering is scored by its inertia, the sum of the squared distances of the instances
+ * from the centres of their clusters, which is better lower; a classification by its accuracy, which is better higher.
+ *
+ * @author kevingray
+ */
+public final class SweepResult {
+
+    private final AlgorithmDescriptor descriptor;
+    private final ParameterValues     values;
+    private final double              score;
+    private final long                wallNanos;
+    private final RuntimeException    failure;
+
+    SweepResult(AlgorithmDescriptor descriptor, ParameterValues values, double score, long wallNanos,
+                RuntimeException failure) {
+        this.descriptor = descriptor;
+        this.values = values;
+        this.score = score;
+        this.wallNanos = wallNanos;
+        this.failure = failure;
+    }
+
+    public AlgorithmDescriptor getDescriptor() { return descriptor; }
+
+    /** @return the values the run was made with, to set up the same run again */
+    public ParameterValues getValues()         { return values; }
+
+    /** @return the inertia or accuracy of the result, or NaN if there was none */
+    public double getScore()                   { return score; }
+
+    /** @return what the score measures */
+    public String getScoreName() {
+        return descriptor.getTaskType() == AlgorithmDescriptor.TaskType.CLUSTERING ? "inertia" : "accuracy";
+    }
+
+    /** @return how long the run took, from making the algorithm to scoring its result */
+    public long getWallNanos()                 { return wallNanos; }
+
+    /** @return what the algorithm threw, or null if it ran to the end */
+    public RuntimeException getFailure()       { return failure; }
+
+    /** @return whether this result has a score and it is better than the other's, or the other has none */
+    public boolean isBetterThan(SweepResult other) {
+        if (Double.isNaN(score))
+            return false;
+        if (Double.isNaN(other.score))
+            return true;
+        return descriptor.getTaskType() == AlgorithmDescriptor.TaskType.CLUSTERING ? score < other.score
+                                                                                   : score > other.score;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = failure != null ? "failed: " + failure : String.format("%s %.6g", getScoreName(), score);
+        return String.format("%s [%s] %s in %.3f s", descriptor.getId(), values, outcome, wallNanos / 1e9);
+    }
+}
@@ -0,0 +1,286 @@
+package batch;
+
+import algorithms.Algorithm;
+import algorithms.AlgorithmDescriptor;
+import algorithms.AlgorithmRegistry;
+import algorithms.Classifier;
+import algorithms.Clusterer;
+import algorithms.Parameter;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an algorithm once for every point of a grid of parameter values, several runs at a time on a fixed number of
+ * worker threads, and scores each result. All the runs read the same copy of the data set, taken when the sweep
+ * starts; the algorithms only read it, so no run sees another's labels and none sees later edits to the original.
+ * Each run goes straight through at maximum speed, showing nothing, and {@link #shutdown} stops the runs under way.
+ * <p>
+ * Grids are built with {@link #vary}, one parameter at a time; they take the same values as the application, so the
+ * number of clusters goes no higher than 4. A run's {@link SweepResult} carries the descriptor and values it ran with,
+ * and the command line prints those of the {@link #best} one, to run again with {@link BatchRunner}:
+ * <pre>
+ *     SweepRunner &lt;tsd file&gt; &lt;algorithm&gt; &lt;workers&gt; &lt;parameter&gt;=&lt;value&gt;[,&lt;value&gt;...] ...
+ * </pre>
+ *
+ * @author kevingray
+ */
+public final class SweepRunner {
+
+    private final AtomicInteger   threads = new AtomicInteger();
+    private final ExecutorService workers;
+
+    /** @param workers how many runs go at once */
+    public SweepRunner(int workers) {
+        if (workers < 1)
+            throw new IllegalArgumentException("A sweep needs at least one worker.");
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "sweep-worker-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return every point of the grid once for each of the values, with the parameter set to that value, in grid order
+     *         and then value order
+     */
+    public static <T> List<ParameterValues> vary(List<ParameterValues> grid, Parameter<T> parameter, List<T> values) {
+        List<ParameterValues> varied = new ArrayList<>(grid.size() * values.size());
+        for (ParameterValues point : grid) {
+            for (T value : values)
+                varied.add(point.with(parameter, value));
+        }
+        return varied;
+    }
+
+    /**
+     * Runs the algorithm for every point of the grid and waits for all the runs to end.
+     *
+     * @return the results in grid order; a run stopped by {@link #shutdown}, or never started, fails with a
+     *         {@link CancellationException}
+     */
+    public List<SweepResult> run(AlgorithmDescriptor descriptor, DataSet dataSet, List<ParameterValues> grid)
+            throws InterruptedException {
+        DataSet                   shared  = dataSet.copy();
+        List<Future<SweepResult>> running = new ArrayList<>(grid.size());
+        for (ParameterValues values : grid)
+            running.add(workers.submit(() -> runOne(descriptor, shared, values)));
+        List<SweepResult> results = new ArrayList<>(grid.size());
+        try {
+            for (int i = 0; i < running.size(); i++) {
+                try {
+                    results.add(running.get(i).get());
+                } catch (CancellationException e) {
+                    results.add(new SweepResult(descriptor, grid.get(i), Double.NaN, 0, e));
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause()); // runOne catches what the algorithms throw
+        } finally {
+            for (Future<SweepResult> result : running)
+                result.cancel(true);
+        }
+        return results;
+    }
+
+    /** @return the result with the best score, or null if none has one */
+    public static SweepResult best(List<SweepResult> results) {
+        SweepResult best = null;
+        for (SweepResult result : results) {
+            if (!Double.isNaN(result.getScore()) && (best == null || result.isBetterThan(best)))
+                best = result;
+        }
+        return best;
+    }
+
+    /** Stops every run, under way or waiting, and takes no more. */
+    public void shutdown() {
+        for (Runnable waiting : workers.shutdownNow()) {
+            if (waiting instanceof Future)
+                ((Future<?>) waiting).cancel(false);
+        }
+    }
+
+    private static SweepResult runOne(AlgorithmDescriptor descriptor, DataSet shared, ParameterValues values) {
+        long start = System.nanoTime();
+        try {
+            Algorithm algorithm = descriptor.create(shared, values);
+            algorithm.run();
+            if (Thread.currentThread().isInterrupted())
+                throw new CancellationException("The sweep was shut down.");
+            double score = score(shared, algorithm);
+            return new SweepResult(descriptor, values, score, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new SweepResult(descriptor, values, Double.NaN, System.nanoTime() - start, e);
+        }
+    }
+
+    private static double score(DataSet dataSet, Algorithm algorithm) {
+        if (algorithm instanceof Clusterer) {
+            DataSet labelled = ((Clusterer) algorithm).getOutput();
+            return labelled == null ? Double.NaN : inertia(labelled);
+        }
+        if (algorithm instanceof Classifier) {
+            List<Integer> line = ((Classifier) algorithm).getOutput();
+            return line == null ? Double.NaN : accuracy(dataSet, line);
+        }
+        return Double.NaN;
+    }
+
+    /** @return the sum of the squared distances of the instances from the mean of the instances with their label */
+    static double inertia(DataSet labelled) {
+        int      labels = labelled.getLabelTableSize();
+        double[] sumX   = new double[labels];
+        double[] sumY   = new double[labels];
+        int[]    counts = new int[labels];
+        double[] xs     = labelled.getXColumn();
+        double[] ys     = labelled.getYColumn();
+        int[]    ids    = labelled.getLabelColumn();
+        for (int i = 0; i < labelled.size(); i++) {
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i]))
+                continue;
+            sumX[ids[i]] += xs[i];
+            sumY[ids[i]] += ys[i];
+            counts[ids[i]]++;
+        }
+        double inertia = 0;
+        for (int i = 0; i < labelled.size(); i++) {
+            if (Double.isNaN(xs[i]) || Double.isNaN(ys[i]))
+                continue;
+            double dx = xs[i] - sumX[ids[i]] / counts[ids[i]];
+            double dy = ys[i] - sumY[ids[i]] / counts[ids[i]];
+            inertia += dx * dx + dy * dy;
+        }
+        return inertia;
+    }
+
+    /**
+     * @return the share of the instances with the first two labels in use that the line <code>[a, b, c]</code> puts on
+     *         their own side: the first label where <code>a x + b y + c</code> is positive, the second elsewhere, as
+     *         the classifiers learn it; NaN if there are not two labels
+     */
+    static double accuracy(DataSet dataSet, List<Integer> line) {
+        List<String> labels = dataSet.getLabelDictionary().getLabels();
+        if (labels.size() < 2)
+            return Double.NaN;
+        int positive = dataSet.getLabelDictionary().idOf(labels.get(0));
+        int negative = dataSet.getLabelDictionary().idOf(labels.get(1));
+        int counted  = 0;
+        int correct  = 0;
+        for (int i = 0; i < dataSet.size(); i++) {
+            int    id = dataSet.getLabelId(i);
+            double x  = dataSet.getX(i);
+            double y  = dataSet.getY(i);
+            if ((id != positive && id != negative) || Double.isNaN(x) || Double.isNaN(y))
+                continue;
+            counted++;
+            if ((line.get(0) * x + line.get(1) * y + line.get(2) > 0) == (id == positive))
+                correct++;
+        }
+        return counted == 0 ? Double.NaN : (double) correct / counted;
+    }
+
+    public static void main(String... args) {
+        int status = sweep(System.out, System.err, args);
+        if (status != 0)
+            System.exit(status);
+    }
+
+    /**
+     * @return the exit status: 0 when every point of the grid ran, 1 for bad arguments and 2 when the file did not load
+     *         or the sweep failed
+     */
+    static int sweep(PrintStream out, PrintStream err, String... args) {
+        if (args.length < 3) {
+            err.println(usage());
+            return 1;
+        }
+        AlgorithmDescriptor descriptor = AlgorithmRegistry.find(args[1]);
+        if (descriptor == null) {
+            err.println(String.format("There is no algorithm named %s.", args[1]));
+            for (String skipped : AlgorithmRegistry.getSkipped())
+                err.println(skipped);
+            err.println(usage());
+            return 1;
+        }
+        int                   workers;
+        List<ParameterValues> grid = Collections.singletonList(ParameterValues.defaults());
+        try {
+            workers = Integer.parseInt(args[2]);
+            grid = vary(grid, Parameter.CONTINUOUS_RUN, Collections.singletonList(true));
+            for (int i = 3; i < args.length; i++)
+                grid = vary(grid, descriptor, args[i]);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(usage());
+            return 1;
+        }
+
+        SweepRunner runner = new SweepRunner(Math.max(1, workers));
+        try {
+            DataSet           dataSet = TSDProcessor.load(Paths.get(args[0]));
+            long              start   = System.nanoTime();
+            List<SweepResult> results = runner.run(descriptor, dataSet, grid);
+            for (SweepResult result : results)
+                out.println(result);
+            out.println(String.format("Ran %,d configurations in %.3f s on %d workers", results.size(),
+                                      (System.nanoTime() - start) / 1e9, workers));
+            SweepResult best = best(results);
+            if (best != null)
+                out.println(String.format("Best: %s", best.getValues()));
+            return 0;
+        } catch (TSDProcessor.InvalidTSDException e) {
+            err.println(String.format("%s does not load: %s", args[0], e.getMessage().trim()));
+            return 2;
+        } catch (IOException e) {
+            err.println(String.format("The sweep failed: %s", e));
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    /** Varies the grid by a <code>key=value,value...</code> argument naming one of the descriptor's parameters. */
+    private static List<ParameterValues> vary(List<ParameterValues> grid, AlgorithmDescriptor descriptor,
+                                              String setting) {
+        int split = setting.indexOf('=');
+        String key = split < 0 ? setting : setting.substring(0, split);
+        for (Parameter<?> parameter : descriptor.getParameters()) {
+            if (parameter.getKey().equals(key) && split >= 0)
+                return varyParsed(grid, parameter, setting.substring(split + 1).split(","));
+        }
+        throw new IllegalArgumentException(String.format("%s takes no parameter %s.", descriptor.getId(), key));
+    }
+
+    private static <T> List<ParameterValues> varyParsed(List<ParameterValues> grid, Parameter<T> parameter,
+                                                        String[] texts) {
+        List<T> values = new ArrayList<>(texts.length);
+        for (String text : texts)
+            values.add(parameter.parse(text));
+        return vary(grid, parameter, values);
+    }
+
+    private static String usage() {
+        List<String> ids = new ArrayList<>();
+        for (AlgorithmDescriptor descriptor : AlgorithmRegistry.getDescriptors())
+            ids.add(descriptor.getId());
+        return String.format("Usage: SweepRunner <tsd file> <algorithm> <workers> <parameter>=<value>[,<value>...] ..."
+                             + "%n  where <algorithm> is one of %s", String.join(", ", ids));
+    }
+}
@@ -0,0 +1,188 @@
+package classification;
+
+import algorithms.Classifier;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
+import dataprocessors.DataSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A linear classifier trained by mini-batch stochastic gradient descent through a {@link LinearModel}, as a perceptron
+ * or by logistic regression. It separates the first two labels of the data set; instances with any other label are
+ * left out. The loss over all the instances is checked once per pass over them, and the run ends early once it has
+ * stopped going down.
+ * <p>
+ * The {@link #output} is the line <code>a x + b y + c = 0</code> as the triple <code>[a, b, c]</code>, scaled so that
+ * the largest of the three is {@value #OUTPUT_SCALE} and rounded; {@link #getLine()} gives it unrounded.
+ *
+ * @author kevingray
+ */
+public class LinearClassifier extends Classifier {
+
+    /** The number of instances each step samples, unless another is given. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** The size of the largest term of the output triple. */
+    public static final int OUTPUT_SCALE = 10000;
+
+    /** Less than this drop in loss, relative to the best so far, counts as none. */
+    static final double TOLERANCE = 1e-4;
+
+    /** How many checks in a row without a drop in loss end the run. */
+    static final int PATIENCE = 3;
+
+    private static final double LEARNING_RATE = 0.5;
+
+    private DataSet dataset;
+
+    private final LinearModel.Loss loss;
+    private final int              maxIterations;
+    private final int              updateInterval;
+    private final int              batchSize;
+    private final AtomicBoolean    tocontinue;
+    private volatile double[]      line;
+    private volatile boolean       converged;
+
+    public LinearClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue,
+                            LinearModel.Loss loss) {
+        this(dataset, maxIterations, updateInterval, tocontinue, loss, DEFAULT_BATCH_SIZE);
+    }
+
+    public LinearClassifier(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue,
+                            LinearModel.Loss loss, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("A mini-batch needs at least one instance.");
+        this.dataset = dataset;
+        this.loss = loss;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.batchSize = batchSize;
+        this.tocontinue = new AtomicBoolean(tocontinue);
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    public LinearModel.Loss getLoss() { return loss; }
+
+    public int getBatchSize() { return batchSize; }
+
+    /** @return the line <code>{a, b, c}</code> as of the last iteration, or null before any */
+    public double[] getLine() {
+        double[] current = line;
+        return current == null ? null : current.clone();
+    }
+
+    /** @return whether the last run ended because the loss stopped going down */
+    public boolean hasConverged() { return converged; }
+
+    @Override
+    public void run() {
+        RunHandle run = RunHandle.current();
+        RunSnapshot shown = RunSnapshot.unchanged();
+        converged = false;
+        LinearModel model = model();
+        if (model.getTrainingSize() == 0) {
+            run.publish(shown.in(RunSnapshot.Phase.FINISHED));
+            return;
+        }
+        Random   random     = newRandom();
+        double[] bounds     = bounds();
+        int      checkEvery = Math.max(1, model.getTrainingSize() / batchSize);
+        double   best       = model.evaluate();
+        int      stalled    = 0;
+        while (run.getIteration() < maxIterations && !run.isCancelled() && !converged) {
+            run.nextIteration();
+            model.step(random, batchSize, LEARNING_RATE / Math.sqrt(run.getIteration()));
+            line = model.getLine();
+
+            if (run.getIteration() % checkEvery == 0) {
+                double current = model.evaluate();
+                stalled = best - current <= TOLERANCE * best ? stalled + 1 : 0;
+                best = Math.min(best, current);
+                converged = stalled >= PATIENCE;
+            }
+
+            if(!run.isMaxSpeed() && run.getIteration() % updateInterval == 0) {
+
+                output = outputOf(line);
+                shown = snapshot(line, bounds);
+                run.publish(shown);
+
+                if(!tocontinue() || run.isPauseRequested()) {
+                    if(!run.pauseHere(shown.in(RunSnapshot.Phase.PAUSED)))
+                        break;
+                    run.publish(shown);
+                }
+
+            }
+
+        }
+        if(line != null) {
+            output = outputOf(line);
+            shown = snapshot(line, bounds);
+        }
+        run.publish(shown.in(RunSnapshot.Phase.FINISHED));
+    }
+
+    /** @return a model with a target of +1 for the first label in use, -1 for the second and 0 for the rest */
+    private LinearModel model() {
+        List<String> labels   = dataset.getLabelDictionary().getLabels();
+        int          positive = labels.size() > 0 ? dataset.getLabelDictionary().idOf(labels.get(0)) : -1;
+        int          negative = labels.size() > 1 ? dataset.getLabelDictionary().idOf(labels.get(1)) : -1;
+        int[]        labelIds = dataset.getLabelColumn();
+        double[]     targets  = new double[dataset.size()];
+        if (negative >= 0) {
+            for (int i = 0; i < targets.length; i++)
+                targets[i] = labelIds[i] == positive ? 1 : labelIds[i] == negative ? -1 : 0;
+        }
+        return new LinearModel(dataset.getXColumn(), dataset.getYColumn(), targets, dataset.size(), loss);
+    }
+
+    /** @return the smallest and largest x and y of the instances, over which the line is drawn */
+    private double[] bounds() {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                           Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < dataset.size(); i++) {
+            double x = dataset.getX(i);
+            double y = dataset.getY(i);
+            if (Double.isNaN(x) || Double.isNaN(y))
+                continue;
+            bounds[0] = Math.min(bounds[0], x);
+            bounds[1] = Math.max(bounds[1], x);
+            bounds[2] = Math.min(bounds[2], y);
+            bounds[3] = Math.max(bounds[3], y);
+        }
+        return bounds;
+    }
+
+    /** @return the data with the line drawn across it, along x unless the line is closer to upright */
+    private RunSnapshot snapshot(double[] line, double[] bounds) {
+        double a = line[0], b = line[1], c = line[2];
+        if (a == 0 && b == 0)
+            return RunSnapshot.of(dataset);
+        if (Math.abs(b) >= Math.abs(a))
+            return RunSnapshot.ofLine(dataset, null, bounds[0], -(a * bounds[0] + c) / b,
+                                      bounds[1], -(a * bounds[1] + c) / b);
+        return RunSnapshot.ofLine(dataset, null, -(b * bounds[2] + c) / a, bounds[2],
+                                  -(b * bounds[3] + c) / a, bounds[3]);
+    }
+
+    static List<Integer> outputOf(double[] line) {
+        double largest = Math.max(Math.abs(line[0]), Math.max(Math.abs(line[1]), Math.abs(line[2])));
+        if (largest == 0 || Double.isNaN(largest) || Double.isInfinite(largest))
+            return Arrays.asList(0, 0, 0);
+        double scale = OUTPUT_SCALE / largest;
+        return Arrays.asList((int) Math.round(line[0] * scale), (int) Math.round(line[1] * scale),
+                             (int) Math.round(line[2] * scale));
+    }
+}
@@ -0,0 +1,242 @@
+package classification;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The arithmetic of a linear classifier on primitive arrays: the coordinates of the points, a target of
+ * <code>+1</code> or <code>-1</code> for each, and the weights of the line between the two. A {@link #step} of
+ * stochastic gradient descent moves the weights against the gradient of the loss over a random mini-batch of the
+ * points; the gradient of a large batch is summed in parts over a {@link ForkJoinPool} and the parts are added up when
+ * they join, as is the loss over every point when the model is {@link #evaluate evaluated}.
+ * <p>
+ * The weights are learnt on coordinates centred and scaled to unit spread, so that one learning rate suits any data
+ * set, and are handed out as the line <code>a x + b y + c = 0</code> in the data's own coordinates, positive on the side
+ * of the points with target <code>+1</code>.
+ * <p>
+ * Points with a target of <code>0</code> or a NaN coordinate are left out of training.
+ *
+ * @author kevingray
+ */
+public final class LinearModel {
+
+    /** What a point on the wrong side of the line, or too close to it, costs. */
+    public enum Loss {
+        /** How far a misclassified point is from the line; correctly classified points cost nothing. */
+        PERCEPTRON,
+        /** The negative log-likelihood of the target under a logistic model. */
+        LOGISTIC
+    }
+
+    /** Fewer points than this have their gradient summed on the calling thread. */
+    private static final int SPLIT_SIZE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final double[]     xs;
+    private final double[]     ys;
+    private final double[]     targets;
+    private final Loss         loss;
+    private final int[]        training;     // the indices of the points trained on
+    private final double       meanX;
+    private final double       meanY;
+    private final double       scaleX;
+    private final double       scaleY;
+    private final double[]     weights = new double[3]; // x, y and bias, on the scaled coordinates
+    private int[]              batch   = new int[0];
+    private double             lastLoss     = Double.NaN;
+    private double             lastAccuracy = Double.NaN;
+
+    /**
+     * @param xs      the x coordinates of the points, of which the first <code>size</code> are used; they are read, not
+     *                copied, and must not change while the model is used
+     * @param ys      the y coordinates, likewise
+     * @param targets <code>+1</code> or <code>-1</code> for each point to train on, and <code>0</code> for the others
+     * @param size    the number of points
+     */
+    public LinearModel(double[] xs, double[] ys, double[] targets, int size, Loss loss) {
+        this(xs, ys, targets, size, loss, ForkJoinPool.commonPool());
+    }
+
+    LinearModel(double[] xs, double[] ys, double[] targets, int size, Loss loss, ForkJoinPool pool) {
+        this.pool = pool;
+        this.xs = xs;
+        this.ys = ys;
+        this.targets = targets;
+        this.loss = loss;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (trains(i))
+                count++;
+        }
+        training = new int[count];
+        double sumX = 0, sumY = 0;
+        count = 0;
+        for (int i = 0; i < size; i++) {
+            if (trains(i)) {
+                training[count++] = i;
+                sumX += xs[i];
+                sumY += ys[i];
+            }
+        }
+        meanX = count == 0 ? 0 : sumX / count;
+        meanY = count == 0 ? 0 : sumY / count;
+        double squaresX = 0, squaresY = 0;
+        for (int i : training) {
+            squaresX += (xs[i] - meanX) * (xs[i] - meanX);
+            squaresY += (ys[i] - meanY) * (ys[i] - meanY);
+        }
+        scaleX = spread(squaresX, count);
+        scaleY = spread(squaresY, count);
+    }
+
+    private boolean trains(int i) {
+        return targets[i] != 0 && !Double.isNaN(xs[i]) && !Double.isNaN(ys[i]);
+    }
+
+    private static double spread(double squares, int count) {
+        double deviation = count == 0 ? 0 : Math.sqrt(squares / count);
+        return deviation > 0 ? deviation : 1;
+    }
+
+    public Loss getLoss()             { return loss; }
+
+    /** @return the number of points trained on */
+    public int getTrainingSize()      { return training.length; }
+
+    /** @return the mean loss over every training point, as of the last evaluation */
+    public double getLastLoss()       { return lastLoss; }
+
+    /** @return the share of training points on their own side of the line, as of the last evaluation */
+    public double getLastAccuracy()   { return lastAccuracy; }
+
+    /**
+     * @return the line as <code>{a, b, c}</code> with <code>a x + b y + c = 0</code> in the data's coordinates,
+     *         positive on the side of the points with target <code>+1</code>
+     */
+    public double[] getLine() {
+        double a = weights[0] / scaleX;
+        double b = weights[1] / scaleY;
+        return new double[]{a, b, weights[2] - a * meanX - b * meanY};
+    }
+
+    /**
+     * Takes one step of stochastic gradient descent: the weights move against the mean gradient of the loss over
+     * <code>batchSize</code> training points drawn at random, or over all of them when there are no more than that.
+     *
+     * @param rate how far to move along the gradient
+     * @return the mean loss over the batch, before the step
+     */
+    public double step(Random random, int batchSize, double rate) {
+        if (training.length == 0)
+            return 0;
+        int[] points;
+        int   count;
+        if (batchSize >= training.length) {
+            points = training;
+            count = training.length;
+        } else {
+            if (batch.length != batchSize)
+                batch = new int[batchSize];
+            for (int j = 0; j < batchSize; j++)
+                batch[j] = training[random.nextInt(training.length)];
+            points = batch;
+            count = batchSize;
+        }
+        Sums sums = pool.invoke(new Gradient(points, 0, count));
+        weights[0] -= rate * sums.x / count;
+        weights[1] -= rate * sums.y / count;
+        weights[2] -= rate * sums.bias / count;
+        return sums.loss / count;
+    }
+
+    /**
+     * Works out the mean loss and the accuracy over every training point.
+     *
+     * @return the mean loss
+     */
+    public double evaluate() {
+        if (training.length == 0) {
+            lastLoss = 0;
+            lastAccuracy = 1;
+            return 0;
+        }
+        Sums sums = pool.invoke(new Gradient(training, 0, training.length));
+        lastLoss = sums.loss / training.length;
+        lastAccuracy = (double) sums.correct / training.length;
+        return lastLoss;
+    }
+
+    /** The gradient, loss and number of correct guesses over part of the points. */
+    private static final class Sums {
+
+        double x;
+        double y;
+        double bias;
+        double loss;
+        int    correct;
+
+        Sums add(Sums other) {
+            x += other.x;
+            y += other.y;
+            bias += other.bias;
+            loss += other.loss;
+            correct += other.correct;
+            return this;
+        }
+    }
+
+    /** Sums the gradient over the points listed in <code>[from, to)</code> of an index array. */
+    private final class Gradient extends RecursiveTask<Sums> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] points;
+        private final int   from;
+        private final int   to;
+
+        Gradient(int[] points, int from, int to) {
+            this.points = points;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Sums compute() {
+            if (to - from > SPLIT_SIZE) {
+                int      middle = (from + to) >>> 1;
+                Gradient low    = new Gradient(points, from, middle);
+                low.fork();
+                Sums high = new Gradient(points, middle, to).compute();
+                return low.join().add(high);
+            }
+            Sums   sums = new Sums();
+            double wx   = weights[0];
+            double wy   = weights[1];
+            double b    = weights[2];
+            for (int j = from; j < to; j++) {
+                int    i      = points[j];
+                double x      = (xs[i] - meanX) / scaleX;
+                double y      = (ys[i] - meanY) / scaleY;
+                double target = targets[i];
+                double margin = target * (wx * x + wy * y + b);
+                if (margin > 0)
+                    sums.correct++;
+                double slope;  // the derivative of the loss by the margin
+                if (loss == Loss.PERCEPTRON) {
+                    if (margin > 0)
+                        continue;
+                    sums.loss -= margin;
+                    slope = -1;
+                } else {
+                    sums.loss += margin < 0 ? -margin + Math.log1p(Math.exp(margin)) : Math.log1p(Math.exp(-margin));
+                    slope = -1 / (1 + Math.exp(margin));
+                }
+                sums.x += slope * target * x;
+                sums.y += slope * target * y;
+                sums.bias += slope * target;
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package classification;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes a {@link LinearClassifier} trained as a perceptron.
+ *
+ * @author kevingray
+ */
+public final class PerceptronDescriptor extends AbstractAlgorithmDescriptor {
+
+    public PerceptronDescriptor() {
+        super("perceptron", "Perceptron Classifier", TaskType.CLASSIFICATION,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, BATCH_SIZE, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new LinearClassifier(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                    values.get(CONTINUOUS_RUN), LinearModel.Loss.PERCEPTRON, values.get(BATCH_SIZE));
+    }
+}
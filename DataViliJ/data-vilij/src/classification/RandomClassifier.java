@@ -1,31 +1,21 @@
 package classification;
 
 import algorithms.Classifier;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
 import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
 
-import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
-import javafx.application.Platform;
-import javafx.scene.chart.XYChart;
-import ui.AppUI;
-import static ui.AppUI.getGlobalTimer;
-import static ui.AppUI.incrementGlobalTimer;
-import static ui.AppUI.resetFlag;
-import static ui.AppUI.resetGlobalTimer;
-import static ui.AppUI.runInProgress;
-import static ui.AppUI.setRunInProgress;
-import vilij.templates.ApplicationTemplate;
 
 /**
  * @author Ritwik Banerjee
  */
 public class RandomClassifier extends Classifier {
 
-    private static final Random RAND = new Random();
-    public ApplicationTemplate template;
 
     @SuppressWarnings("FieldCanBeLocal")
     // this mock classifier doesn't actually use the data, but a real classifier will
@@ -52,13 +42,6 @@ public class RandomClassifier extends Classifier {
         return tocontinue.get();
     }
     
-    public RandomClassifier() {
-        this.dataset = new DataSet();
-        this.maxIterations = 1;
-        this.updateInterval = 1;
-        this.tocontinue = new AtomicBoolean(true);
-    }
-
     public RandomClassifier(DataSet dataset,
                             int maxIterations,
                             int updateInterval,
@@ -72,55 +55,30 @@ public class RandomClassifier extends Classifier {
     @Override
     public void run() {
         
-        AppUI ui = ((AppUI) template.getUIComponent());
+        RunHandle run = RunHandle.current();
+        RunSnapshot shown = RunSnapshot.unchanged();
+        Random random = newRandom();
         
-        for (int i = 1; i <= maxIterations; i++) {
-            incrementGlobalTimer();
-            XYChart.Series<Number, Number> line = new XYChart.Series<>();
-            int xCoefficient = new Double(RAND.nextDouble() * 100).intValue();
-            int yCoefficient = new Double(RAND.nextDouble() + 1 * 100).intValue();
-            int constant     = new Double(RAND.nextDouble() * 100).intValue();
-            line.getData().add(new XYChart.Data<>(0, constant));
-            line.getData().add(new XYChart.Data<>(xCoefficient*10, (-(xCoefficient*10)-constant)/yCoefficient));
+        for (int i = 1; i <= maxIterations && !run.isCancelled(); i++) {
+            run.nextIteration();
+            int xCoefficient = new Double(random.nextDouble() * 100).intValue();
+            int yCoefficient = new Double(random.nextDouble() + 1 * 100).intValue();
+            int constant     = new Double(random.nextDouble() * 100).intValue();
             output = Arrays.asList(xCoefficient, yCoefficient, constant);
-//            System.out.println("global: " + getGlobalTimer());
+//            System.out.println("global: " + run.getIteration());
 //            System.out.println("i: "+ i);
-            if(getGlobalTimer() % updateInterval == 0) {
+            if(!run.isMaxSpeed() && run.getIteration() % updateInterval == 0) {
                 
-                Platform.runLater(() -> {
-                    ui.clearChart();
-                    ui.addToChart(line);
-                });
-                if(!tocontinue()) {
-                    setRunInProgress(false);
-                    Platform.runLater(() -> {
-                        ui.disableRunButton(false);
-                        ui.disableScreenshotButton(false);
-                    });
-                    
-                    while(!runInProgress()) {
-                        try {
-                        //System.out.println("waiting");
-                        Thread.sleep(1000);
-                        } catch (InterruptedException ex) {
-                            
-                        }
-                    }
-                    Platform.runLater(() -> {
-                        ui.disableScreenshotButton(true);
-                    });
+                shown = line(xCoefficient, yCoefficient, constant);
+                run.publish(shown);
+                if(!tocontinue() || run.isPauseRequested()) {
+                    if(!run.pauseHere(shown.in(RunSnapshot.Phase.PAUSED)))
+                        break;
+                    run.publish(shown);
                 }
-                Platform.runLater(() -> {
-                    ui.disableRunButton(true);
-                });      
                 
             }
             
-            try {
-                Thread.sleep(100);
-            } catch (Exception e) {
-                
-            }
                  //everything below is just for internal viewing of how the output is changing
                  //in the final project, such changes will be dynamically visible in the UI
 //            if (i % updateInterval == 0) {
@@ -134,13 +92,14 @@ public class RandomClassifier extends Classifier {
 //            }
 
         }
-        Platform.runLater(() -> {
-            ui.disableScreenshotButton(false);
-            ui.disableRunButton(false);
-        });
-        setRunInProgress(false);
-        resetGlobalTimer();
-        resetFlag();
+        if(run.isMaxSpeed() && output != null)
+            shown = line(output.get(0), output.get(1), output.get(2));
+        run.publish(shown.in(RunSnapshot.Phase.FINISHED));
+    }
+
+    /** @return the line for the output triple, as it is drawn over the data */
+    private static RunSnapshot line(int xCoefficient, int yCoefficient, int constant) {
+        return RunSnapshot.ofLine(null, 0, constant, xCoefficient*10, (-(xCoefficient*10)-constant)/yCoefficient);
     }
 
     // for internal viewing only
@@ -149,8 +108,8 @@ public class RandomClassifier extends Classifier {
     }
 
     /** A placeholder main method to just make sure this code runs smoothly */
-    public static void main(String... args) throws IOException {
-        DataSet          dataset    = DataSet.fromTSDFile(Paths.get("/path/to/some-data.tsd"));
+    public static void main(String... args) throws Exception {
+        DataSet          dataset    = TSDProcessor.load(Paths.get("/path/to/some-data.tsd"));
         RandomClassifier classifier = new RandomClassifier(dataset, 100, 5, true);
         classifier.run(); // no multithreading yet
     }
@@ -0,0 +1,26 @@
+package classification;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes {@link RandomClassifier}, which draws lines at random.
+ *
+ * @author kevingray
+ */
+public final class RandomClassifierDescriptor extends AbstractAlgorithmDescriptor {
+
+    public RandomClassifierDescriptor() {
+        super("random-classifier", "Random Classifier", TaskType.CLASSIFICATION,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new RandomClassifier(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                    values.get(CONTINUOUS_RUN));
+    }
+}
@@ -0,0 +1,45 @@
+package clustering;
+
+import dataprocessors.DataSet;
+
+/**
+ * K-Means with Hamerly's bounds: the same clusters as {@link KMeansClusterer}, iteration for iteration, with most of the
+ * point-to-centroid distances skipped once the centroids start to settle. How many distances each iteration computed
+ * and saved is kept for checking the speedup on a given data set.
+ *
+ * @author kevingray
+ */
+public class HamerlyKMeansClusterer extends KMeansClusterer {
+
+    private volatile long lastComputed;
+    private volatile long lastSaved;
+    private volatile long totalComputed;
+    private volatile long totalSaved;
+
+    public HamerlyKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue,
+                                  int numberOfClusters) {
+        super(dataset, maxIterations, updateInterval, tocontinue, numberOfClusters);
+    }
+
+    /** @return the number of distances the last iteration computed */
+    public long getLastDistancesComputed() { return lastComputed; }
+
+    /** @return the number of distances the last iteration skipped, next to plain K-Means */
+    public long getLastDistancesSaved()    { return lastSaved; }
+
+    /** @return the number of distances computed over the whole run */
+    public long getDistancesComputed()     { return totalComputed; }
+
+    /** @return the number of distances skipped over the whole run */
+    public long getDistancesSaved()        { return totalSaved; }
+
+    @Override
+    protected int step(KMeansEngine engine) {
+        int changed = engine.iterateBounded();
+        lastComputed = engine.getDistancesComputed();
+        lastSaved = engine.getDistancesSaved();
+        totalComputed += lastComputed;
+        totalSaved += lastSaved;
+        return changed;
+    }
+}
@@ -0,0 +1,26 @@
+package clustering;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes {@link HamerlyKMeansClusterer}.
+ *
+ * @author kevingray
+ */
+public final class HamerlyKMeansDescriptor extends AbstractAlgorithmDescriptor {
+
+    public HamerlyKMeansDescriptor() {
+        super("hamerly-kmeans", "Hamerly K Means Clusterer", TaskType.CLUSTERING,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, CLUSTERS, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new HamerlyKMeansClusterer(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                          values.get(CONTINUOUS_RUN), values.get(CLUSTERS));
+    }
+}
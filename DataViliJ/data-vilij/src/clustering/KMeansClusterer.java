@@ -1,45 +1,31 @@
 package clustering;
 
 import algorithms.Clusterer;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
 import dataprocessors.DataSet;
-import javafx.geometry.Point2D;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import javafx.application.Platform;
-import javafx.scene.chart.XYChart;
-import ui.AppUI;
-import static ui.AppUI.getGlobalTimer;
-import static ui.AppUI.incrementGlobalTimer;
-import static ui.AppUI.resetFlag;
-import static ui.AppUI.resetGlobalTimer;
-import static ui.AppUI.runInProgress;
-import static ui.AppUI.setRunInProgress;
-import vilij.templates.ApplicationTemplate;
 
 /**
+ * Runs K-Means through a {@link KMeansEngine} on the coordinate columns of the data set. Cluster labels are only made
+ * when an iteration is shown and when the run ends, on a copy of the data set. The centroids start out seeded by k-means++.
+ * The run ends early once an iteration moves no instance to another cluster, since every later one would do the same.
+ *
  * @author Ritwik Banerjee
  */
 public class KMeansClusterer extends Clusterer {
 
-    private DataSet       dataset;
-    private List<Point2D> centroids;
+    private DataSet      dataset;
+    private KMeansEngine engine;
 
     private final int           maxIterations;
     private final int           updateInterval;
     private final AtomicBoolean tocontinue;
-    public  ApplicationTemplate template;
 
-    public KMeansClusterer() {
-        super(0);
-        this.dataset = new DataSet();
-        this.maxIterations = 1;
-        this.updateInterval = 1;
-        this.tocontinue = new AtomicBoolean(true);
-    }
+    private volatile boolean converged;
+
     public KMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue, int numberOfClusters) {
         super(numberOfClusters);
         this.dataset = dataset;
@@ -57,131 +43,60 @@ public class KMeansClusterer extends Clusterer {
     @Override
     public boolean tocontinue() { return tocontinue.get(); }
 
+    /** @return whether the last run ended because the clusters stopped changing */
+    public boolean hasConverged() { return converged; }
+
     @Override
     public void run() {
-        AppUI ui = (AppUI) template.getUIComponent();
-        initializeCentroids();
-        int iteration = 0;
-        while (iteration++ < maxIterations) {
-            incrementGlobalTimer();
-            assignLabels();
-            recomputeCentroids();
+        RunHandle run = RunHandle.current();
+        RunSnapshot shown = RunSnapshot.unchanged();
+        engine = new KMeansEngine(dataset.getXColumn(), dataset.getYColumn(), dataset.size(), numberOfClusters);
+        engine.seed(newRandom());
+        converged = false;
+        while (run.getIteration() < maxIterations && !run.isCancelled() && !converged) {
+            run.nextIteration();
+            converged = step(engine) == 0;
             
-            if(getGlobalTimer() % updateInterval == 0) {
-                
-                Runnable updateUITask = () -> {
-                    ui.clearChart();
-                    List<String> newLabels = new ArrayList(dataset.getLabels().values());
-                    for(String nL: newLabels) {
-                        XYChart.Series<Number, Number> series = new XYChart.Series<>();
-                        series.setName(nL);
-                        dataset.getLabels().entrySet().stream().filter(entry -> entry.getValue().equals(nL)).forEach(entry -> {
-                            Point2D point = dataset.getLocations().get(entry.getKey());
-                            series.getData().add(new XYChart.Data<>(point.getX(), point.getY()));
-                        });
-                        Platform.runLater(() -> ui.addSeriesToChart(series));
-                    }
-                };
+            if(!run.isMaxSpeed() && run.getIteration() % updateInterval == 0) {
                 
-                Platform.runLater(() -> {
-                    ui.clearChart();
-                    Thread updateUIThread = new Thread(updateUITask);
-                    updateUIThread.start();
-                });
+                shown = RunSnapshot.of(labelled(dataset, engine.getAssignment(), numberOfClusters));
+                run.publish(shown);
                 
-                if(!tocontinue()) {
-                    setRunInProgress(false);
-                    Platform.runLater(() -> {
-                        ui.disableRunButton(false);
-                        ui.disableScreenshotButton(false);
-                    });
-                    
-                    while(!runInProgress()) {
-                        try {
-                        //System.out.println("waiting");
-                        Thread.sleep(1000);
-                        } catch (InterruptedException ex) {
-                            
-                        }
-                    }
-                    Platform.runLater(() -> {
-                        ui.disableScreenshotButton(true);
-                    });
+                if(!tocontinue() || run.isPauseRequested()) {
+                    if(!run.pauseHere(shown.in(RunSnapshot.Phase.PAUSED)))
+                        break;
+                    run.publish(shown);
                 }
-                Platform.runLater(() -> {
-                    ui.disableRunButton(true);
-                });      
                 
             }
             
-            try {
-                Thread.sleep(100);
-            } catch (Exception e) {
-                
-            }
             
         }
-        Platform.runLater(() -> {
-            ui.disableScreenshotButton(false);
-            ui.disableRunButton(false);
-        });
-        setRunInProgress(false);
-        resetGlobalTimer();
-        resetFlag();
+        if(run.getIteration() > 0)
+            output = labelled(dataset, engine.getAssignment(), numberOfClusters);
+        if((run.isMaxSpeed() || converged) && output != null)
+            shown = RunSnapshot.of(output);
+        run.publish(shown.in(RunSnapshot.Phase.FINISHED));
     }
 
-    private void initializeCentroids() {
-        Set<String>  chosen        = new HashSet<>();
-        List<String> instanceNames = new ArrayList<>(dataset.getLabels().keySet());
-        Random       r             = new Random();
-        while (chosen.size() < numberOfClusters) {
-            int i = r.nextInt(instanceNames.size());
-            while (chosen.contains(instanceNames.get(i)))
-                ++i;
-            chosen.add(instanceNames.get(i));
-        }
-        centroids = chosen.stream().map(name -> dataset.getLocations().get(name)).collect(Collectors.toList());
-        //tocontinue.set(true);
-    }
-
-    private void assignLabels() {
-        dataset.getLocations().forEach((instanceName, location) -> {
-            double minDistance      = Double.MAX_VALUE;
-            int    minDistanceIndex = -1;
-            for (int i = 0; i < centroids.size(); i++) {
-                double distance = computeDistance(centroids.get(i), location);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    minDistanceIndex = i;
-                }
-            }
-            dataset.getLabels().put(instanceName, Integer.toString(minDistanceIndex));
-        });
-    }
-
-    private void recomputeCentroids() {
-        //tocontinue.set(false);
-        IntStream.range(0, numberOfClusters).forEach(i -> {
-            AtomicInteger clusterSize = new AtomicInteger();
-            Point2D sum = dataset.getLabels()
-                                 .entrySet()
-                                 .stream()
-                                 .filter(entry -> i == Integer.parseInt(entry.getValue()))
-                                 .map(entry -> dataset.getLocations().get(entry.getKey()))
-                                 .reduce(new Point2D(0, 0), (p, q) -> {
-                                     clusterSize.incrementAndGet();
-                                     return new Point2D(p.getX() + q.getX(), p.getY() + q.getY());
-                                 });
-            Point2D newCentroid = new Point2D(sum.getX() / clusterSize.get(), sum.getY() / clusterSize.get());
-            if (!newCentroid.equals(centroids.get(i))) {
-                centroids.set(i, newCentroid);
-                //tocontinue.set(true);
-            }
-        });
-    }
+    /**
+     * Takes one K-Means iteration.
+     *
+     * @return the number of instances whose cluster changed
+     */
+    protected int step(KMeansEngine engine) { return engine.iterate(); }
 
-    private static double computeDistance(Point2D p, Point2D q) {
-        return Math.sqrt(Math.pow(p.getX() - q.getX(), 2) + Math.pow(p.getY() - q.getY(), 2));
+    /**
+     * @return a copy of the data set with each instance labelled by the number of its cluster, as a string starting
+     *         from <code>"0"</code>
+     */
+    static DataSet labelled(DataSet dataset, int[] assignment, int numberOfClusters) {
+        DataSet copy     = dataset.copy();
+        int[]   labelIds = new int[numberOfClusters];
+        for (int cluster = 0; cluster < numberOfClusters; cluster++)
+            labelIds[cluster] = copy.internLabel(Integer.toString(cluster));
+        for (int i = 0; i < copy.size(); i++)
+            copy.setLabelId(i, labelIds[assignment[i]]);
+        return copy;
     }
-    
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package clustering;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes {@link KMeansClusterer}.
+ *
+ * @author kevingray
+ */
+public final class KMeansDescriptor extends AbstractAlgorithmDescriptor {
+
+    public KMeansDescriptor() {
+        super("kmeans", "K Means Clusterer", TaskType.CLUSTERING,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, CLUSTERS, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new KMeansClusterer(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                   values.get(CONTINUOUS_RUN), values.get(CLUSTERS));
+    }
+}
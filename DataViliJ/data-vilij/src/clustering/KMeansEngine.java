@@ -0,0 +1,593 @@
+package clustering;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The arithmetic of K-Means on primitive arrays: the coordinates of the points, the coordinates of the centroids and
+ * the cluster each point is assigned to. An {@link #iterate iteration} assigns every point to its nearest centroid and
+ * moves each centroid to the mean of its points in a single pass, split over a {@link ForkJoinPool}; each part of the
+ * pass sums its own points per cluster and the sums are merged when the parts join. Nothing is allocated per point, and
+ * labels are left to whoever shows the result.
+ * <p>
+ * The centroids can be {@link #seed seeded} with k-means++, which usually settles in far fewer iterations than
+ * centroids picked at random. A cluster that ends an iteration with no points is given the point farthest from its
+ * centroid instead of being left where it is.
+ * <p>
+ * For mini-batch K-Means, {@link #miniBatch} moves the centroids towards a small random sample of the points instead,
+ * and {@link #assign} gives every point its cluster without moving the centroids.
+ * <p>
+ * {@link #iterateBounded} gives the same result as {@link #iterate} while skipping most distance computations once the
+ * centroids move little, as in Hamerly's algorithm: each point keeps an upper bound on the distance to its own centroid
+ * and a lower bound on the distance to any other, and only when the bounds no longer prove its centroid nearest are
+ * its distances computed again.
+ * <p>
+ * Points with a NaN coordinate have no nearest centroid; they are put in cluster <code>0</code> and do not move it.
+ *
+ * @author kevingray
+ */
+public final class KMeansEngine {
+
+    /** Fewer points than this are assigned on the calling thread. */
+    private static final int SPLIT_SIZE = 1 << 15;
+
+    private final ForkJoinPool pool;
+    private final double[]     xs;
+    private final double[]     ys;
+    private final int          size;
+    private final int          k;
+    private final double[]     centroidXs;
+    private final double[]     centroidYs;
+    private final int[]        assignment;
+    private final int[]        clusterSizes;
+    private final double[]     distances;    // per point, the squared distance to its centroid, or 0 without a location
+    private double             inertia = Double.NaN;
+    private boolean            assigned;
+    private int                reseeded;
+    private long[]             learned;      // per centroid, how many mini-batch points it has moved towards
+    private int[]              batch         = new int[0];
+    private int[]              batchClusters = new int[0];
+    private double[]           upper;        // per point, at least the distance to its own centroid
+    private double[]           lower;        // per point, at most the distance to any other centroid
+    private final double[]     halfGaps;     // per centroid, half the distance to the nearest other centroid
+    private final double[]     moved;        // per centroid, how far it moved since the bounds were last brought up
+    private final double[]     previousXs;
+    private final double[]     previousYs;
+    private boolean            bounded;      // whether the bounds hold, give or take the moves
+    private long               computed;
+
+    /**
+     * @param xs   the x coordinates of the points, of which the first <code>size</code> are clustered; they are read, not
+     *             copied, and must not change while the engine is used
+     * @param ys   the y coordinates, likewise
+     * @param size the number of points
+     * @param k    the number of clusters
+     */
+    public KMeansEngine(double[] xs, double[] ys, int size, int k) {
+        this(xs, ys, size, k, ForkJoinPool.commonPool());
+    }
+
+    KMeansEngine(double[] xs, double[] ys, int size, int k, ForkJoinPool pool) {
+        if (k < 1)
+            throw new IllegalArgumentException("K-Means needs at least one cluster.");
+        this.pool = pool;
+        this.xs = xs;
+        this.ys = ys;
+        this.size = size;
+        this.k = k;
+        this.centroidXs = new double[k];
+        this.centroidYs = new double[k];
+        this.assignment = new int[size];
+        this.clusterSizes = new int[k];
+        this.distances = new double[size];
+        this.halfGaps = new double[k];
+        this.moved = new double[k];
+        this.previousXs = new double[k];
+        this.previousYs = new double[k];
+    }
+
+    public int size()                       { return size; }
+
+    public int getNumberOfClusters()        { return k; }
+
+    public double getCentroidX(int cluster) { return centroidXs[cluster]; }
+
+    public double getCentroidY(int cluster) { return centroidYs[cluster]; }
+
+    public void setCentroid(int cluster, double x, double y) {
+        centroidXs[cluster] = x;
+        centroidYs[cluster] = y;
+        bounded = false;
+    }
+
+    /** @return the cluster of each point, as of the last iteration; not to be changed */
+    public int[] getAssignment() { return assignment; }
+
+    /** @return how many times an empty cluster has been given a point, over all iterations */
+    public int getReseeded() { return reseeded; }
+
+    /** @return how many point-to-centroid distances the last iteration computed */
+    public long getDistancesComputed() { return computed; }
+
+    /** @return how many point-to-centroid distances the last iteration did without, next to a plain iteration */
+    public long getDistancesSaved() { return (long) size * k - computed; }
+
+    /** @return how many points the last iteration assigned to the cluster */
+    public int getClusterSize(int cluster) { return clusterSizes[cluster]; }
+
+    /**
+     * @return the sum of the squared distances from the points to the centroids they were assigned to by the last
+     *         iteration, or NaN before the first
+     */
+    public double getInertia() { return inertia; }
+
+    /**
+     * Places the centroids by k-means++: the first at a point picked uniformly, and each of the others at a point picked
+     * with probability proportional to its squared distance from the nearest centroid placed so far. The distances are
+     * kept from one centroid to the next, so each centroid takes one pass over the points, split over the pool.
+     * Centroids that cannot be placed apart from the others, because there are fewer distinct points than clusters,
+     * are placed on points picked uniformly.
+     */
+    public void seed(Random random) {
+        int located = 0;
+        for (int i = 0; i < size; i++) {
+            if (located(i))
+                located++;
+        }
+        if (located == 0)
+            return;
+        int first = pick(random, located);
+        setCentroid(0, xs[first], ys[first]);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int cluster = 1; cluster < k; cluster++) {
+            double total = size < SPLIT_SIZE ? new Nearer(0, size, cluster - 1).compute()
+                                             : pool.invoke(new Nearer(0, size, cluster - 1));
+            int    next  = total > 0 ? pickByDistance(random.nextDouble() * total) : pick(random, located);
+            setCentroid(cluster, xs[next], ys[next]);
+        }
+    }
+
+    /**
+     * Assigns every point to its nearest centroid and moves each centroid to the mean of its points. A cluster left with
+     * no points takes the point farthest from its centroid among the clusters of more than one point.
+     *
+     * @return the number of points whose cluster changed; every point counts on the first iteration
+     */
+    public int iterate() {
+        Sums sums = assignAll();
+        bounded = false;
+        computed = sums.computed;
+        for (int cluster = 0; cluster < k; cluster++) {
+            clusterSizes[cluster] = sums.counts[cluster];
+            if (sums.counts[cluster] > 0) {
+                centroidXs[cluster] = sums.xs[cluster] / sums.counts[cluster];
+                centroidYs[cluster] = sums.ys[cluster] / sums.counts[cluster];
+            }
+        }
+        inertia = sums.inertia;
+        int changed = sums.changed;
+        for (int cluster = 0; cluster < k; cluster++) {
+            if (clusterSizes[cluster] == 0 && reseed(cluster) && assigned)
+                changed++; // on the first iteration the point was already counted
+        }
+        assigned = true;
+        return changed;
+    }
+
+    /**
+     * Does what {@link #iterate} does, with the same assignments and centroids, but uses the distance bounds kept since
+     * the last bounded iteration to skip the distances that cannot change a point's cluster. The first bounded
+     * iteration, and the first after anything else moved the centroids, computes every distance to set up the bounds.
+     *
+     * @return the number of points whose cluster changed; every point counts on the first iteration
+     */
+    public int iterateBounded() {
+        if (upper == null) {
+            upper = new double[size];
+            lower = new double[size];
+        }
+        for (int cluster = 0; cluster < k; cluster++) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int other = 0; other < k; other++) {
+                if (other != cluster)
+                    nearest = Math.min(nearest, Math.hypot(centroidXs[cluster] - centroidXs[other],
+                                                           centroidYs[cluster] - centroidYs[other]));
+            }
+            halfGaps[cluster] = nearest / 2;
+        }
+        Sums sums = size < SPLIT_SIZE ? new Bound(0, size, bounded).compute()
+                                      : pool.invoke(new Bound(0, size, bounded));
+        computed = sums.computed;
+        System.arraycopy(centroidXs, 0, previousXs, 0, k);
+        System.arraycopy(centroidYs, 0, previousYs, 0, k);
+        inertia = 0;
+        for (int cluster = 0; cluster < k; cluster++) {
+            // the squared distances to the centroid the points were assigned to, summed from the points' own sums
+            double cx    = centroidXs[cluster];
+            double cy    = centroidYs[cluster];
+            int    count = sums.counts[cluster];
+            inertia += sums.squares[cluster] - 2 * (cx * sums.xs[cluster] + cy * sums.ys[cluster])
+                       + count * (cx * cx + cy * cy);
+            clusterSizes[cluster] = count;
+            if (count > 0) {
+                centroidXs[cluster] = sums.xs[cluster] / count;
+                centroidYs[cluster] = sums.ys[cluster] / count;
+            }
+            moved[cluster] = Math.hypot(centroidXs[cluster] - cx, centroidYs[cluster] - cy);
+        }
+        inertia = Math.max(0, inertia);
+        bounded = true;
+        int changed = sums.changed;
+        for (int cluster = 0; cluster < k; cluster++) {
+            if (clusterSizes[cluster] == 0) {
+                if (bounded)
+                    measureDistances();
+                if (reseed(cluster) && assigned)
+                    changed++;
+                bounded = false;
+            }
+        }
+        assigned = true;
+        return changed;
+    }
+
+    /**
+     * Assigns every point to its nearest centroid, leaving the centroids where they are, as is done to show the result
+     * of mini-batch K-Means.
+     *
+     * @return the number of points whose cluster changed; every point counts the first time
+     */
+    public int assign() {
+        Sums sums = assignAll();
+        bounded = false;
+        computed = sums.computed;
+        System.arraycopy(sums.counts, 0, clusterSizes, 0, k);
+        inertia = sums.inertia;
+        assigned = true;
+        return sums.changed;
+    }
+
+    /**
+     * Takes one step of mini-batch K-Means: picks <code>batchSize</code> points at random, finds the nearest centroid of
+     * each, and then moves each centroid towards its points one at a time. A centroid's step towards a point is one
+     * over the number of points it has moved towards so far, so it stays the mean of all the points it was given and
+     * settles as the steps get smaller. Points without a location are skipped.
+     */
+    public void miniBatch(Random random, int batchSize) {
+        if (size == 0)
+            return;
+        if (learned == null)
+            learned = new long[k];
+        if (batch.length < batchSize) {
+            batch = new int[batchSize];
+            batchClusters = new int[batchSize];
+        }
+        for (int b = 0; b < batchSize; b++) {
+            int i = random.nextInt(size);
+            batch[b] = i;
+            batchClusters[b] = nearest(xs[i], ys[i]);
+        }
+        for (int b = 0; b < batchSize; b++) {
+            int cluster = batchClusters[b];
+            if (cluster < 0)
+                continue;
+            double step = 1.0 / ++learned[cluster];
+            bounded = false;
+            centroidXs[cluster] += step * (xs[batch[b]] - centroidXs[cluster]);
+            centroidYs[cluster] += step * (ys[batch[b]] - centroidYs[cluster]);
+        }
+    }
+
+    /** Works out the squared distance of each point to the centroid it had before the last bounded iteration moved it. */
+    private void measureDistances() {
+        for (int i = 0; i < size; i++) {
+            double dx = xs[i] - previousXs[assignment[i]];
+            double dy = ys[i] - previousYs[assignment[i]];
+            distances[i] = located(i) ? dx * dx + dy * dy : 0;
+        }
+    }
+
+    private Sums assignAll() {
+        return size < SPLIT_SIZE ? new Assign(0, size).compute() : pool.invoke(new Assign(0, size));
+    }
+
+    /** @return the cluster whose centroid is nearest the point, or <code>-1</code> if the point has no location */
+    private int nearest(double x, double y) {
+        int    nearest = -1;
+        double best    = Double.POSITIVE_INFINITY;
+        for (int cluster = 0; cluster < k; cluster++) {
+            double dx       = x - centroidXs[cluster];
+            double dy       = y - centroidYs[cluster];
+            double distance = dx * dx + dy * dy;
+            if (distance < best) {
+                best = distance;
+                nearest = cluster;
+            }
+        }
+        return nearest;
+    }
+
+    private boolean located(int i) {
+        return !Double.isNaN(xs[i]) && !Double.isNaN(ys[i]);
+    }
+
+    /** @return the index of the point picked uniformly among the <code>located</code> points with a location */
+    private int pick(Random random, int located) {
+        int n = random.nextInt(located);
+        for (int i = 0; ; i++) {
+            if (located(i) && n-- == 0)
+                return i;
+        }
+    }
+
+    /** @return the index of the point at which the running sum of the distances first passes the target */
+    private int pickByDistance(double target) {
+        int last = -1;
+        for (int i = 0; i < size; i++) {
+            if (distances[i] > 0) {
+                last = i;
+                target -= distances[i];
+                if (target < 0)
+                    return i;
+            }
+        }
+        return last; // rounding left the target just short of the total
+    }
+
+    /** Moves the point farthest from its centroid into an empty cluster, taking it out of its own cluster's mean. */
+    private boolean reseed(int empty) {
+        int farthest = -1;
+        for (int i = 0; i < size; i++) {
+            if (clusterSizes[assignment[i]] > 1 && (farthest < 0 || distances[i] > distances[farthest]))
+                farthest = i;
+        }
+        if (farthest < 0 || distances[farthest] == 0)
+            return false;
+        int    from  = assignment[farthest];
+        int    count = clusterSizes[from];
+        centroidXs[from] = (centroidXs[from] * count - xs[farthest]) / (count - 1);
+        centroidYs[from] = (centroidYs[from] * count - ys[farthest]) / (count - 1);
+        clusterSizes[from]--;
+        setCentroid(empty, xs[farthest], ys[farthest]);
+        clusterSizes[empty] = 1;
+        assignment[farthest] = empty;
+        inertia -= distances[farthest];
+        distances[farthest] = 0;
+        reseeded++;
+        return true;
+    }
+
+    /** The per-cluster sums of part of an iteration, merged as the parts join. */
+    private static final class Sums {
+
+        final double[] xs;
+        final double[] ys;
+        final double[] squares;  // the sums of x * x + y * y, for the bounded iteration
+        final int[]    counts;
+        double         inertia;
+        int            changed;
+        long           computed;
+
+        Sums(int k) {
+            xs = new double[k];
+            ys = new double[k];
+            squares = new double[k];
+            counts = new int[k];
+        }
+
+        Sums add(Sums other) {
+            for (int cluster = 0; cluster < xs.length; cluster++) {
+                xs[cluster] += other.xs[cluster];
+                ys[cluster] += other.ys[cluster];
+                squares[cluster] += other.squares[cluster];
+                counts[cluster] += other.counts[cluster];
+            }
+            inertia += other.inertia;
+            changed += other.changed;
+            computed += other.computed;
+            return this;
+        }
+    }
+
+    /** Assigns a range of points, splitting it in two while it is large, and returns its sums. */
+    private final class Assign extends RecursiveTask<Sums> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Assign(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Sums compute() {
+            if (to - from > SPLIT_SIZE) {
+                int    middle = (from + to) >>> 1;
+                Assign low    = new Assign(from, middle);
+                low.fork();
+                Sums high = new Assign(middle, to).compute();
+                return low.join().add(high);
+            }
+            Sums sums = new Sums(k);
+            for (int i = from; i < to; i++) {
+                double x       = xs[i];
+                double y       = ys[i];
+                int    nearest = -1;
+                double best    = Double.POSITIVE_INFINITY;
+                for (int cluster = 0; cluster < k; cluster++) {
+                    double dx       = x - centroidXs[cluster];
+                    double dy       = y - centroidYs[cluster];
+                    double distance = dx * dx + dy * dy;
+                    if (distance < best) {
+                        best = distance;
+                        nearest = cluster;
+                    }
+                }
+                int cluster = Math.max(nearest, 0);
+                sums.computed += k;
+                if (!assigned || assignment[i] != cluster)
+                    sums.changed++;
+                assignment[i] = cluster;
+                if (nearest < 0) {
+                    distances[i] = 0;
+                    continue;
+                }
+                distances[i] = best;
+                sums.xs[cluster] += x;
+                sums.ys[cluster] += y;
+                sums.counts[cluster]++;
+                sums.inertia += best;
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Assigns a range of points using their distance bounds, splitting it in two while it is large, and returns its
+     * sums. The bounds are first moved by how far the centroids moved: the upper bound grows by its own centroid's move
+     * and the lower bound shrinks by the largest move of any other centroid.
+     */
+    private final class Bound extends RecursiveTask<Sums> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int     from;
+        private final int     to;
+        private final boolean useBounds;
+
+        Bound(int from, int to, boolean useBounds) {
+            this.from = from;
+            this.to = to;
+            this.useBounds = useBounds;
+        }
+
+        @Override
+        protected Sums compute() {
+            if (to - from > SPLIT_SIZE) {
+                int   middle = (from + to) >>> 1;
+                Bound low    = new Bound(from, middle, useBounds);
+                low.fork();
+                Sums high = new Bound(middle, to, useBounds).compute();
+                return low.join().add(high);
+            }
+            int    farthestMover = 0;
+            double largestMove   = 0;
+            double secondMove    = 0;
+            for (int cluster = 0; cluster < k; cluster++) {
+                if (moved[cluster] > largestMove) {
+                    secondMove = largestMove;
+                    largestMove = moved[cluster];
+                    farthestMover = cluster;
+                } else if (moved[cluster] > secondMove) {
+                    secondMove = moved[cluster];
+                }
+            }
+            Sums sums = new Sums(k);
+            for (int i = from; i < to; i++) {
+                double x = xs[i];
+                double y = ys[i];
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    if (!assigned || assignment[i] != 0)
+                        sums.changed++;
+                    assignment[i] = 0;
+                    continue;
+                }
+                int cluster = assignment[i];
+                if (!useBounds || !keeps(i, x, y, cluster, sums, cluster == farthestMover ? secondMove : largestMove))
+                    cluster = nearestWithBounds(i, x, y, sums);
+                if (!assigned || assignment[i] != cluster)
+                    sums.changed++;
+                assignment[i] = cluster;
+                sums.xs[cluster] += x;
+                sums.ys[cluster] += y;
+                sums.squares[cluster] += x * x + y * y;
+                sums.counts[cluster]++;
+            }
+            return sums;
+        }
+
+        /** Moves the bounds of a point and tells whether they, or failing that its own distance, prove it stays. */
+        private boolean keeps(int i, double x, double y, int cluster, Sums sums, double othersMove) {
+            upper[i] += moved[cluster];
+            lower[i] -= othersMove;
+            double margin = Math.max(halfGaps[cluster], lower[i]);
+            if (upper[i] < margin)
+                return true;
+            upper[i] = Math.hypot(x - centroidXs[cluster], y - centroidYs[cluster]);
+            sums.computed++;
+            return upper[i] < margin;
+        }
+
+        /** Finds the nearest centroid as a plain iteration does and sets the point's bounds from scratch. */
+        private int nearestWithBounds(int i, double x, double y, Sums sums) {
+            int    nearest = 0;
+            double best    = Double.POSITIVE_INFINITY;
+            double second  = Double.POSITIVE_INFINITY;
+            for (int cluster = 0; cluster < k; cluster++) {
+                double dx       = x - centroidXs[cluster];
+                double dy       = y - centroidYs[cluster];
+                double distance = dx * dx + dy * dy;
+                if (distance < best) {
+                    second = best;
+                    best = distance;
+                    nearest = cluster;
+                } else if (distance < second) {
+                    second = distance;
+                }
+            }
+            sums.computed += k;
+            upper[i] = Math.sqrt(best);
+            lower[i] = Math.sqrt(second);
+            return nearest;
+        }
+    }
+
+    /**
+     * Brings the distance of each point in a range down to its distance from a newly placed centroid, if that is
+     * nearer, and returns the sum of the distances, splitting the range in two while it is large.
+     */
+    private final class Nearer extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int cluster;
+
+        Nearer(int from, int to, int cluster) {
+            this.from = from;
+            this.to = to;
+            this.cluster = cluster;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > SPLIT_SIZE) {
+                int    middle = (from + to) >>> 1;
+                Nearer low    = new Nearer(from, middle, cluster);
+                low.fork();
+                double high = new Nearer(middle, to, cluster).compute();
+                return low.join() + high;
+            }
+            double cx    = centroidXs[cluster];
+            double cy    = centroidYs[cluster];
+            double total = 0;
+            for (int i = from; i < to; i++) {
+                double dx       = xs[i] - cx;
+                double dy       = ys[i] - cy;
+                double distance = dx * dx + dy * dy;
+                if (distance < distances[i])
+                    distances[i] = distance;
+                else if (!(distance >= 0))
+                    distances[i] = 0; // no location
+                total += distances[i];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package clustering;
+
+import algorithms.Clusterer;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
+import dataprocessors.DataSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mini-batch K-Means: each iteration moves the centroids towards a random batch of instances instead of towards all of
+ * them, so an iteration costs the same however large the data set is. The clusters of all the instances are only
+ * worked out when an iteration is shown and when the run ends. The result comes close to that of {@link KMeansClusterer} in a fraction of
+ * the time on large data sets.
+ *
+ * @author kevingray
+ */
+public class MiniBatchKMeansClusterer extends Clusterer {
+
+    /** The number of instances each iteration samples, unless another is given. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private DataSet      dataset;
+    private KMeansEngine engine;
+
+    private final int           maxIterations;
+    private final int           updateInterval;
+    private final int           batchSize;
+    private final AtomicBoolean tocontinue;
+
+    public MiniBatchKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue,
+                                    int numberOfClusters) {
+        this(dataset, maxIterations, updateInterval, tocontinue, numberOfClusters, DEFAULT_BATCH_SIZE);
+    }
+
+    public MiniBatchKMeansClusterer(DataSet dataset, int maxIterations, int updateInterval, boolean tocontinue,
+                                    int numberOfClusters, int batchSize) {
+        super(numberOfClusters);
+        if (batchSize < 1)
+            throw new IllegalArgumentException("A mini-batch needs at least one instance.");
+        this.dataset = dataset;
+        this.maxIterations = maxIterations;
+        this.updateInterval = updateInterval;
+        this.batchSize = batchSize;
+        this.tocontinue = new AtomicBoolean(tocontinue);
+    }
+
+    @Override
+    public int getMaxIterations() { return maxIterations; }
+
+    @Override
+    public int getUpdateInterval() { return updateInterval; }
+
+    @Override
+    public boolean tocontinue() { return tocontinue.get(); }
+
+    public int getBatchSize() { return batchSize; }
+
+    @Override
+    public void run() {
+        RunHandle run = RunHandle.current();
+        RunSnapshot shown = RunSnapshot.unchanged();
+        engine = new KMeansEngine(dataset.getXColumn(), dataset.getYColumn(), dataset.size(), numberOfClusters);
+        Random random = newRandom();
+        engine.seed(random);
+        while (run.getIteration() < maxIterations && !run.isCancelled()) {
+            run.nextIteration();
+            engine.miniBatch(random, batchSize);
+
+            if(!run.isMaxSpeed() && run.getIteration() % updateInterval == 0) {
+
+                engine.assign();
+                shown = RunSnapshot.of(KMeansClusterer.labelled(dataset, engine.getAssignment(), numberOfClusters));
+                run.publish(shown);
+
+                if(!tocontinue() || run.isPauseRequested()) {
+                    if(!run.pauseHere(shown.in(RunSnapshot.Phase.PAUSED)))
+                        break;
+                    run.publish(shown);
+                }
+
+            }
+
+
+        }
+        if(run.getIteration() > 0) {
+            engine.assign();
+            output = KMeansClusterer.labelled(dataset, engine.getAssignment(), numberOfClusters);
+        }
+        if(run.isMaxSpeed() && output != null)
+            shown = RunSnapshot.of(output);
+        run.publish(shown.in(RunSnapshot.Phase.FINISHED));
+    }
+}
@@ -0,0 +1,26 @@
+package clustering;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes {@link MiniBatchKMeansClusterer}.
+ *
+ * @author kevingray
+ */
+public final class MiniBatchKMeansDescriptor extends AbstractAlgorithmDescriptor {
+
+    public MiniBatchKMeansDescriptor() {
+        super("minibatch-kmeans", "Mini-Batch K Means Clusterer", TaskType.CLUSTERING,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, CLUSTERS, BATCH_SIZE, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new MiniBatchKMeansClusterer(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                            values.get(CONTINUOUS_RUN), values.get(CLUSTERS), values.get(BATCH_SIZE));
+    }
+}
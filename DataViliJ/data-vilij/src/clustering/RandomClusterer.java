@@ -6,22 +6,11 @@
 package clustering;
 
 import algorithms.Clusterer;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
 import dataprocessors.DataSet;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
-import javafx.application.Platform;
-import javafx.geometry.Point2D;
-import javafx.scene.chart.XYChart;
-import ui.AppUI;
-import static ui.AppUI.getGlobalTimer;
-import static ui.AppUI.incrementGlobalTimer;
-import static ui.AppUI.resetFlag;
-import static ui.AppUI.resetGlobalTimer;
-import static ui.AppUI.runInProgress;
-import static ui.AppUI.setRunInProgress;
-import vilij.templates.ApplicationTemplate;
 
 /**
  *
@@ -30,8 +19,6 @@ import vilij.templates.ApplicationTemplate;
 public class RandomClusterer extends Clusterer {
 
     
-    private static final Random RAND = new Random();
-    public ApplicationTemplate template;
 
     @SuppressWarnings("FieldCanBeLocal")
     
@@ -42,14 +29,6 @@ public class RandomClusterer extends Clusterer {
 
     private final AtomicBoolean tocontinue;
     
-    public RandomClusterer() {
-        super(0);
-        this.dataset = new DataSet();
-        this.maxIterations = 1;
-        this.updateInterval = 1;
-        this.tocontinue = new AtomicBoolean(true);
-    }
-    
     public RandomClusterer(DataSet dataset,
                            int maxIterations,
                            int updateInterval,
@@ -80,83 +59,43 @@ public class RandomClusterer extends Clusterer {
     @Override
     public void run() {
         
-        AppUI ui = ((AppUI) template.getUIComponent());
+        RunHandle run = RunHandle.current();
+        RunSnapshot shown = RunSnapshot.unchanged();
+        Random random = newRandom();
         
         String[] labels = new String[numberOfClusters];
         for(int i = 0; i < numberOfClusters; i++) {
             labels[i] = Integer.toString(i);
         }
-        final DataSet clusteredData = dataset;
+        final DataSet clusteredData = dataset.copy(); // the data set may be shared with other runs
         
-        for (int i = 1; i <= maxIterations; i++) {
-            incrementGlobalTimer();
+        for (int i = 1; i <= maxIterations && !run.isCancelled(); i++) {
+            run.nextIteration();
             for(String name: clusteredData.getLabels().keySet()) {
-                int randInt = RAND.nextInt(numberOfClusters);
+                int randInt = random.nextInt(numberOfClusters);
                 clusteredData.updateLabel(name, labels[randInt]);
             }
                         
-            if(getGlobalTimer() % updateInterval == 0) {
-                
-                Runnable updateUITask = () -> {
-                    ui.clearChart();
-                    List<String> newLabels = new ArrayList(clusteredData.getLabels().values());
-                    for(String nL: newLabels) {
-                        XYChart.Series<Number, Number> series = new XYChart.Series<>();
-                        series.setName(nL);
-                        clusteredData.getLabels().entrySet().stream().filter(entry -> entry.getValue().equals(nL)).forEach(entry -> {
-                            Point2D point = clusteredData.getLocations().get(entry.getKey());
-                            series.getData().add(new XYChart.Data<>(point.getX(), point.getY()));
-                        });
-                        Platform.runLater(() -> ui.addSeriesToChart(series));
-                        
-                    }
-                };
+            if(!run.isMaxSpeed() && run.getIteration() % updateInterval == 0) {
                 
-                Platform.runLater(() -> {
-                    ui.clearChart();
-                    Thread updateUIThread = new Thread(updateUITask);
-                    updateUIThread.start();
-                });
+                shown = RunSnapshot.of(clusteredData.copy());
+                run.publish(shown);
                 
-                if(!tocontinue()) {
-                    setRunInProgress(false);
-                    Platform.runLater(() -> {
-                        ui.disableRunButton(false);
-                        ui.disableScreenshotButton(false);
-                    });
-                    
-                    while(!runInProgress()) {
-                        try {
-                        //System.out.println("waiting");
-                        Thread.sleep(1000);
-                        } catch (InterruptedException ex) {
-                            
-                        }
-                    }
-                    Platform.runLater(() -> {
-                        ui.disableScreenshotButton(true);
-                    });
+                if(!tocontinue() || run.isPauseRequested()) {
+                    if(!run.pauseHere(shown.in(RunSnapshot.Phase.PAUSED)))
+                        break;
+                    run.publish(shown);
                 }
-                Platform.runLater(() -> {
-                    ui.disableRunButton(true);
-                });      
                 
             }
             
-            try {
-                Thread.sleep(100);
-            } catch (Exception e) {
-                
-            }
 
         }
-        Platform.runLater(() -> {
-            ui.disableScreenshotButton(false);
-            ui.disableRunButton(false);
-        });
-        setRunInProgress(false);
-        resetGlobalTimer();
-        resetFlag();
+        if(run.getIteration() > 0)
+            output = clusteredData.copy();
+        if(run.isMaxSpeed() && output != null)
+            shown = RunSnapshot.of(output);
+        run.publish(shown.in(RunSnapshot.Phase.FINISHED));
     }
     
     
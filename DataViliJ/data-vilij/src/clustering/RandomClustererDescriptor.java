@@ -0,0 +1,26 @@
+package clustering;
+
+import algorithms.AbstractAlgorithmDescriptor;
+import algorithms.Algorithm;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import static algorithms.Parameter.*;
+
+/**
+ * Describes {@link RandomClusterer}, which puts instances in clusters at random.
+ *
+ * @author kevingray
+ */
+public final class RandomClustererDescriptor extends AbstractAlgorithmDescriptor {
+
+    public RandomClustererDescriptor() {
+        super("random-clusterer", "Random Clusterer", TaskType.CLUSTERING,
+              MAX_ITERATIONS, UPDATE_INTERVAL, CONTINUOUS_RUN, CLUSTERS, SEED);
+    }
+
+    @Override
+    protected Algorithm make(DataSet dataSet, ParameterValues values) {
+        return new RandomClusterer(dataSet, values.get(MAX_ITERATIONS), values.get(UPDATE_INTERVAL),
+                                   values.get(CONTINUOUS_RUN), values.get(CLUSTERS));
+    }
+}
@@ -1,8 +1,5 @@
 package dataprocessors;
 
-import static dataprocessors.DataSet.*;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Files;
@@ -11,8 +8,13 @@ import vilij.components.DataComponent;
 import vilij.templates.ApplicationTemplate;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Stream;
 import settings.AppPropertyTypes;
 import vilij.components.Dialog;
 import vilij.components.ErrorDialog;
@@ -31,33 +33,84 @@ public class AppData implements DataComponent {
     private DataSet             dataSet;
     private ApplicationTemplate applicationTemplate;
     private String dataPath = "";
+    private boolean textIsPreview; // whether the text area only shows the first lines of the loaded data set
+    private final TSDEditTracker           editTracker;
+    private final ScheduledExecutorService editExecutor;
+    private ScheduledFuture<?>             pendingEdit;
+
+    /** The number of lines of a loaded file shown in the text area. */
+    private static final int TEXT_AREA_LINES = 10;
+
+    /** How long the text area has to be left alone before its contents are re-validated. */
+    private static final long EDIT_DEBOUNCE_MILLIS = 300;
+
+    /** The most problems listed when input fails to load, and how many of them go on one page of the error dialog. */
+    private static final int MAX_REPORTED_PROBLEMS = 100;
+    private static final int PROBLEMS_PER_PAGE     = 10;
 
     public AppData(ApplicationTemplate applicationTemplate) {
         this.processor = new TSDProcessor();
         this.applicationTemplate = applicationTemplate;
+        this.editTracker = new TSDEditTracker(processor);
+        this.editExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "text-area-validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Called with the new contents of the text area whenever it changes. Once the text has stopped changing for a
+     * moment, the changed lines are re-validated on a background thread, so that {@link #loadData(String)} usually
+     * finds the work already done.
+     */
+    public synchronized void textChanged(String text) {
+        if (textIsPreview)
+            return;
+        if (pendingEdit != null)
+            pendingEdit.cancel(false);
+        pendingEdit = editExecutor.schedule(() -> {
+            try {
+                editTracker.update(text);
+            } catch (Exception e) {
+                // reported when the user is done editing
+            }
+        }, EDIT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelPendingEdit() {
+        if (pendingEdit != null)
+            pendingEdit.cancel(false);
+        pendingEdit = null;
     }
 
     @Override
     public void loadData(Path dataFilePath) {
+        cancelPendingEdit();
         try {
-            FileReader reader = new FileReader(dataFilePath.toString());
-            BufferedReader bufferedReader = new BufferedReader(reader);
-            StringBuilder toWrite = new StringBuilder();
-            toWrite.setLength(0);
-            String line;
-            while((line = bufferedReader.readLine()) != null) {
-                toWrite.append(line).append("\n");
+            StringBuilder preview = new StringBuilder();
+            synchronized (editTracker) {
+                editTracker.processorReplaced();
+                dataSet = processor.load(dataFilePath, isBinary(dataFilePath), preview, TEXT_AREA_LINES);
+                dataSet.buildSpatialIndex(); // here rather than on the first zoom or mouse move over the chart
             }
-            String data = toWrite.toString();
-            processor.dataNameCheck(data);
-            processor.processString(data);
-            loadTextAreaHelper(data);
-            dataSet = fromTSDFile(dataFilePath);
+            textIsPreview = true;
+            loadTextAreaHelper(preview.toString());
             ((AppUI) applicationTemplate.getUIComponent()).setLabels(
                     Integer.toString(processor.getNumInstances()), Integer.toString(processor.getNumLabels()),
                     processor.getLabels(), dataPath);
         } catch (Exception e) {
-            if(e.getMessage().length() > 1) {
+            TSDValidationReport report = null;
+            if (!(e instanceof IOException) && !isBinary(dataFilePath)) {
+                try {
+                    report = new TSDChunkedLoader(processor).validate(dataFilePath, MAX_REPORTED_PROBLEMS);
+                } catch (IOException ex) {
+                    // fall back to the single message below
+                }
+            }
+            if (report != null && !report.isEmpty()) {
+                showReport(report, dataFilePath.toString());
+            } else if(e.getMessage().length() > 1) {
                 ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
                 PropertyManager manager  = applicationTemplate.manager;
                 String errTitle = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
@@ -79,25 +132,22 @@ public class AppData implements DataComponent {
     public boolean loadData(String dataString) {
         AtomicBoolean hadError = new AtomicBoolean(false);
         try {
-            processor.dataNameCheck(dataString);
-            processor.processString(dataString);
-            dataSet = new DataSet();
-            Stream.of(dataString.split("\n"))
-                .forEach((String list) -> {
-                try {
-                    dataSet.addInstance(list);
-                } catch (InvalidDataNameException ex) {
-                    
-                }
-              });
-            //displayData();
-            ((AppUI) applicationTemplate.getUIComponent()).setLabels(
-                    Integer.toString(processor.getNumInstances()), Integer.toString(processor.getNumLabels()),
-                    processor.getLabels(), dataPath);
-            
+            synchronized (editTracker) {
+                editTracker.update(dataString);
+                textIsPreview = false;
+                dataSet = editTracker.getDataSet();
+                //displayData();
+                ((AppUI) applicationTemplate.getUIComponent()).setLabels(
+                        Integer.toString(processor.getNumInstances()), Integer.toString(processor.getNumLabels()),
+                        processor.getLabels(), dataPath);
+            }
             return true;
         } catch (Exception e) {
-            if(e.getMessage().length() > 1) {
+            TSDValidationReport report = new TSDValidator(MAX_REPORTED_PROBLEMS).validate(dataString);
+            if (!report.isEmpty()) {
+                showReport(report, applicationTemplate.manager.getPropertyValue(AppPropertyTypes.TEXT_AREA.name()));
+                hadError.set(true);
+            } else if(e.getMessage().length() > 1) {
                 ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
                 PropertyManager manager  = applicationTemplate.manager;
                 String errTitle = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
@@ -123,27 +173,42 @@ public class AppData implements DataComponent {
     @Override
     public void saveData(Path dataFilePath) {
         AtomicBoolean hadError = new AtomicBoolean(false);
-        try  {
-            processor.dataNameCheck(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
-            processor.processString(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
-        } catch (Exception e) {
-            ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
-            PropertyManager manager  = applicationTemplate.manager;
-            String errTitle = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_TITLE.name());
-            String errMsg = e.getMessage();
-            String errMsg2 = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_MSG.name());
-            String errInput = dataFilePath.toString();
-            dialog.show(errTitle, errMsg + errMsg2 + errInput);
-            hadError.set(true);
+        boolean binary = isBinary(dataFilePath);
+        DataSet toSave = textIsPreview ? dataSet : null;
+        if (toSave == null) {
+            try  {
+                String text = ((AppUI) applicationTemplate.getUIComponent()).getCurrentText();
+                synchronized (editTracker) {
+                    editTracker.update(text);
+                    if (binary)
+                        toSave = editTracker.getDataSet();
+                }
+            } catch (Exception e) {
+                ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+                PropertyManager manager  = applicationTemplate.manager;
+                String errTitle = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_TITLE.name());
+                String errMsg = e.getMessage();
+                String errMsg2 = manager.getPropertyValue(PropertyTypes.SAVE_ERROR_MSG.name());
+                String errInput = dataFilePath.toString();
+                dialog.show(errTitle, errMsg + errMsg2 + errInput);
+                hadError.set(true);
+            }
         }
         if(hadError.get() == false) {
             PrintWriter writer;
             System.out.println("saving");
             try {
-                writer = new PrintWriter(Files.newOutputStream(dataFilePath));
-                writer.write(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
-                writer.flush();
-                writer.close();
+                if (binary) {
+                    TSDBinaryFormat.write(toSave, dataFilePath);
+                } else if (toSave != null) {
+                    // the text area only holds a preview, so the whole data set is written out instead
+                    TSDBinaryFormat.writeTSD(toSave, dataFilePath);
+                } else {
+                    writer = new PrintWriter(Files.newOutputStream(dataFilePath));
+                    writer.write(((AppUI) applicationTemplate.getUIComponent()).getCurrentText());
+                    writer.flush();
+                    writer.close();
+                }
             } catch (IOException ex) {
                 ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
                 PropertyManager manager  = applicationTemplate.manager;
@@ -153,15 +218,31 @@ public class AppData implements DataComponent {
             }
         }
     }
+
+    /** Shows every problem in the report in the error dialog, a page at a time, naming the input they were found in. */
+    private void showReport(TSDValidationReport report, String errInput) {
+        ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+        PropertyManager manager  = applicationTemplate.manager;
+        String          errTitle = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_TITLE.name());
+        String          errMsg2  = manager.getPropertyValue(PropertyTypes.LOAD_ERROR_MSG.name());
+        List<String>    pages    = new ArrayList<>();
+        for (String page : report.toPages(PROBLEMS_PER_PAGE))
+            pages.add(page + "\n" + errMsg2 + errInput);
+        if (report.isTruncated()) {
+            String more = String.format(manager.getPropertyValue(AppPropertyTypes.MORE_PROBLEMS.name()),
+                                        report.getMaxProblems());
+            pages.set(pages.size() - 1, pages.get(pages.size() - 1) + "\n" + more);
+        }
+        dialog.show(errTitle, pages);
+    }
+
+    /** Whether the given file is a binary snapshot rather than plain <code>.tsd</code> text, judged by its extension. */
+    private boolean isBinary(Path dataFilePath) {
+        String extension = applicationTemplate.manager.getPropertyValue(AppPropertyTypes.BINARY_DATA_FILE_EXT.name());
+        return dataFilePath.toString().endsWith(extension);
+    }
     
-    private void loadTextAreaHelper(String dataString) {
-        StringBuilder forTextArea = new StringBuilder(0);
-        Stream.of(dataString.split("\n"))
-                .map(line -> line)
-                .limit(10)
-                .forEach((String line) -> {
-                    forTextArea.append(line).append("\n");
-                });
+    private void loadTextAreaHelper(String preview) {
 //        int count = (int) Stream.of(dataString.split("\n")).count();
 //        if(count > 10) {
 //            ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
@@ -170,17 +251,25 @@ public class AppData implements DataComponent {
 //            String errMsg = manager.getPropertyValue(AppPropertyTypes.LOADING_10_OF.name());
 //            dialog.show(errTitle, errMsg + count);
 //        }
-        ((AppUI) applicationTemplate.getUIComponent()).setCurrentText(forTextArea.toString());
+        ((AppUI) applicationTemplate.getUIComponent()).setCurrentText(preview);
         ((AppUI) applicationTemplate.getUIComponent()).showTextArea(true);
     }
 
     @Override
     public void clear() {
-        processor.clear();
+        cancelPendingEdit();
+        synchronized (editTracker) {
+            processor.clear();
+            editTracker.reset();
+        }
+        textIsPreview = false;
     }
 
     public void displayData() {
-        processor.toChartData(((AppUI) applicationTemplate.getUIComponent()).getChart());
+        AppUI ui = (AppUI) applicationTemplate.getUIComponent();
+        ui.showDataSet(dataSet.copy());
+        ui.addLine(TSDProcessor.AVERAGE_LINE, 0, processor.getAverageY(), processor.getLargestX(),
+                   processor.getAverageY());
     }
     
     public DataSet getData() {
@@ -0,0 +1,165 @@
+package dataprocessors;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Reduces the instances of a data set to what a scatter chart of a given size can actually show. The visible part of
+ * the plane is divided into a grid of cells, each a few pixels across, and each label keeps only the first instance
+ * that falls in each cell. Every label therefore yields at most {@link #getMaxPointsPerSeries()} points however large
+ * the data set is, and as the viewport shrinks the cells cover less of the data until every instance gets a cell of
+ * its own again.
+ *
+ * @author kevingray
+ */
+public final class ChartDownsampler {
+
+    /** A rectangle of the plane, in data coordinates. */
+    public static final class Viewport {
+
+        public final double xMin;
+        public final double xMax;
+        public final double yMin;
+        public final double yMax;
+
+        public Viewport(double xMin, double xMax, double yMin, double yMax) {
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+            this.yMax = yMax;
+        }
+
+        /** @return the smallest viewport that holds the first <code>size</code> points, ignoring NaN coordinates */
+        public static Viewport around(double[] xs, double[] ys, int size) {
+            double xMin = Double.POSITIVE_INFINITY, xMax = Double.NEGATIVE_INFINITY;
+            double yMin = Double.POSITIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                if (xs[i] < xMin) xMin = xs[i];
+                if (xs[i] > xMax) xMax = xs[i];
+                if (ys[i] < yMin) yMin = ys[i];
+                if (ys[i] > yMax) yMax = ys[i];
+            }
+            return size == 0 || xMin > xMax || yMin > yMax ? new Viewport(0, 0, 0, 0)
+                                                           : new Viewport(xMin, xMax, yMin, yMax);
+        }
+
+        boolean contains(double x, double y) {
+            return x >= xMin && x <= xMax && y >= yMin && y <= yMax;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Viewport))
+                return false;
+            Viewport other = (Viewport) o;
+            return Double.compare(xMin, other.xMin) == 0 && Double.compare(xMax, other.xMax) == 0
+                   && Double.compare(yMin, other.yMin) == 0 && Double.compare(yMax, other.yMax) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(xMin) ^ 31 * Double.hashCode(xMax) ^ 961 * Double.hashCode(yMin)
+                   ^ 29791 * Double.hashCode(yMax);
+        }
+    }
+
+    /** About as many nodes per series as a JavaFX chart can lay out without the interface slowing down noticeably. */
+    public static final int DEFAULT_MAX_POINTS_PER_SERIES = 2000;
+
+    /** The smallest cell, in pixels; finer than this adds points the chart cannot tell apart. */
+    private static final double MIN_CELL_PIXELS = 2;
+
+    /**
+     * Below this many instances a pass over all of them is as quick as asking the spatial index; above it, a viewport
+     * covering less than {@link #INDEXED_COVERAGE} of the data goes through the index.
+     */
+    private static final int    INDEXED_MIN_SIZE = 4096;
+    private static final double INDEXED_COVERAGE = 0.5;
+
+    private final int maxPointsPerSeries;
+
+    public ChartDownsampler() {
+        this(DEFAULT_MAX_POINTS_PER_SERIES);
+    }
+
+    /** @param maxPointsPerSeries the most points any one label may yield */
+    public ChartDownsampler(int maxPointsPerSeries) {
+        if (maxPointsPerSeries < 1)
+            throw new IllegalArgumentException("At least one point per series is needed.");
+        this.maxPointsPerSeries = maxPointsPerSeries;
+    }
+
+    public int getMaxPointsPerSeries() { return maxPointsPerSeries; }
+
+    /**
+     * Samples the instances of a data set, as the column-wise {@link #sample} below does. When the viewport shows only
+     * part of a large data set, the instances in it are found through the data set's spatial index instead of looking
+     * at every instance.
+     */
+    public int[][] sample(DataSet dataSet, Viewport viewport, double widthPixels, double heightPixels) {
+        int[] visible = null;
+        if (dataSet.size() >= INDEXED_MIN_SIZE && dataSet.spatialIndex().coverage(viewport) < INDEXED_COVERAGE)
+            visible = dataSet.indicesWithin(viewport);
+        return sample(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.getLabelColumn(), visible,
+                      visible == null ? dataSet.size() : visible.length, dataSet.getLabelTableSize(), viewport,
+                      widthPixels, heightPixels);
+    }
+
+    /**
+     * Picks the instances to draw for a viewport shown in an area of the given size.
+     *
+     * @param xs           the x column
+     * @param ys           the y column
+     * @param labelIds     the label id column, with ids in <code>[0, numLabels)</code>
+     * @param size         the number of instances in the columns
+     * @param numLabels    the number of label ids
+     * @param viewport     the part of the plane that is visible; instances outside it are left out
+     * @param widthPixels  the width of the plot area
+     * @param heightPixels the height of the plot area
+     * @return for each label id, the indices of the instances to draw, in instance order
+     */
+    public int[][] sample(double[] xs, double[] ys, int[] labelIds, int size, int numLabels, Viewport viewport,
+                          double widthPixels, double heightPixels) {
+        return sample(xs, ys, labelIds, null, size, numLabels, viewport, widthPixels, heightPixels);
+    }
+
+    /** Samples the instances whose indices are the first <code>size</code> of <code>subset</code>, or null for all. */
+    private int[][] sample(double[] xs, double[] ys, int[] labelIds, int[] subset, int size, int numLabels,
+                           Viewport viewport, double widthPixels, double heightPixels) {
+        double width      = Math.max(1, widthPixels);
+        double height     = Math.max(1, heightPixels);
+        double cellPixels = Math.max(MIN_CELL_PIXELS, Math.sqrt(width * height / maxPointsPerSeries));
+        int    columns    = Math.max(1, (int) (width / cellPixels));
+        int    rows       = Math.max(1, (int) (height / cellPixels));
+        double xScale     = viewport.xMax > viewport.xMin ? columns / (viewport.xMax - viewport.xMin) : 0;
+        double yScale     = viewport.yMax > viewport.yMin ? rows / (viewport.yMax - viewport.yMin) : 0;
+
+        BitSet[] occupied = new BitSet[numLabels];
+        int[][]  indices  = new int[numLabels][];
+        int[]    counts   = new int[numLabels];
+        for (int s = 0; s < size; s++) {
+            int    i = subset == null ? s : subset[s];
+            double x = xs[i];
+            double y = ys[i];
+            if (!viewport.contains(x, y))
+                continue;
+            int column = Math.min(columns - 1, (int) ((x - viewport.xMin) * xScale));
+            int row    = Math.min(rows - 1, (int) ((y - viewport.yMin) * yScale));
+            int cell   = row * columns + column;
+            int label  = labelIds[i];
+            if (occupied[label] == null) {
+                occupied[label] = new BitSet(columns * rows);
+                indices[label] = new int[16];
+            }
+            if (occupied[label].get(cell))
+                continue;
+            occupied[label].set(cell);
+            if (counts[label] == indices[label].length)
+                indices[label] = Arrays.copyOf(indices[label], counts[label] * 2);
+            indices[label][counts[label]++] = i;
+        }
+        for (int label = 0; label < numLabels; label++)
+            indices[label] = indices[label] == null ? new int[0] : Arrays.copyOf(indices[label], counts[label]);
+        return indices;
+    }
+}
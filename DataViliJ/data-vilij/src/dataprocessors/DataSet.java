@@ -7,12 +7,16 @@ package dataprocessors;
 
 import javafx.geometry.Point2D;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * This class specifies how an algorithm will expect the dataset to be. It is
@@ -21,67 +25,402 @@ import java.util.NoSuchElementException;
  * completely write your own class to represent a set of data instances as long
  * as the algorithm can read from and write into two {@link java.util.Map}
  * objects representing the name-to-label map and the name-to-location (i.e.,
- * the x,y values) map. These two are the {@link DataSet#labels} and
- * {@link DataSet#locations} maps in this class.
+ * the x,y values) map. These two are the {@link DataSet#getLabels()} and
+ * {@link DataSet#getLocations()} maps in this class.
+ * <p>
+ * The instances are stored column by column: the x and y values are kept in
+ * <code>double</code> arrays, and the labels in an <code>int</code> array of
+ * ids into a table of distinct label strings. The two maps are views over these
+ * columns, and algorithms that need to scan every instance can read the columns
+ * directly through {@link #getXColumn()}, {@link #getYColumn()} and
+ * {@link #getLabelColumn()}.
  *
  * @author Ritwik Banerjee
  */
 public class DataSet {
 
-    public static class InvalidDataNameException extends Exception {
+    private static final int INITIAL_CAPACITY = 16;
+    /** How many times the size it was built for a data set may grow to before its spatial index is built again. */
+    private static final int INDEX_GROWTH     = 4;
 
-        private static final String NAME_ERROR_MSG = "All data instance names must start with the @ character.";
+    private int      size;
+    private String[] names;
+    private double[] xs;
+    private double[] ys;
+    private int[]    labelIds;
 
-        public InvalidDataNameException(String name) {
-            super(String.format("Invalid name '%s'." + NAME_ERROR_MSG, name));
-        }
-    }
-
-    private static String nameFormatCheck(String name) throws InvalidDataNameException {
-        if (!name.startsWith("@"))
-            throw new InvalidDataNameException(name);
-        return name;
-    }
+    private Object      locationStamp = new Object(); // replaced whenever an instance is added, moved or removed
+    private SpatialGrid spatialIndex; // built on first use, then kept up to date
+    private boolean     indexShared;  // whether a copy uses the same grid, so it must be copied before an update
 
-    private static Point2D locationOf(String locationString) {
-        String[] coordinateStrings = locationString.trim().split(",");
-        return new Point2D(Double.parseDouble(coordinateStrings[0]), Double.parseDouble(coordinateStrings[1]));
-    }
+    private final Map<String, Integer> nameIndex;
+    private final LabelDictionary      dictionary;
 
-    private Map<String, String>  labels;
-    private Map<String, Point2D> locations;
+    private final Map<String, String>  labels;
+    private final Map<String, Point2D> locations;
 
     /** Creates an empty dataset. */
     public DataSet() {
-        labels = new HashMap<>();
-        locations = new HashMap<>();
+        names = new String[INITIAL_CAPACITY];
+        xs = new double[INITIAL_CAPACITY];
+        ys = new double[INITIAL_CAPACITY];
+        labelIds = new int[INITIAL_CAPACITY];
+        nameIndex = new HashMap<>();
+        dictionary = new LabelDictionary();
+        labels = new LabelsView();
+        locations = new LocationsView();
     }
 
+    /** @return a name-to-label view of this dataset; only the labels of existing instances can be changed through it */
     public Map<String, String> getLabels()     { return labels; }
 
+    /** @return a read-only name-to-location view of this dataset */
     public Map<String, Point2D> getLocations() { return locations; }
 
+    public int size() { return size; }
+
+    /** @return the index of the named instance, or <code>-1</code> if there is no such instance */
+    public int indexOf(String instanceName) {
+        Integer index = nameIndex.get(instanceName);
+        return index == null ? -1 : index;
+    }
+
+    public String getName(int index) { return names[checkedIndex(index)]; }
+
+    public double getX(int index) { return xs[checkedIndex(index)]; }
+
+    public double getY(int index) { return ys[checkedIndex(index)]; }
+
+    public int getLabelId(int index) { return labelIds[checkedIndex(index)]; }
+
+    public String getLabel(int index) { return dictionary.labelOf(labelIds[checkedIndex(index)]); }
+
+    /** @return the label string with the given id */
+    public String labelOf(int labelId) { return dictionary.labelOf(labelId); }
+
+    /** @return the number of distinct label strings that have been given an id */
+    public int getLabelTableSize() { return dictionary.size(); }
+
+    /**
+     * Returns the id of the given label string, giving it a new id if it has not been seen before. Ids are handed out
+     * in order starting from 0 and are never reused.
+     */
+    public int internLabel(String label) { return dictionary.intern(label); }
+
+    /**
+     * The label ids of this data set together with how many instances carry each label. It is kept up to date by
+     * every method that adds, removes or relabels an instance; outside this package it can only be read.
+     */
+    public LabelDictionary getLabelDictionary() { return dictionary; }
+
+    /**
+     * The x values of the instances, in instance order. This is the backing array itself, so only the first
+     * {@link #size()} entries are meaningful and it must not be modified.
+     */
+    public double[] getXColumn() { return xs; }
+
+    /** The y values of the instances, with the same caveats as {@link #getXColumn()}. */
+    public double[] getYColumn() { return ys; }
+
+    /** The label ids of the instances, with the same caveats as {@link #getXColumn()}. */
+    public int[] getLabelColumn() { return labelIds; }
+
+    /**
+     * Finds the instances inside a viewport through a spatial index, looking at only the instances near it.
+     *
+     * @return their indices, in increasing order
+     */
+    public int[] indicesWithin(ChartDownsampler.Viewport viewport) {
+        return spatialIndex().within(xs, ys, viewport);
+    }
+
+    /**
+     * Finds the instance closest to a point, such as the one under the mouse, through a spatial index.
+     *
+     * @param xRadius how far along the x axis to look, e.g. a few pixels' worth
+     * @param yRadius how far along the y axis to look
+     * @return the index of the closest instance within the ellipse of these radii, or <code>-1</code> if there is none
+     */
+    public int nearest(double x, double y, double xRadius, double yRadius) {
+        return spatialIndex().nearest(xs, ys, x, y, xRadius, yRadius);
+    }
+
+    /**
+     * Builds the spatial index if it is not there yet, so that later queries do not have to, e.g. while still on the
+     * thread that loaded the data.
+     */
+    public void buildSpatialIndex() { spatialIndex(); }
+
+    /**
+     * @return an object that stays the same as long as the instances and their locations do, and is shared by copies
+     *         until either changes them, so a copy can be told to have the same locations without comparing them
+     */
+    Object locationStamp() { return locationStamp; }
+
+    SpatialGrid spatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialGrid(xs, ys, size);
+            indexShared = false;
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Called whenever an instance is added, moved or removed: gives the data set a new location stamp.
+     *
+     * @return the spatial index, ready to be updated, or null if there is none to update
+     */
+    private SpatialGrid locationsChanging() {
+        locationStamp = new Object();
+        if (spatialIndex != null && size > INDEX_GROWTH * Math.max(INITIAL_CAPACITY, spatialIndex.getBuiltSize()))
+            spatialIndex = null; // grown too much for the cells it has; built again when next needed
+        if (spatialIndex != null && indexShared) {
+            spatialIndex = spatialIndex.copy();
+            indexShared = false;
+        }
+        return spatialIndex;
+    }
+
     public void updateLabel(String instanceName, String newlabel) {
-        if (labels.get(instanceName) == null)
+        Integer index = nameIndex.get(instanceName);
+        if (index == null)
+            throw new NoSuchElementException();
+        relabel(index, internLabel(newlabel));
+    }
+
+    public void setLabelId(int index, int labelId) {
+        if (labelId < 0 || labelId >= dictionary.size())
             throw new NoSuchElementException();
-        labels.put(instanceName, newlabel);
+        relabel(checkedIndex(index), labelId);
+    }
+
+    private void relabel(int index, int labelId) {
+        dictionary.move(labelIds[index], labelId);
+        labelIds[index] = labelId;
     }
 
-    protected void addInstance(String tsdLine) throws InvalidDataNameException {
-        String[] arr = tsdLine.split("\t");
-        labels.put(nameFormatCheck(arr[0]), arr[1]);
-        locations.put(arr[0], locationOf(arr[2]));
+    /** Adds an instance, or replaces the label and location of the instance if one with this name already exists. */
+    void addInstance(String name, String label, double x, double y) {
+        Integer index = nameIndex.get(name);
+        if (index == null) {
+            ensureCapacity(size + 1);
+            index = size++;
+            names[index] = name;
+            nameIndex.put(name, index);
+            labelIds[index] = dictionary.add(label);
+            xs[index] = x;
+            ys[index] = y;
+            SpatialGrid grid = locationsChanging();
+            if (grid != null)
+                grid.add(index, x, y);
+        } else {
+            relabel(index, internLabel(label));
+            xs[index] = x;
+            ys[index] = y;
+            SpatialGrid grid = locationsChanging();
+            if (grid != null)
+                grid.move(index, x, y);
+        }
+    }
+
+    /**
+     * Removes the named instance if there is one. The last instance takes the removed one's index, so the indices of
+     * all other instances stay the same.
+     */
+    void removeInstance(String name) {
+        Integer index = nameIndex.remove(name);
+        if (index == null)
+            return;
+        dictionary.decrement(labelIds[index]);
+        int last = --size;
+        SpatialGrid grid = locationsChanging();
+        if (grid != null)
+            grid.remove(index, last);
+        if (index != last) {
+            names[index] = names[last];
+            xs[index] = xs[last];
+            ys[index] = ys[last];
+            labelIds[index] = labelIds[last];
+            nameIndex.put(names[index], index);
+        }
+        names[last] = null;
+    }
+
+    /**
+     * @return an independent copy of this data set, with the same instance indices and label ids; the spatial index is
+     *         shared until either data set moves, adds or removes an instance
+     */
+    public DataSet copy() {
+        List<String> table = new ArrayList<>(dictionary.size());
+        for (int id = 0; id < dictionary.size(); id++)
+            table.add(dictionary.labelOf(id));
+        DataSet copy = fromColumns(Arrays.copyOf(names, size), Arrays.copyOf(xs, size), Arrays.copyOf(ys, size),
+                                   Arrays.copyOf(labelIds, size), table);
+        copy.locationStamp = locationStamp;
+        if (spatialIndex != null) {
+            copy.spatialIndex = spatialIndex;
+            copy.indexShared = true;
+            indexShared = true;
+        }
+        return copy;
     }
 
-    public static DataSet fromTSDFile(Path tsdFilePath) throws IOException {
-        DataSet dataset = new DataSet();
-        Files.lines(tsdFilePath).forEach(line -> {
-            try {
-                dataset.addInstance(line);
-            } catch (InvalidDataNameException e) {
-                e.printStackTrace();
+    private void ensureCapacity(int capacity) {
+        if (capacity <= names.length)
+            return;
+        int newCapacity = Math.max(capacity, names.length * 2);
+        names = Arrays.copyOf(names, newCapacity);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        labelIds = Arrays.copyOf(labelIds, newCapacity);
+    }
+
+    private int checkedIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        return index;
+    }
+
+    /**
+     * Builds a data set directly from its columns, e.g. as read back by {@link TSDBinaryFormat}. The arrays are used as
+     * they are, not copied.
+     */
+    static DataSet fromColumns(String[] names, double[] xs, double[] ys, int[] labelIds, List<String> labelTable) {
+        DataSet dataSet = new DataSet();
+        dataSet.names = names;
+        dataSet.xs = xs;
+        dataSet.ys = ys;
+        dataSet.labelIds = labelIds;
+        dataSet.size = names.length;
+        for (int i = 0; i < names.length; i++)
+            dataSet.nameIndex.put(names[i], i);
+        for (String label : labelTable)
+            dataSet.dictionary.intern(label);
+        for (int i = 0; i < names.length; i++)
+            dataSet.dictionary.increment(labelIds[i]);
+        return dataSet;
+    }
+
+    /** Walks the instances in index order; the subclasses decide what each entry looks like. */
+    private abstract class InstanceIterator<E> implements Iterator<E> {
+
+        private int next;
+
+        @Override
+        public boolean hasNext() { return next < size; }
+
+        @Override
+        public E next() {
+            if (next >= size)
+                throw new NoSuchElementException();
+            return entryAt(next++);
+        }
+
+        abstract E entryAt(int index);
+    }
+
+    private final class LabelsView extends AbstractMap<String, String> {
+
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new InstanceIterator<Entry<String, String>>() {
+                    @Override
+                    Entry<String, String> entryAt(int index) { return new LabelEntry(index); }
+                };
             }
-        });
-        return dataset;
+
+            @Override
+            public int size() { return size; }
+        };
+
+        @Override
+        public Set<Entry<String, String>> entrySet() { return entrySet; }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean containsKey(Object key) { return nameIndex.containsKey(key); }
+
+        @Override
+        public String get(Object key) {
+            Integer index = nameIndex.get(key);
+            return index == null ? null : dictionary.labelOf(labelIds[index]);
+        }
+
+        @Override
+        public String put(String key, String value) {
+            Integer index = nameIndex.get(key);
+            if (index == null)
+                throw new UnsupportedOperationException("Instances can only be added with a location.");
+            String old = dictionary.labelOf(labelIds[index]);
+            relabel(index, internLabel(value));
+            return old;
+        }
+    }
+
+    private final class LabelEntry implements Map.Entry<String, String> {
+
+        private final int index;
+
+        LabelEntry(int index) { this.index = index; }
+
+        @Override
+        public String getKey() { return names[index]; }
+
+        @Override
+        public String getValue() { return dictionary.labelOf(labelIds[index]); }
+
+        @Override
+        public String setValue(String value) {
+            String old = getValue();
+            relabel(index, internLabel(value));
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() { return getKey().hashCode() ^ getValue().hashCode(); }
+    }
+
+    private final class LocationsView extends AbstractMap<String, Point2D> {
+
+        private final Set<Entry<String, Point2D>> entrySet = new AbstractSet<Entry<String, Point2D>>() {
+            @Override
+            public Iterator<Entry<String, Point2D>> iterator() {
+                return new InstanceIterator<Entry<String, Point2D>>() {
+                    @Override
+                    Entry<String, Point2D> entryAt(int index) {
+                        return new SimpleImmutableEntry<>(names[index], new Point2D(xs[index], ys[index]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return size; }
+        };
+
+        @Override
+        public Set<Entry<String, Point2D>> entrySet() { return entrySet; }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public boolean containsKey(Object key) { return nameIndex.containsKey(key); }
+
+        @Override
+        public Point2D get(Object key) {
+            Integer index = nameIndex.get(key);
+            return index == null ? null : new Point2D(xs[index], ys[index]);
+        }
     }
-}
\ No newline at end of file
+}
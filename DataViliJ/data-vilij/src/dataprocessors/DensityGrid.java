@@ -0,0 +1,192 @@
+package dataprocessors;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A two-dimensional histogram of a data set over a viewport, one per label: the viewport is divided into a grid of
+ * bins and each label counts how many of its instances fall in each bin. This is what a dense scatter plot is drawn
+ * from in place of its points.
+ * <p>
+ * The first {@link #update} bins every instance, splitting the instances over a {@link ForkJoinPool}. After that, as
+ * long as the viewport is the same and the data set is a copy with the same locations, as a clustering algorithm
+ * produces them, an update only moves the counts of the instances whose label changed.
+ *
+ * @author kevingray
+ */
+public final class DensityGrid {
+
+    /** Fewer instances than this are binned on the calling thread. */
+    private static final int SPLIT_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    private Viewport viewport;
+    private int      columns;
+    private int      rows;
+    private Object   locations;    // the data set's location stamp when it was binned
+    private int      size;
+    private int[]    cellOf = new int[0]; // per instance, -1 outside the viewport
+    private int[]    labelOf = new int[0]; // per instance, the label id it is counted under
+    private int[][]  counts = new int[0][];
+    private int[]    totals = new int[0];
+    private int      changed;
+
+    public DensityGrid() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    DensityGrid(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Brings the counts in line with a data set, binned over a viewport in a grid of the given size.
+     *
+     * @return <code>true</code> if only the labels that changed since the last update were recounted, and
+     *         <code>false</code> if every instance was binned afresh
+     */
+    public boolean update(DataSet dataSet, Viewport viewport, int columns, int rows) {
+        if (columns < 1 || rows < 1)
+            throw new IllegalArgumentException("A density grid needs at least one bin.");
+        boolean sameGrid = viewport.equals(this.viewport) && columns == this.columns && rows == this.rows;
+        if (sameGrid && dataSet.locationStamp() == locations && dataSet.size() == size) {
+            relabel(dataSet);
+            return true;
+        }
+        this.viewport = viewport;
+        this.columns = columns;
+        this.rows = rows;
+        bin(dataSet);
+        return false;
+    }
+
+    public int getColumns()   { return columns; }
+
+    public int getRows()      { return rows; }
+
+    /** @return the number of label ids counts are kept for */
+    public int getNumLabels() { return counts.length; }
+
+    /**
+     * @return the counts of the given label, bin by bin and row by row from the bottom of the viewport; not to be
+     *         changed
+     */
+    public int[] getCounts(int labelId) { return counts[labelId]; }
+
+    /** @return how many instances of the given label are inside the viewport */
+    public int getTotal(int labelId) { return totals[labelId]; }
+
+    /** @return the number of instances the last update recounted, or all of those binned if it started over */
+    public int getChanged() { return changed; }
+
+    private void bin(DataSet dataSet) {
+        size = dataSet.size();
+        locations = dataSet.locationStamp();
+        if (cellOf.length < size) {
+            cellOf = new int[size];
+            labelOf = new int[size];
+        }
+        int numLabels = dataSet.getLabelTableSize();
+        counts = size < SPLIT_SIZE ? new Bin(dataSet, 0, size, numLabels).compute()
+                                   : pool.invoke(new Bin(dataSet, 0, size, numLabels));
+        totals = new int[numLabels];
+        for (int label = 0; label < numLabels; label++) {
+            if (counts[label] == null)
+                counts[label] = new int[columns * rows];
+            for (int count : counts[label])
+                totals[label] += count;
+        }
+        changed = size;
+    }
+
+    private void relabel(DataSet dataSet) {
+        int[] labelIds = dataSet.getLabelColumn();
+        int   grown    = dataSet.getLabelTableSize();
+        if (grown > counts.length) {
+            int from = counts.length;
+            counts = Arrays.copyOf(counts, grown);
+            totals = Arrays.copyOf(totals, grown);
+            for (int label = from; label < grown; label++)
+                counts[label] = new int[columns * rows];
+        }
+        changed = 0;
+        for (int i = 0; i < size; i++) {
+            int label = labelIds[i];
+            if (label == labelOf[i])
+                continue;
+            int cell = cellOf[i];
+            if (cell >= 0) {
+                counts[labelOf[i]][cell]--;
+                totals[labelOf[i]]--;
+                counts[label][cell]++;
+                totals[label]++;
+            }
+            labelOf[i] = label;
+            changed++;
+        }
+    }
+
+    /** Bins a range of instances, splitting it in two while it is large, and returns its counts. */
+    private final class Bin extends RecursiveTask<int[][]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DataSet dataSet;
+        private final int     from;
+        private final int     to;
+        private final int     numLabels;
+
+        Bin(DataSet dataSet, int from, int to, int numLabels) {
+            this.dataSet = dataSet;
+            this.from = from;
+            this.to = to;
+            this.numLabels = numLabels;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (to - from > SPLIT_SIZE) {
+                int middle = (from + to) >>> 1;
+                Bin low    = new Bin(dataSet, from, middle, numLabels);
+                Bin high   = new Bin(dataSet, middle, to, numLabels);
+                low.fork();
+                int[][] merged = high.compute();
+                int[][] other  = low.join();
+                for (int label = 0; label < numLabels; label++) {
+                    if (merged[label] == null) {
+                        merged[label] = other[label];
+                    } else if (other[label] != null) {
+                        for (int cell = 0; cell < merged[label].length; cell++)
+                            merged[label][cell] += other[label][cell];
+                    }
+                }
+                return merged;
+            }
+            double[] xs       = dataSet.getXColumn();
+            double[] ys       = dataSet.getYColumn();
+            int[]    labelIds = dataSet.getLabelColumn();
+            double   xScale   = viewport.xMax > viewport.xMin ? columns / (viewport.xMax - viewport.xMin) : 0;
+            double   yScale   = viewport.yMax > viewport.yMin ? rows / (viewport.yMax - viewport.yMin) : 0;
+            int[][]  local    = new int[numLabels][];
+            for (int i = from; i < to; i++) {
+                int label = labelIds[i];
+                labelOf[i] = label;
+                if (!viewport.contains(xs[i], ys[i])) {
+                    cellOf[i] = -1;
+                    continue;
+                }
+                int column = Math.min(columns - 1, (int) ((xs[i] - viewport.xMin) * xScale));
+                int row    = Math.min(rows - 1, (int) ((ys[i] - viewport.yMin) * yScale));
+                int cell   = row * columns + column;
+                cellOf[i] = cell;
+                if (local[label] == null)
+                    local[label] = new int[columns * rows];
+                local[label][cell]++;
+            }
+            return local;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dataprocessors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps each distinct label string to an id and keeps a live count of the instances that carry it. The counts are
+ * updated as instances are added, removed and relabeled, so the number of labels in use, the labels themselves and
+ * the size of each label can be read at any time without scanning the instances.
+ * <p>
+ * Ids are handed out in order starting from 0 and are never reused; a label whose count drops to 0 keeps its id and
+ * simply stops being reported by {@link #getNumLabels()} and {@link #getLabels()}.
+ * <p>
+ * Only the {@link DataSet} that owns a dictionary changes it, so the methods that do are package-private; code elsewhere
+ * can read the ids and counts but cannot put them out of step with the instances.
+ *
+ * @author kevingray
+ */
+public final class LabelDictionary {
+
+    private final List<String>         table;
+    private final Map<String, Integer> index;
+    private int[]                      counts;
+    private int                        numLabels; // ids whose count is above 0
+
+    public LabelDictionary() {
+        table = new ArrayList<>();
+        index = new HashMap<>();
+        counts = new int[8];
+    }
+
+    /** Returns the id of the given label, giving it a new id with a count of 0 if it has not been seen before. */
+    int intern(String label) {
+        Integer id = index.get(label);
+        if (id == null) {
+            id = table.size();
+            table.add(label);
+            index.put(label, id);
+            if (id == counts.length)
+                counts = Arrays.copyOf(counts, id * 2);
+        }
+        return id;
+    }
+
+    /** @return the id of the given label, or <code>-1</code> if it has never been interned */
+    public int idOf(String label) {
+        Integer id = index.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /** @return the label string with the given id */
+    public String labelOf(int id) { return table.get(id); }
+
+    /** @return the number of ids handed out so far, including those of labels no instance carries any more */
+    public int size() { return table.size(); }
+
+    /** @return the number of instances that carry the label with the given id */
+    public int count(int id) {
+        if (id < 0 || id >= table.size())
+            throw new IndexOutOfBoundsException(Integer.toString(id));
+        return counts[id];
+    }
+
+    /** @return the number of instances that carry the given label, <code>0</code> if it is not known */
+    public int count(String label) {
+        int id = idOf(label);
+        return id < 0 ? 0 : counts[id];
+    }
+
+    /** @return the number of distinct labels carried by at least one instance */
+    public int getNumLabels() { return numLabels; }
+
+    /** @return the labels carried by at least one instance, in id order */
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<>(numLabels);
+        for (int id = 0; id < table.size(); id++) {
+            if (counts[id] > 0)
+                labels.add(table.get(id));
+        }
+        return Collections.unmodifiableList(labels);
+    }
+
+    /** Counts one more instance with the given label, interning it first if needed, and returns its id. */
+    int add(String label) {
+        int id = intern(label);
+        increment(id);
+        return id;
+    }
+
+    /** Counts one more instance with the label of the given id. */
+    void increment(int id) {
+        if (counts[id]++ == 0)
+            numLabels++;
+    }
+
+    /** Counts one instance fewer with the label of the given id. */
+    void decrement(int id) {
+        if (counts[id] <= 0)
+            throw new IllegalStateException("No instance carries label " + table.get(id));
+        if (--counts[id] == 0)
+            numLabels--;
+    }
+
+    /** Counts one instance fewer with the given label. */
+    void remove(String label) {
+        int id = idOf(label);
+        if (id < 0)
+            throw new IllegalStateException("No instance carries label " + label);
+        decrement(id);
+    }
+
+    /** Moves one instance from the label with id <code>from</code> to the label with id <code>to</code>. */
+    void move(int from, int to) {
+        if (from != to) {
+            decrement(from);
+            increment(to);
+        }
+    }
+
+    /** Forgets all labels and counts. */
+    void clear() {
+        table.clear();
+        index.clear();
+        counts = new int[8];
+        numLabels = 0;
+    }
+
+    /** @return an independent copy with the same ids and counts */
+    public LabelDictionary copy() {
+        LabelDictionary copy = new LabelDictionary();
+        copy.table.addAll(table);
+        copy.index.putAll(index);
+        copy.counts = counts.clone();
+        copy.numLabels = numLabels;
+        return copy;
+    }
+}
@@ -0,0 +1,227 @@
+package dataprocessors;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the locations of a data set's instances, for finding the instances in a rectangle or near a
+ * point without looking at all of them. The grid is laid over the bounding box the instances had when it was built,
+ * with about {@link #POINTS_PER_CELL} instances per cell, and each cell lists the indices of the instances in it.
+ * Instances that later end up outside the box are kept in the nearest edge cell, so the grid stays correct, only
+ * slower, until the data set rebuilds it.
+ * <p>
+ * The grid holds indices only; the coordinates are read from the columns passed to each query, which must be the
+ * ones the grid was built and updated with.
+ *
+ * @author kevingray
+ */
+final class SpatialGrid {
+
+    /** Few enough instances per cell that looking through a cell is cheap, and few enough cells to keep them small. */
+    private static final int POINTS_PER_CELL = 4;
+
+    private static final int   MAX_CELLS = 1 << 22;
+    private static final int[] EMPTY     = new int[0];
+
+    private final double xMin;
+    private final double yMin;
+    private final double xMax;
+    private final double yMax;
+    private final int    columns;
+    private final int    rows;
+    private final double xScale;
+    private final double yScale;
+    private final int    builtSize;
+
+    private final int[][] cells;
+    private final int[]   cellSizes;
+    private int[]         cellOf;
+    private int[]         slotOf;
+
+    /** Builds the grid over the first <code>size</code> instances of the columns. */
+    SpatialGrid(double[] xs, double[] ys, int size) {
+        Viewport bounds = Viewport.around(xs, ys, size);
+        double   width  = bounds.xMax - bounds.xMin;
+        double   height = bounds.yMax - bounds.yMin;
+        int      target = Math.max(1, Math.min(MAX_CELLS, size / POINTS_PER_CELL));
+        double   aspect = width > 0 && height > 0 ? width / height : width > 0 ? target : height > 0 ? 1.0 / target : 1;
+        this.xMin = bounds.xMin;
+        this.yMin = bounds.yMin;
+        this.xMax = bounds.xMax;
+        this.yMax = bounds.yMax;
+        this.columns = (int) Math.max(1, Math.min(target, Math.round(Math.sqrt(target * aspect))));
+        this.rows = Math.max(1, target / columns);
+        this.xScale = width > 0 ? columns / width : 0;
+        this.yScale = height > 0 ? rows / height : 0;
+        this.builtSize = size;
+
+        cellSizes = new int[columns * rows];
+        cellOf = new int[Math.max(size, 16)];
+        slotOf = new int[cellOf.length];
+        for (int i = 0; i < size; i++)
+            cellSizes[cellOf[i] = cellOf(xs[i], ys[i])]++;
+        cells = new int[cellSizes.length][];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cellSizes[cell] == 0 ? EMPTY : new int[cellSizes[cell]];
+            cellSizes[cell] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int cell = cellOf[i];
+            slotOf[i] = cellSizes[cell];
+            cells[cell][cellSizes[cell]++] = i;
+        }
+    }
+
+    private SpatialGrid(SpatialGrid other) {
+        xMin = other.xMin;
+        yMin = other.yMin;
+        xMax = other.xMax;
+        yMax = other.yMax;
+        columns = other.columns;
+        rows = other.rows;
+        xScale = other.xScale;
+        yScale = other.yScale;
+        builtSize = other.builtSize;
+        cells = new int[other.cells.length][];
+        for (int cell = 0; cell < cells.length; cell++)
+            cells[cell] = other.cells[cell] == EMPTY ? EMPTY : other.cells[cell].clone();
+        cellSizes = other.cellSizes.clone();
+        cellOf = other.cellOf.clone();
+        slotOf = other.slotOf.clone();
+    }
+
+    /** @return an independent copy, to be updated separately from this grid */
+    SpatialGrid copy() { return new SpatialGrid(this); }
+
+    /** @return the number of instances the grid was built for; once the data set has grown well past it, rebuild */
+    int getBuiltSize() { return builtSize; }
+
+    /** @return roughly the fraction of the grid's area the viewport covers, between 0 and 1 */
+    double coverage(Viewport viewport) {
+        double width  = Math.min(viewport.xMax, xMax) - Math.max(viewport.xMin, xMin);
+        double height = Math.min(viewport.yMax, yMax) - Math.max(viewport.yMin, yMin);
+        if (xMax == xMin || yMax == yMin)
+            return viewport.contains(xMin, yMin) ? 1 : 0;
+        return width <= 0 || height <= 0 ? 0 : width * height / ((xMax - xMin) * (yMax - yMin));
+    }
+
+    /** Adds the instance at the given index, which must be the index just past all others. */
+    void add(int index, double x, double y) {
+        if (index >= cellOf.length) {
+            cellOf = Arrays.copyOf(cellOf, Math.max(index + 1, cellOf.length * 2));
+            slotOf = Arrays.copyOf(slotOf, cellOf.length);
+        }
+        insert(index, cellOf(x, y));
+    }
+
+    /** Updates the cell of an instance whose location changed. */
+    void move(int index, double x, double y) {
+        int cell = cellOf(x, y);
+        if (cell == cellOf[index])
+            return;
+        take(index);
+        insert(index, cell);
+    }
+
+    /** Removes the instance at <code>index</code>; the one at <code>last</code>, if different, takes its index. */
+    void remove(int index, int last) {
+        take(index);
+        if (index != last) {
+            int cell = cellOf[last];
+            cells[cell][slotOf[last]] = index;
+            cellOf[index] = cell;
+            slotOf[index] = slotOf[last];
+        }
+    }
+
+    /**
+     * Finds the instances inside a viewport, edges included.
+     *
+     * @return their indices, in increasing order
+     */
+    int[] within(double[] xs, double[] ys, Viewport viewport) {
+        int[] found = new int[16];
+        int   count = 0;
+        int   left  = column(viewport.xMin), right = column(viewport.xMax);
+        int   low   = row(viewport.yMin), high = row(viewport.yMax);
+        for (int row = low; row <= high; row++) {
+            for (int column = left; column <= right; column++) {
+                int   cell    = row * columns + column;
+                int[] indices = cells[cell];
+                for (int s = 0; s < cellSizes[cell]; s++) {
+                    int i = indices[s];
+                    if (!viewport.contains(xs[i], ys[i]))
+                        continue;
+                    if (count == found.length)
+                        found = Arrays.copyOf(found, count * 2);
+                    found[count++] = i;
+                }
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Finds the instance closest to a point within an ellipse around it, with distances along each axis measured in
+     * units of that axis's radius, as suits a radius given in pixels of a plot whose axes have different scales.
+     *
+     * @return the index of the closest instance, or <code>-1</code> if none is within the radii
+     */
+    int nearest(double[] xs, double[] ys, double x, double y, double xRadius, double yRadius) {
+        int    best     = -1;
+        double bestDist = 1;
+        int    left     = column(x - xRadius), right = column(x + xRadius);
+        int    low      = row(y - yRadius), high = row(y + yRadius);
+        for (int row = low; row <= high; row++) {
+            for (int column = left; column <= right; column++) {
+                int   cell    = row * columns + column;
+                int[] indices = cells[cell];
+                for (int s = 0; s < cellSizes[cell]; s++) {
+                    int    i    = indices[s];
+                    double dx   = xRadius > 0 ? (xs[i] - x) / xRadius : xs[i] == x ? 0 : Double.POSITIVE_INFINITY;
+                    double dy   = yRadius > 0 ? (ys[i] - y) / yRadius : ys[i] == y ? 0 : Double.POSITIVE_INFINITY;
+                    double dist = dx * dx + dy * dy;
+                    if (dist < bestDist || (dist == bestDist && (best == -1 || i < best))) {
+                        best = i;
+                        bestDist = dist;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int cellOf(double x, double y) { return row(y) * columns + column(x); }
+
+    private int column(double x) {
+        double c = (x - xMin) * xScale;
+        return c >= columns ? columns - 1 : c > 0 ? (int) c : 0;
+    }
+
+    private int row(double y) {
+        double r = (y - yMin) * yScale;
+        return r >= rows ? rows - 1 : r > 0 ? (int) r : 0;
+    }
+
+    private void insert(int index, int cell) {
+        if (cellSizes[cell] == cells[cell].length)
+            cells[cell] = Arrays.copyOf(cells[cell], Math.max(4, cellSizes[cell] * 2));
+        cellOf[index] = cell;
+        slotOf[index] = cellSizes[cell];
+        cells[cell][cellSizes[cell]++] = index;
+    }
+
+    /** Takes an instance out of its cell by moving the cell's last entry into its slot. */
+    private void take(int index) {
+        int cell = cellOf[index];
+        int last = --cellSizes[cell];
+        int slot = slotOf[index];
+        if (slot != last) {
+            int moved = cells[cell][last];
+            cells[cell][slot] = moved;
+            slotOf[moved] = slot;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package dataprocessors;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the binary snapshot (<code>.tsdb</code>) form of a {@link DataSet}. A snapshot holds the same
+ * columns a data set keeps in memory, so loading one is a bulk copy of each column rather than a parse of every line.
+ * <p>
+ * All values are big-endian. The layout is:
+ * <ol>
+ * <li>a header of four <code>int</code>s: the magic number, the format version, the number of instances and the
+ * number of entries in the label table;</li>
+ * <li>the label table, each entry an <code>int</code> byte length followed by that many bytes of UTF-8;</li>
+ * <li>the <code>int</code> length of the name blob, then <code>count + 1</code> <code>int</code> offsets into it, then
+ * the blob itself, which is every instance name in UTF-8, back to back;</li>
+ * <li>padding up to a multiple of 8 bytes, then the x column, the y column (both <code>double</code>) and the label
+ * id column (<code>int</code>).</li>
+ * </ol>
+ *
+ * @author kevingray
+ */
+public final class TSDBinaryFormat {
+
+    /** The file name extension of a snapshot, as the application's properties give it too. */
+    public static final String EXTENSION = ".tsdb";
+
+    private static final int MAGIC       = 0x54534442; // "TSDB"
+    private static final int VERSION     = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_SIZE  = 1 << 16;
+
+    private TSDBinaryFormat() {}
+
+    /** Writes the given data set to a snapshot file, replacing the file if it exists. */
+    public static void write(DataSet dataSet, Path path) throws IOException {
+        int size = dataSet.size();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE).order(ByteOrder.BIG_ENDIAN);
+            block.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(dataSet.getLabelTableSize());
+            for (int id = 0; id < dataSet.getLabelTableSize(); id++) {
+                byte[] label = dataSet.labelOf(id).getBytes(StandardCharsets.UTF_8);
+                putInt(channel, block, label.length);
+                putBytes(channel, block, label);
+            }
+
+            byte[][] names    = new byte[size][];
+            int      blobSize = 0;
+            for (int i = 0; i < size; i++) {
+                names[i] = dataSet.getName(i).getBytes(StandardCharsets.UTF_8);
+                blobSize += names[i].length;
+            }
+            putInt(channel, block, blobSize);
+            int offset = 0;
+            putInt(channel, block, offset);
+            for (byte[] name : names)
+                putInt(channel, block, offset += name.length);
+            for (byte[] name : names)
+                putBytes(channel, block, name);
+
+            long position = channel.position() + block.position();
+            for (long padding = (8 - position % 8) % 8; padding > 0; padding--)
+                putBytes(channel, block, new byte[1]);
+
+            double[] xs       = dataSet.getXColumn();
+            double[] ys       = dataSet.getYColumn();
+            int[]    labelIds = dataSet.getLabelColumn();
+            for (int i = 0; i < size; i++) {
+                ensureRoom(channel, block, Double.BYTES);
+                block.putDouble(xs[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                ensureRoom(channel, block, Double.BYTES);
+                block.putDouble(ys[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                ensureRoom(channel, block, Integer.BYTES);
+                block.putInt(labelIds[i]);
+            }
+            flush(channel, block);
+        }
+    }
+
+    /**
+     * Reads a snapshot file. The label table and names are decoded one entry at a time, and the coordinate and label
+     * columns are copied in bulk from a memory-mapped view of the file.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot of a version this class can read
+     */
+    public static DataSet read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE)
+                throw new IOException(notASnapshot(path));
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC)
+                throw new IOException(notASnapshot(path));
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException(String.format("Unsupported .tsdb version %d in %s.", version, path));
+            int size      = header.getInt();
+            int numLabels = header.getInt();
+
+            long         position = HEADER_SIZE;
+            List<String> labels   = new ArrayList<>(numLabels);
+            for (int id = 0; id < numLabels; id++) {
+                int length = map(channel, position, Integer.BYTES).getInt();
+                labels.add(decode(map(channel, position + Integer.BYTES, length), length));
+                position += Integer.BYTES + length;
+            }
+
+            int        blobSize = map(channel, position, Integer.BYTES).getInt();
+            ByteBuffer offsets  = map(channel, position + Integer.BYTES, (size + 1L) * Integer.BYTES);
+            position += Integer.BYTES + (size + 1L) * Integer.BYTES;
+            ByteBuffer blob  = map(channel, position, blobSize);
+            String[]   names = new String[size];
+            byte[]     bytes = new byte[blobSize];
+            blob.get(bytes);
+            for (int i = 0, start = offsets.getInt(); i < size; i++) {
+                int end = offsets.getInt();
+                names[i] = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+                start = end;
+            }
+            position += blobSize;
+            position += (8 - position % 8) % 8;
+
+            double[] xs       = new double[size];
+            double[] ys       = new double[size];
+            int[]    labelIds = new int[size];
+            if (position + size * (2L * Double.BYTES + Integer.BYTES) > fileSize)
+                throw new IOException(notASnapshot(path));
+            map(channel, position, (long) size * Double.BYTES).asDoubleBuffer().get(xs);
+            position += (long) size * Double.BYTES;
+            map(channel, position, (long) size * Double.BYTES).asDoubleBuffer().get(ys);
+            position += (long) size * Double.BYTES;
+            map(channel, position, (long) size * Integer.BYTES).asIntBuffer().get(labelIds);
+            for (int labelId : labelIds) {
+                if (labelId < 0 || labelId >= numLabels)
+                    throw new IOException(notASnapshot(path));
+            }
+            return DataSet.fromColumns(names, xs, ys, labelIds, labels);
+        } catch (IllegalArgumentException | java.nio.BufferUnderflowException e) {
+            throw new IOException(notASnapshot(path), e);
+        }
+    }
+
+    /**
+     * Writes the given data set as a plain <code>.tsd</code> file, one instance per line in instance order, in the
+     * platform's default charset as the rest of the application does. The coordinates are written with
+     * {@link Double#toString(double)}, which reads back to exactly the same values.
+     */
+    public static void writeTSD(DataSet dataSet, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+            appendTSD(dataSet, 0, dataSet.size(), writer);
+        }
+    }
+
+    /** Appends the instances in <code>[from, to)</code> to the given writer as <code>.tsd</code> lines. */
+    public static void appendTSD(DataSet dataSet, int from, int to, Appendable out) throws IOException {
+        for (int i = from; i < to; i++) {
+            out.append(dataSet.getName(i)).append('\t')
+               .append(dataSet.getLabel(i)).append('\t')
+               .append(Double.toString(dataSet.getX(i))).append(',')
+               .append(Double.toString(dataSet.getY(i))).append('\n');
+        }
+    }
+
+    private static String notASnapshot(Path path) {
+        return String.format("%s is not a valid .tsdb file.", path);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        return buffer;
+    }
+
+    private static String decode(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer block, int value) throws IOException {
+        ensureRoom(channel, block, Integer.BYTES);
+        block.putInt(value);
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer block, byte[] bytes) throws IOException {
+        for (int written = 0; written < bytes.length; ) {
+            ensureRoom(channel, block, 1);
+            int length = Math.min(block.remaining(), bytes.length - written);
+            block.put(bytes, written, length);
+            written += length;
+        }
+    }
+
+    private static void ensureRoom(FileChannel channel, ByteBuffer block, int bytes) throws IOException {
+        if (block.remaining() < bytes)
+            flush(channel, block);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining())
+            channel.write(block);
+        block.clear();
+    }
+}
@@ -0,0 +1,306 @@
+package dataprocessors;
+
+import dataprocessors.TSDProcessor.LineFields;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads large <code>.tsd</code> files by memory-mapping them and parsing newline-aligned chunks in parallel on a
+ * {@link ForkJoinPool}. Each chunk is fed, in file order and as soon as it is parsed, to a {@link TSDProcessor.Load},
+ * which does the duplicate name check across chunk boundaries and numbers the lines globally, so the data set and the
+ * error messages are the same as {@link TSDProcessor#processLines} produces for the same file. Only a few chunks per
+ * thread are parsed ahead of the one being fed, so the parsed columns held besides the data set stay bounded.
+ *
+ * @author kevingray
+ */
+final class TSDChunkedLoader {
+
+    /** Files smaller than this are read with a single {@link java.io.BufferedReader} instead. */
+    static final long MIN_PARALLEL_SIZE = 4L << 20;
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int  PROBE_SIZE     = 1 << 16;
+    private static final int  CHUNKS_AHEAD   = 2;       // per thread of the pool
+
+    private final TSDProcessor processor;
+    private final ForkJoinPool pool;
+    private final long         chunkSize;
+
+    TSDChunkedLoader(TSDProcessor processor) {
+        this(processor, ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * @param chunkSize the approximate size of each chunk in bytes, or <code>0</code> to pick one from the file size
+     *                  and the pool's parallelism
+     */
+    TSDChunkedLoader(TSDProcessor processor, ForkJoinPool pool, long chunkSize) {
+        this.processor = processor;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads the file at the given path. The file is decoded with the platform's default charset, as
+     * {@link java.io.FileReader} does.
+     *
+     * @param preview      receives the first <code>previewLines</code> lines of the file, each followed by a newline
+     * @param previewLines the number of lines to copy into <code>preview</code>
+     * @return the data set built from the file
+     * @throws IOException                     if the file cannot be read
+     * @throws TSDProcessor.InvalidTSDException with the same message {@link TSDProcessor#processLines} would have
+     *                                          thrown for the file
+     */
+    DataSet load(Path tsdFilePath, StringBuilder preview, int previewLines)
+            throws IOException, TSDProcessor.InvalidTSDException {
+        Deque<ChunkTask> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            List<long[]>      ranges = split(channel);
+            int               ahead  = CHUNKS_AHEAD * pool.getParallelism();
+            TSDProcessor.Load load   = processor.newLoad(preview, previewLines);
+            LineFields        fields = new LineFields();
+            for (int next = 0; next < ranges.size() || !pending.isEmpty(); ) {
+                for (; next < ranges.size() && pending.size() < ahead; next++) {
+                    long[]    bounds = ranges.get(next);
+                    ChunkTask task   = new ChunkTask(channel, bounds[0], bounds[1] - bounds[0], previewLines);
+                    pool.execute(task);
+                    pending.add(task);
+                }
+                feed(pending.remove().join(), load, fields);
+            }
+            return load.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ChunkTask task : pending)
+                task.cancel(false);
+        }
+    }
+
+    /** Feeds the lines of a parsed chunk to the load, after which the chunk is no longer needed. */
+    private static void feed(Chunk chunk, TSDProcessor.Load load, LineFields fields) {
+        for (int i = 0; i < chunk.count; i++) {
+            if (chunk.kinds[i] == Chunk.BLANK) {
+                load.blankLine();
+                continue;
+            }
+            fields.name = chunk.names[i];
+            fields.label = chunk.labels[i];
+            fields.x = chunk.xs[i];
+            fields.y = chunk.ys[i];
+            load.line(i < chunk.rawLines.size() ? chunk.rawLines.get(i) : null, chunk.kinds[i], fields);
+        }
+    }
+
+    /**
+     * Validates the file at the given path without loading it, collecting up to <code>maxProblems</code> problems. The
+     * file is mapped and its chunks parsed in parallel as for {@link #load}.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    TSDValidationReport validate(Path tsdFilePath, int maxProblems) throws IOException {
+        try (FileChannel channel = FileChannel.open(tsdFilePath, StandardOpenOption.READ)) {
+            List<ScanTask> tasks = new ArrayList<>();
+            for (long[] bounds : split(channel)) {
+                tasks.add(new ScanTask(channel, bounds[0], bounds[1] - bounds[0], maxProblems));
+            }
+            List<TSDValidator.Scan> scans = pool.invoke(new Batch<>(tasks));
+            return TSDValidator.merge(scans, channel.size() == 0, maxProblems);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Splits the file into ranges that each end just after a newline, or at the end of the file. */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long         size      = channel.size();
+        long         chunkSize = this.chunkSize;
+        List<long[]> bounds    = new ArrayList<>();
+        ByteBuffer   probe     = ByteBuffer.allocate(PROBE_SIZE);
+        if (chunkSize <= 0)
+            chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (4L * pool.getParallelism())));
+        for (long start = 0; start < size; ) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size)
+                end = nextLineStart(channel, end, size, probe);
+            bounds.add(new long[]{start, end});
+            start = end;
+        }
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        for (long position = from; position < size; ) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /** Decodes a range of the file with the platform's default charset, replacing what cannot be decoded. */
+    private static CharBuffer decode(FileChannel channel, long start, long length) {
+        try {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            return Charset.defaultCharset().newDecoder()
+                          .onMalformedInput(CodingErrorAction.REPLACE)
+                          .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                          .decode(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Runs all chunk tasks and returns their results in file order. */
+    private static final class Batch<T> extends RecursiveTask<List<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends RecursiveTask<T>> tasks;
+
+        Batch(List<? extends RecursiveTask<T>> tasks) { this.tasks = tasks; }
+
+        @Override
+        protected List<T> compute() {
+            ForkJoinTask.invokeAll(tasks);
+            List<T> results = new ArrayList<>(tasks.size());
+            for (RecursiveTask<T> task : tasks)
+                results.add(task.join());
+            return results;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long        start;
+        private final long        length;
+        private final int         previewLines;
+
+        ChunkTask(FileChannel channel, long start, long length, int previewLines) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+            this.previewLines = previewLines;
+        }
+
+        @Override
+        protected Chunk compute() {
+            CharBuffer chars = decode(channel, start, length);
+            Chunk      chunk = new Chunk(previewLines);
+            int        end   = chars.limit();
+            int        from  = 0;
+            // same line terminators as BufferedReader.readLine: \n, \r, or \r\n
+            for (int i = 0; i < end; i++) {
+                char c = chars.get(i);
+                if (c == '\n' || c == '\r') {
+                    chunk.add(chars, from, i);
+                    if (c == '\r' && i + 1 < end && chars.get(i + 1) == '\n')
+                        i++;
+                    from = i + 1;
+                }
+            }
+            if (from < end)
+                chunk.add(chars, from, end);
+            return chunk;
+        }
+    }
+
+    /** Checks one chunk for {@link #validate}, without keeping its lines. */
+    private static final class ScanTask extends RecursiveTask<TSDValidator.Scan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long        start;
+        private final long        length;
+        private final int         maxProblems;
+
+        ScanTask(FileChannel channel, long start, long length, int maxProblems) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+            this.maxProblems = maxProblems;
+        }
+
+        @Override
+        protected TSDValidator.Scan compute() {
+            CharBuffer chars = decode(channel, start, length);
+            return TSDValidator.scan(chars, 0, chars.limit(), maxProblems);
+        }
+    }
+
+    /** The parsed lines of one chunk, stored column by column. */
+    private static final class Chunk {
+
+        static final byte BLANK = -1;
+
+        private final int                 previewLines;
+        private final List<String>        rawLines     = new ArrayList<>();
+        private final Map<String, String> labelStrings = new HashMap<>();
+        private final LineFields          fields       = new LineFields();
+
+        int      count;
+        byte[]   kinds  = new byte[1024];
+        String[] names  = new String[1024];
+        String[] labels = new String[1024];
+        double[] xs     = new double[1024];
+        double[] ys     = new double[1024];
+
+        Chunk(int previewLines) { this.previewLines = previewLines; }
+
+        void add(CharBuffer chars, int from, int to) {
+            if (count == kinds.length) {
+                int capacity = count * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                names = Arrays.copyOf(names, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+            }
+            if (count < previewLines)
+                rawLines.add(chars.subSequence(from, to).toString());
+            if (from == to) {
+                kinds[count++] = BLANK;
+                return;
+            }
+            int kind = TSDProcessor.parseLine(chars, from, to, fields);
+            kinds[count] = (byte) kind;
+            names[count] = fields.name;
+            if (kind == TSDProcessor.LINE_OK) {
+                String label = labelStrings.putIfAbsent(fields.label, fields.label);
+                labels[count] = label == null ? fields.label : label;
+                xs[count] = fields.x;
+                ys[count] = fields.y;
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package dataprocessors;
+
+import dataprocessors.TSDProcessor.LineFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps the parsed form of the text area's contents in step with its edits. Each call to {@link #update(String)}
+ * works out which lines differ from the previously applied text, parses only those, and applies them one instance at a
+ * time to the {@link TSDProcessor}'s {@link DataSet}, instead of re-splitting and re-validating the whole
+ * text. The validation result is the same as {@link TSDProcessor#dataNameCheck(String)} followed by
+ * {@link TSDProcessor#processString(String)} would give for the full text. It is kept up as the lines change too: a
+ * count of the names used more than once and the sorted indices of the lines that do not parse, so that valid text is
+ * confirmed without going over its lines again.
+ * <p>
+ * All methods are synchronized, so {@link #update(String)} may be called from a background thread while the
+ * application thread reads the result.
+ *
+ * @author kevingray
+ */
+final class TSDEditTracker {
+
+    /** One line of the text, parsed on its own. */
+    private static final class Line {
+        final boolean blank;
+        final int     kind;
+        final String  name;
+        final String  label;
+        final double  x;
+        final double  y;
+
+        Line(String text, int from, int to, LineFields fields) {
+            blank = from == to;
+            kind = TSDProcessor.parseLine(text, from, to, fields);
+            name = fields.name;
+            label = kind == TSDProcessor.LINE_OK ? fields.label : null;
+            x = fields.x;
+            y = fields.y;
+        }
+    }
+
+    private final TSDProcessor processor;
+    private final LineFields   fields = new LineFields();
+
+    private String               text;
+    private List<Line>           lines;
+    private Map<String, Integer>    nameCounts;     // non-blank lines per name, valid or not
+    private Map<String, Line>       validLines;     // a valid line per name, i.e. one that put an instance in the maps
+    private Map<String, List<Line>> moreValid;      // the other valid lines of the names that have more than one
+    private Set<String>             stale;          // names whose instance may hold the values of a removed line
+    private TreeSet<Integer>        badLines;       // indices of the lines that do not parse, blank ones included
+    private int                     duplicateNames; // non-empty names on more than one non-blank line
+    private int                     emptyNames;     // lines with an empty name, blank ones included
+    private boolean                 inSync;         // whether the processor's maps hold what the lines put there
+    private String                  error;
+
+    TSDEditTracker(TSDProcessor processor) {
+        this.processor = processor;
+        reset();
+    }
+
+    /**
+     * Forgets all tracked lines and starts again from empty text. This does not touch the processor, so it should be
+     * called together with {@link TSDProcessor#clear()}.
+     */
+    synchronized void reset() {
+        text = "";
+        lines = new ArrayList<>();
+        lines.add(new Line("", 0, 0, fields));
+        nameCounts = new HashMap<>();
+        validLines = new HashMap<>();
+        moreValid = new HashMap<>();
+        stale = new HashSet<>();
+        badLines = new TreeSet<>();
+        badLines.add(0); // the empty text is one blank line, which does not parse and has an empty name
+        duplicateNames = 0;
+        emptyNames = 1;
+        inSync = true;
+        error = null;
+    }
+
+    /**
+     * Forgets all tracked lines because the processor was filled from somewhere else, such as a file. The next
+     * {@link #update(String)} clears the processor before applying its text, so that the two agree again.
+     */
+    synchronized void processorReplaced() {
+        reset();
+        inSync = false;
+    }
+
+    /**
+     * Brings the tracked state up to date with the given text, re-parsing only the lines that changed since the last
+     * call.
+     *
+     * @throws Exception with the message {@link TSDProcessor#dataNameCheck(String)} or
+     *                   {@link TSDProcessor#processString(String)} would have thrown for this text
+     */
+    synchronized void update(String newText) throws Exception {
+        boolean resync = !inSync;
+        if (resync) {
+            processor.clear();
+            inSync = true;
+        }
+        if (resync || !newText.equals(text)) {
+            applyDiff(newText);
+            text = newText;
+            error = validate();
+        }
+        if (error != null)
+            throw new Exception(error);
+    }
+
+    /**
+     * @return the processor's data set for the last text passed to {@link #update(String)}; it does not change with
+     *         later updates, which go to a copy of it
+     */
+    synchronized DataSet getDataSet() {
+        return processor.share();
+    }
+
+    private void applyDiff(String newText) {
+        int oldLength = text.length();
+        int newLength = newText.length();
+        int prefix    = 0;
+        int limit     = Math.min(oldLength, newLength);
+        while (prefix < limit && text.charAt(prefix) == newText.charAt(prefix))
+            prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix
+               && text.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix))
+            suffix++;
+
+        // the changed characters are [prefix, length - suffix) in each text; widen that to whole lines
+        int firstLine = 0;
+        int lineStart = 0;
+        for (int i = 0; i < prefix; i++) {
+            if (newText.charAt(i) == '\n') {
+                firstLine++;
+                lineStart = i + 1;
+            }
+        }
+        int removed = 1 + count(text, lineStart, oldLength - suffix);
+        int added   = 1 + count(newText, lineStart, newLength - suffix);
+
+        List<Line> replacement = new ArrayList<>(added);
+        int        from        = lineStart;
+        for (int i = 0; i < added; i++) {
+            int to = newText.indexOf('\n', from);
+            if (to < 0)
+                to = newLength;
+            replacement.add(new Line(newText, from, to, fields));
+            from = to + 1;
+        }
+
+        List<Line> replaced = lines.subList(firstLine, firstLine + removed);
+        for (Line line : replaced)
+            unapply(line);
+        replaced.clear();
+        lines.addAll(firstLine, replacement);
+        for (Line line : replacement)
+            apply(line);
+
+        // the lines after the change move by the difference in number, and so do their indices
+        badLines.subSet(firstLine, firstLine + removed).clear();
+        if (added != removed) {
+            SortedSet<Integer> after = badLines.tailSet(firstLine + removed);
+            List<Integer>      moved = new ArrayList<>(after);
+            after.clear();
+            for (int index : moved)
+                badLines.add(index + added - removed);
+        }
+        for (int i = 0; i < added; i++) {
+            if (replacement.get(i).kind != TSDProcessor.LINE_OK)
+                badLines.add(firstLine + i);
+        }
+    }
+
+    private static int count(String s, int from, int to) {
+        int newlines = 0;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '\n')
+                newlines++;
+        }
+        return newlines;
+    }
+
+    private void apply(Line line) {
+        if (line.name.isEmpty())
+            emptyNames++;
+        if (line.blank)
+            return;
+        if (nameCounts.merge(line.name, 1, Integer::sum) == 2 && !line.name.isEmpty())
+            duplicateNames++;
+        if (line.kind == TSDProcessor.LINE_OK) {
+            if (validLines.putIfAbsent(line.name, line) != null)
+                moreValid.computeIfAbsent(line.name, name -> new ArrayList<>(1)).add(line);
+            processor.putInstance(line.name, line.label, line.x, line.y);
+        }
+    }
+
+    private void unapply(Line line) {
+        if (line.name.isEmpty())
+            emptyNames--;
+        if (line.blank)
+            return;
+        if (decrement(nameCounts, line.name) == 1 && !line.name.isEmpty())
+            duplicateNames--;
+        if (line.kind == TSDProcessor.LINE_OK) {
+            List<Line> more = moreValid.get(line.name);
+            if (more == null) {
+                validLines.remove(line.name);
+                processor.removeInstance(line.name);
+                stale.remove(line.name);
+                return;
+            }
+            if (validLines.get(line.name) == line)
+                validLines.put(line.name, more.remove(more.size() - 1));
+            else
+                more.remove(line);
+            if (more.isEmpty())
+                moreValid.remove(line.name);
+            stale.add(line.name);
+        }
+    }
+
+    private static int decrement(Map<String, Integer> counts, String name) {
+        Integer count = counts.get(name);
+        if (count == null || count <= 1) {
+            counts.remove(name);
+            return 0;
+        }
+        counts.put(name, count - 1);
+        return count - 1;
+    }
+
+    /**
+     * Finds the first duplicate name and the first unparseable line in the current text. Valid text is confirmed from
+     * the counts kept as lines change; only text with a duplicate name is scanned, to find where it is.
+     *
+     * @return the error message, or <code>null</code> if the text is valid
+     */
+    private String validate() {
+        // split("\n") drops trailing empty lines, except that the empty text is a single empty line
+        int end = lines.size();
+        while (end > 0 && lines.get(end - 1).blank)
+            end--;
+        if (text.isEmpty())
+            end = 1;
+
+        // a name left with a single valid line takes its values; with more, the text has a duplicate name anyway
+        for (Iterator<String> names = stale.iterator(); names.hasNext(); ) {
+            String name = names.next();
+            if (!moreValid.containsKey(name)) {
+                Line line = validLines.get(name);
+                processor.putInstance(line.name, line.label, line.x, line.y);
+                    names.remove();
+            }
+        }
+
+        // the lines after the end are blank, so they are the only ones with an empty name not counted
+        if (duplicateNames > 0 || emptyNames - (lines.size() - end) > 1) {
+            Set<String> seen      = new HashSet<>();
+            boolean     seenEmpty = false;
+            for (int i = 0; i < end; i++) {
+                Line line = lines.get(i);
+                if (line.name.isEmpty()) {
+                    if (seenEmpty)
+                        return TSDProcessor.nameTakenMessage(line.name, i + 1);
+                    seenEmpty = true;
+                } else if (nameCounts.get(line.name) > 1 && !seen.add(line.name)) {
+                    return TSDProcessor.nameTakenMessage(line.name, i + 1);
+                }
+            }
+        }
+        if (badLines.isEmpty() || badLines.first() >= end)
+            return null;
+        Line line = lines.get(badLines.first());
+        return TSDProcessor.lineErrorMessage(line.kind, line.name, badLines.first() + 1);
+    }
+}
@@ -0,0 +1,145 @@
+package dataprocessors;
+
+import dataprocessors.TSDProcessor.LineFields;
+
+/**
+ * Tokenizes one <code>.tsd</code> line in place, working on a window of a {@link CharSequence} given by offsets. It
+ * accepts and rejects exactly the lines that splitting on tabs and commas and calling {@link Double#parseDouble} would,
+ * but without creating the intermediate arrays and substrings: the only strings it makes are the instance name and,
+ * when it differs from the recently seen ones, the label.
+ *
+ * @author kevingray
+ */
+final class TSDLineParser {
+
+    /** 10<sup>i</sup> for every i up to 22; these are all exactly representable as doubles. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private TSDLineParser() {}
+
+    /**
+     * Parses the line in <code>text[from, to)</code>, which must not contain a line terminator.
+     *
+     * @return one of {@link TSDProcessor#LINE_OK}, {@link TSDProcessor#LINE_BAD_NAME} or
+     *         {@link TSDProcessor#LINE_MALFORMED}
+     */
+    static int parse(CharSequence text, int from, int to, LineFields fields) {
+        int nameEnd = indexOf(text, '\t', from, to);
+        fields.name = substring(text, from, nameEnd);
+        fields.column = 0;
+        if (!fields.name.startsWith("@"))
+            return TSDProcessor.LINE_BAD_NAME;
+        fields.column = to - from;
+        if (nameEnd == to)
+            return TSDProcessor.LINE_MALFORMED;
+        int labelEnd = indexOf(text, '\t', nameEnd + 1, to);
+        if (labelEnd == to)
+            return TSDProcessor.LINE_MALFORMED;
+        int pairStart = labelEnd + 1;
+        int pairEnd   = indexOf(text, '\t', pairStart, to);
+        int comma     = indexOf(text, ',', pairStart, pairEnd);
+        fields.column = pairStart - from;
+        // an empty third field, a missing comma, or an empty coordinate all fail the same way in split/parseDouble
+        if (comma == pairEnd)
+            return TSDProcessor.LINE_MALFORMED;
+        int yEnd = indexOf(text, ',', comma + 1, pairEnd);
+        try {
+            fields.x = parseDouble(text, pairStart, comma);
+            fields.column = comma + 1 - from;
+            fields.y = parseDouble(text, comma + 1, yEnd);
+        } catch (NumberFormatException e) {
+            return TSDProcessor.LINE_MALFORMED;
+        }
+        fields.label = label(text, nameEnd + 1, labelEnd, fields);
+        return TSDProcessor.LINE_OK;
+    }
+
+    /**
+     * Parses <code>text[from, to)</code> with the same result as {@link Double#parseDouble(String)} on that substring.
+     * Plain decimals with up to 15 significant digits, which is what <code>.tsd</code> files hold in practice, are
+     * computed directly; this is exact because both the digits and the power of ten are exactly representable, so the
+     * single division rounds correctly. Anything else is handed to {@link Double#parseDouble(String)}.
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    static double parseDouble(CharSequence text, int from, int to) {
+        int start = from;
+        int end   = to;
+        while (start < end && text.charAt(start) <= ' ')
+            start++;
+        while (end > start && text.charAt(end - 1) <= ' ')
+            end--;
+
+        int     i        = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+'))
+            negative = text.charAt(i++) == '-';
+        long    mantissa    = 0;
+        int     digits      = 0;  // all digits
+        int     significant = 0;  // digits from the first non-zero one on
+        int     fraction    = -1; // digits after the decimal point, or -1 if there is no point
+        boolean simple      = true;
+        for (; i < end && simple; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (mantissa != 0)
+                    significant++;
+                if (fraction >= 0)
+                    fraction++;
+                simple = significant <= 15;
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                simple = false;
+            }
+        }
+        if (simple && digits > 0 && fraction < POWERS_OF_TEN.length) {
+            double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text.subSequence(from, to).toString());
+    }
+
+    private static int indexOf(CharSequence text, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c)
+                return i;
+        }
+        return to;
+    }
+
+    /** Returns the label in <code>text[from, to)</code>, reusing the string from a recent line if it is the same. */
+    private static String label(CharSequence text, int from, int to, LineFields fields) {
+        String[] recent = fields.recentLabels;
+        for (String label : recent) {
+            if (label != null && label.length() == to - from && matches(label, text, from))
+                return label;
+        }
+        String label = substring(text, from, to);
+        recent[fields.nextRecentLabel] = label;
+        fields.nextRecentLabel = (fields.nextRecentLabel + 1) % recent.length;
+        return label;
+    }
+
+    private static boolean matches(String label, CharSequence text, int from) {
+        for (int i = 0; i < label.length(); i++) {
+            if (label.charAt(i) != text.charAt(from + i))
+                return false;
+        }
+        return true;
+    }
+
+    private static String substring(CharSequence text, int from, int to) {
+        if (text instanceof String)
+            return ((String) text).substring(from, to);
+        return text.subSequence(from, to).toString();
+    }
+}
@@ -1,32 +1,34 @@
 package dataprocessors;
 
-import javafx.geometry.Point2D;
-import javafx.scene.chart.XYChart;
-
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 //import java.util.regex.Matcher;
 //import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 /**
  * The data files used by this data visualization applications follow a tab-separated format, where each data point is
  * named, labeled, and has a specific location in the 2-dimensional X-Y plane. This class handles the parsing and
- * processing of such data. It also handles exporting the data to a 2-D plot.
+ * processing of such data; the display draws the result through {@link ChartDownsampler} and the renderers.
  * <p>
  * A sample file in this format has been provided in the application's <code>resources/data</code> folder.
  *
  * @author Ritwik Banerjee
- * @see XYChart
  */
 public final class TSDProcessor {
     
     private double sumOfY;
-    private int divBy;
     private double largestX;
+    private boolean largestXStale; // set when the instance holding largestX is removed or moved
     
     private static final String ERROR_ON_LINE = "Error on Line ";
 
+    /** The name of the line drawn at the average y value. */
+    static final String AVERAGE_LINE = "Average";
+
     public static class InvalidDataNameException extends Exception {
 
         private static final String NAME_ERROR_MSG = "All data instance names must start with the @ character.";
@@ -45,14 +47,33 @@ public final class TSDProcessor {
         }
     }
 
-    private Map<String, String>  dataLabels;
-    private Map<String, Point2D> dataPoints;
+    /** A <code>.tsd</code> input that does not load, with the number of the line its message is about. */
+    public static class InvalidTSDException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int lineNumber;
+
+        InvalidTSDException(String message, int lineNumber) {
+            super(message);
+            this.lineNumber = lineNumber;
+        }
+
+        /** @return the line of the input, counting from 1, that the message is about */
+        public int getLineNumber() { return lineNumber; }
+    }
+
+    /**
+     * The instances, as the last load left them or as edited since. Once the data set has been handed out, by a load or
+     * by {@link #share()}, it is copied before the next edit changes it, so whoever holds it sees it stay as it was.
+     */
+    private DataSet data;
+    private boolean shared;
     private int lineNumber;
     private HashSet<String> nameCheck;
 
     public TSDProcessor() {
-        dataLabels = new HashMap<>();
-        dataPoints = new HashMap<>();
+        data = new DataSet();
     }
     
     private synchronized void incLineNumber() {
@@ -60,113 +81,367 @@ public final class TSDProcessor {
     }
 
     /**
-     * Processes the data and populated two {@link Map} objects with the data.
+     * Loads a <code>.tsd</code> file, or a binary snapshot if its name ends in {@link TSDBinaryFormat#EXTENSION}, the
+     * way the application does but without it: the same checks, the same messages, and the chunked loader for large
+     * files.
+     *
+     * @return the data set built from the file
+     * @throws IOException         if the file cannot be read, or is named as a snapshot and is not one
+     * @throws InvalidTSDException if a line of the file does not parse or repeats a name
+     */
+    public static DataSet load(Path tsdFilePath) throws IOException, InvalidTSDException {
+        boolean binary = tsdFilePath.toString().endsWith(TSDBinaryFormat.EXTENSION);
+        return new TSDProcessor().load(tsdFilePath, binary, new StringBuilder(), 0);
+    }
+
+    /**
+     * Loads the file as this processor's instances, reading a binary snapshot if <code>binary</code> is set, large text
+     * files with a {@link TSDChunkedLoader} and the rest with {@link #processLines}. On failure the processor keeps the
+     * instances it had.
+     *
+     * @param preview      receives the first <code>previewLines</code> lines of the file, as <code>.tsd</code> text
+     * @param previewLines the number of lines to copy into <code>preview</code>
+     * @return the data set built from the file
+     */
+    DataSet load(Path tsdFilePath, boolean binary, StringBuilder preview, int previewLines)
+            throws IOException, InvalidTSDException {
+        if (binary) {
+            DataSet dataSet = TSDBinaryFormat.read(tsdFilePath);
+            processDataSet(dataSet);
+            TSDBinaryFormat.appendTSD(dataSet, 0, Math.min(previewLines, dataSet.size()), preview);
+            return dataSet;
+        }
+        if (Files.size(tsdFilePath) >= TSDChunkedLoader.MIN_PARALLEL_SIZE)
+            return new TSDChunkedLoader(this).load(tsdFilePath, preview, previewLines);
+        try (BufferedReader reader = new BufferedReader(new FileReader(tsdFilePath.toString()))) {
+            return processLines(reader, preview, previewLines);
+        }
+    }
+
+    /**
+     * Processes the data, adding its instances to this processor's.
      *
      * @param tsdString the input data provided as a single {@link String}
      * @throws Exception if the input string does not follow the <code>.tsd</code> data format
      */
     void processString(String tsdString) throws Exception {
         lineNumber = 0;
-        sumOfY = 0;
-        divBy = 0;
-        largestX = 0;
-        AtomicBoolean hadAnError   = new AtomicBoolean(false);
         StringBuilder errorMessage = new StringBuilder(0);
-        Stream.of(tsdString.split("\n"))
-              .map(line -> Arrays.asList(line.split("\t")))
-              .forEach((List<String> list) -> {
-                  try {
-                      incLineNumber();
-                      String   name  = checkedname(list.get(0));
-                      String   label = list.get(1);
-                      String[] pair  = list.get(2).split(",");
-                      sumOfY += Double.parseDouble(pair[1]);
-                      divBy++;
-                      
-                      if(Double.parseDouble(pair[0]) > largestX) {
-                          largestX = Double.parseDouble(pair[0]);
-                      }
-                      Point2D  point = new Point2D(Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
-                      dataLabels.put(name, label);
-                      dataPoints.put(name, point);
-
-                  } catch (InvalidDataNameException e) {
-                      if(!(errorMessage.length() > 0)) {
-                        errorMessage.append(getClass().getSimpleName()).append(": ").append(e.getMessage());
-                        hadAnError.set(true);
-                      }
-
-                  } catch (Exception e) {
-                      if(!(errorMessage.length() > 0)) {
-                          errorMessage.append(getClass().getSimpleName()).append(": ").append(ERROR_ON_LINE).append(lineNumber).append("\n");
-                      }
-                      hadAnError.set(true);
-                  }
-              });
+        LineFields    fields       = new LineFields();
+        // split("\n") drops trailing empty lines, except that the empty string is a single empty line
+        int end = tsdString.length();
+        while (end > 0 && tsdString.charAt(end - 1) == '\n')
+            end--;
+        for (int from = 0; end > 0 || tsdString.isEmpty(); ) {
+            int to = tsdString.indexOf('\n', from);
+            if (to < 0 || to > end)
+                to = end;
+            incLineNumber();
+            int kind = parseLine(tsdString, from, to, fields);
+            if (kind == LINE_OK) {
+                putInstance(fields.name, fields.label, fields.x, fields.y);
+            } else if (errorMessage.length() == 0) {
+                errorMessage.append(lineErrorMessage(kind, fields.name, lineNumber));
+            }
+            if (to == end)
+                break;
+            from = to + 1;
+        }
         if (errorMessage.length() > 0) {
             throw new Exception(errorMessage.toString());
         }
     }
 
     /**
-     * Exports the data to the specified 2-D chart.
+     * Processes the data read from the given reader in a single pass. Every line goes through the same duplicate name
+     * check as {@link #dataNameCheck(String)} and the same parsing as {@link #processString(String)}, and the parsed
+     * instances are added to a new {@link DataSet} as they are read, so the input is never held in memory as a whole.
+     * Once the whole input has loaded, that data set holds this processor's instances too.
      *
-     * @param chart the specified chart
+     * @param reader       the source of the <code>.tsd</code> data
+     * @param preview      receives the first <code>previewLines</code> lines of the input, each followed by a newline
+     * @param previewLines the number of lines to copy into <code>preview</code>
+     * @return the data set built from the input
+     * @throws IOException         if the reader fails
+     * @throws InvalidTSDException with the same message as {@link #dataNameCheck(String)} or
+     *                             {@link #processString(String)} would have thrown for the same input
      */
-    public void toChartData(XYChart<Number, Number> chart) {
-        Set<String> labels = new HashSet<>(dataLabels.values());
-        sumOfY = sumOfY / divBy;
-        XYChart.Series<Number, Number> avgLine = new XYChart.Series<>();
-        avgLine.setName("Average");
-        avgLine.getData().add(new XYChart.Data<>(0, sumOfY));
-        avgLine.getData().add(new XYChart.Data<>(largestX, sumOfY));
-        chart.getData().add(avgLine);
-        for (String label : labels) {
-            XYChart.Series<Number, Number> series = new XYChart.Series<>();
-            series.setName(label);
-            dataLabels.entrySet().stream().filter(entry -> entry.getValue().equals(label)).forEach(entry -> {
-                Point2D point = dataPoints.get(entry.getKey());
-                series.getData().add(new XYChart.Data<>(point.getX(), point.getY()));
-            });
-            chart.getData().add(series);
+    DataSet processLines(BufferedReader reader, StringBuilder preview, int previewLines)
+            throws IOException, InvalidTSDException {
+        Load       load   = new Load(preview, previewLines);
+        LineFields fields = new LineFields();
+        String     line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty())
+                load.blankLine();
+            else
+                load.line(line, parseLine(line, fields), fields);
         }
+        return load.finish();
     }
-    
+
+    /**
+     * Takes an already built data set, e.g. one read back by {@link TSDBinaryFormat}, as this processor's instances,
+     * as if they had been parsed from text. The data set is shared, not copied, and must not be changed afterwards.
+     */
+    void processDataSet(DataSet dataSet) {
+        lineNumber = 0;
+        adopt(dataSet);
+    }
+
+    /** Makes the data set this processor's instances, working out the totals for the average line from its columns. */
+    private void adopt(DataSet dataSet) {
+        double[] xs = dataSet.getXColumn();
+        double[] ys = dataSet.getYColumn();
+        data = dataSet;
+        shared = true;
+        sumOfY = 0;
+        largestX = 0;
+        largestXStale = false;
+        for (int i = 0; i < dataSet.size(); i++) {
+            sumOfY += ys[i];
+            if (xs[i] > largestX)
+                largestX = xs[i];
+        }
+    }
+
+    /** Starts a load whose lines are parsed elsewhere, e.g. by {@link TSDChunkedLoader}, and fed in file order. */
+    Load newLoad(StringBuilder preview, int previewLines) {
+        return new Load(preview, previewLines);
+    }
+
+    static final int LINE_OK        = 0;
+    static final int LINE_BAD_NAME  = 1;
+    static final int LINE_MALFORMED = 2;
+
+    /** The fields of one line, filled in by {@link #parseLine(String, LineFields)}. */
+    static final class LineFields {
+        String name;
+        String label;
+        double x;
+        double y;
+        int    column; // for a line that does not parse, the offset in the line of the field at fault
+
+        /** Labels repeat from line to line, so the parser keeps the last few to avoid a new string per line. */
+        final String[] recentLabels = new String[8];
+        int            nextRecentLabel;
+    }
+
+    /**
+     * Parses a single line on its own, without the duplicate name check. The name is always filled in; the label and
+     * coordinates only when the result is {@link #LINE_OK}.
+     *
+     * @return one of {@link #LINE_OK}, {@link #LINE_BAD_NAME} or {@link #LINE_MALFORMED}
+     */
+    static int parseLine(String line, LineFields fields) {
+        return TSDLineParser.parse(line, 0, line.length(), fields);
+    }
+
+    /** Parses the line in <code>text[from, to)</code> without copying it out first; see {@link TSDLineParser}. */
+    static int parseLine(CharSequence text, int from, int to, LineFields fields) {
+        return TSDLineParser.parse(text, from, to, fields);
+    }
+
+    /** The message {@link #dataNameCheck(String)} reports for the first duplicate name, found on the given line. */
+    static String nameTakenMessage(String name, int lineNumber) {
+        return TSDProcessor.class.getSimpleName() + ": " + new NameTakenException(name).getMessage() + lineNumber;
+    }
+
+    /** The message {@link #processString(String)} reports for the first line that does not parse. */
+    static String lineErrorMessage(int kind, String name, int lineNumber) {
+        if (kind == LINE_BAD_NAME)
+            return TSDProcessor.class.getSimpleName() + ": " + new InvalidDataNameException(name).getMessage();
+        return TSDProcessor.class.getSimpleName() + ": " + ERROR_ON_LINE + lineNumber + "\n";
+    }
+
+    /**
+     * The state of one load: lines are fed to it in file order, and it applies the duplicate name check, records the
+     * first error of each kind, and fills in a new {@link DataSet}, which becomes the processor's once the load
+     * finishes without an error. Names are checked against the data set itself, so only the names of lines that do not
+     * parse are kept on the side.
+     */
+    final class Load {
+
+        private final DataSet       dataSet    = new DataSet();
+        private final Set<String>   otherNames = new HashSet<>(); // names of the lines not in the data set
+        private final StringBuilder nameError  = new StringBuilder(0);
+        private final StringBuilder dataError  = new StringBuilder(0);
+        private final StringBuilder preview;
+        private final int           previewLines;
+        private final LineFields    blank      = new LineFields();
+        private final int           blankKind  = parseLine("", blank);
+
+        private int     pendingBlanks;
+        private int     nameErrorLine;
+        private int     dataErrorLine;
+        private boolean emptyInput = true;
+
+        private Load(StringBuilder preview, int previewLines) {
+            this.preview = preview;
+            this.previewLines = previewLines;
+            lineNumber = 0;
+        }
+
+        /** Feeds an empty line. */
+        void blankLine() {
+            emptyInput = false;
+            pendingBlanks++;
+        }
+
+        /**
+         * Feeds a non-empty line. The raw text is only used for the preview, so it may be <code>null</code> once the
+         * preview is full.
+         */
+        void line(String raw, int kind, LineFields fields) {
+            emptyInput = false;
+            // trailing blank lines are dropped by split("\n"), so blank lines only count once more data follows them
+            for (; pendingBlanks > 0; pendingBlanks--)
+                accept("", blankKind, blank);
+            accept(raw, kind, fields);
+        }
+
+        /**
+         * @return the data set built from the lines fed so far
+         * @throws InvalidTSDException with the first duplicate name error if there was one, or else the first parsing
+         *                             error
+         */
+        DataSet finish() throws InvalidTSDException {
+            if (emptyInput)
+                accept("", blankKind, blank);
+            if (nameError.length() > 0)
+                throw new InvalidTSDException(nameError.toString(), nameErrorLine);
+            if (dataError.length() > 0)
+                throw new InvalidTSDException(dataError.toString(), dataErrorLine);
+            adopt(dataSet);
+            return dataSet;
+        }
+
+        private void accept(String raw, int kind, LineFields fields) {
+            incLineNumber();
+            if (lineNumber <= previewLines)
+                preview.append(raw).append("\n");
+            boolean taken = dataSet.indexOf(fields.name) >= 0 || otherNames.contains(fields.name);
+            if (taken && nameError.length() == 0) {
+                nameError.append(nameTakenMessage(fields.name, lineNumber));
+                nameErrorLine = lineNumber;
+            }
+            if (kind == LINE_OK) {
+                dataSet.addInstance(fields.name, fields.label, fields.x, fields.y);
+            } else {
+                otherNames.add(fields.name);
+                if (dataError.length() == 0) {
+                    dataError.append(lineErrorMessage(kind, fields.name, lineNumber));
+                    dataErrorLine = lineNumber;
+                }
+            }
+        }
+    }
+
     public void dataNameCheck(String data) throws Exception {
-        AtomicBoolean hadAnError   = new AtomicBoolean(false);
         StringBuilder errorMessage = new StringBuilder(0);
         nameCheck = new HashSet<>();
         lineNumber = 0;
-        Stream.of(data.split("\n"))
-              .map(line -> Arrays.asList(line.split("\t")))
-              .forEach((List<String> list) -> {
-                  try {
-                      incLineNumber();
-                      String   name  = nameExists(list.get(0));
-                      nameCheck.add(name);
-                  } catch (NameTakenException e) {
-                      if(!(errorMessage.length() > 0)) {
-                        errorMessage.append(getClass().getSimpleName()).append(": ").append(e.getMessage()).append(lineNumber);
-                        hadAnError.set(true);
-                      }
-                  }
-              });
+        int end = data.length();
+        while (end > 0 && data.charAt(end - 1) == '\n')
+            end--;
+        for (int from = 0; end > 0 || data.isEmpty(); ) {
+            int to = data.indexOf('\n', from);
+            if (to < 0 || to > end)
+                to = end;
+            incLineNumber();
+            int tab = from;
+            while (tab < to && data.charAt(tab) != '\t')
+                tab++;
+            try {
+                String name = nameExists(data.substring(from, tab));
+                nameCheck.add(name);
+            } catch (NameTakenException e) {
+                if(!(errorMessage.length() > 0)) {
+                    errorMessage.append(getClass().getSimpleName()).append(": ").append(e.getMessage()).append(lineNumber);
+                }
+            }
+            if (to == end)
+                break;
+            from = to + 1;
+        }
         if (errorMessage.length() > 0) {
             throw new Exception(errorMessage.toString());
         }
     }
 
     void clear() {
-        dataPoints.clear();
-        dataLabels.clear();
+        data = new DataSet();
+        shared = false;
+        sumOfY = 0;
+        largestX = 0;
+        largestXStale = false;
     }
 
-    private String checkedname(String name) throws InvalidDataNameException {
-        if (!name.startsWith("@")) 
-            throw new InvalidDataNameException(name);
-        return name;
+    /**
+     * Adds a single instance to the maps, replacing any instance of the same name, and keeps the running totals used
+     * for the average line up to date. Used by {@link TSDEditTracker} to apply edits one line at a time.
+     */
+    void putInstance(String name, String label, double x, double y) {
+        unshare();
+        int old = data.indexOf(name);
+        if (old >= 0) {
+            sumOfY -= data.getY(old);
+            if (data.getX(old) >= largestX)
+                largestXStale = true;
+        }
+        sumOfY += y;
+        if (x > largestX)
+            largestX = x;
+        data.addInstance(name, label, x, y);
     }
-    
+
+    /** Removes a single instance, the counterpart of {@link #putInstance}. */
+    void removeInstance(String name) {
+        int old = data.indexOf(name);
+        if (old < 0)
+            return;
+        unshare();
+        sumOfY -= data.getY(old);
+        if (data.getX(old) >= largestX)
+            largestXStale = true;
+        data.removeInstance(name);
+    }
+
+    /**
+     * @return the instances as they are now; later edits go to a copy, so the data set returned does not change and
+     *         is only copied if there are any
+     */
+    DataSet share() {
+        shared = true;
+        return data;
+    }
+
+    private void unshare() {
+        if (shared) {
+            data = data.copy();
+            shared = false;
+        }
+    }
+
+    /** @return the average y value of the instances */
+    double getAverageY() {
+        return sumOfY / data.size();
+    }
+
+    /** @return the largest x value of the instances, or 0 if they are all negative */
+    double getLargestX() {
+        if (largestXStale) {
+            largestX = 0;
+            double[] xs = data.getXColumn();
+            for (int i = 0; i < data.size(); i++) {
+                if (xs[i] > largestX)
+                    largestX = xs[i];
+            }
+            largestXStale = false;
+        }
+        return largestX;
+    }
+
     private String nameExists(String name) throws NameTakenException {
         if(nameCheck.contains(name))
             throw new NameTakenException(name);
@@ -174,28 +449,18 @@ public final class TSDProcessor {
     }
     
     public int getNumInstances() {
-        return dataPoints.size();
+        return data.size();
     }
     
+    /** @return the number of distinct labels among the instances, kept up to date as they are added and removed */
     public int getNumLabels() {
-        LinkedList<String> uniqueLabels = new LinkedList();
-        dataLabels.values().forEach((dat) -> {
-            if(!uniqueLabels.contains(dat)) {
-                uniqueLabels.add(dat);
-            }
-        });
-        return uniqueLabels.size();
+        return data.getLabelDictionary().getNumLabels();
     }
     
+    /** @return the distinct labels among the instances, each followed by a comma and a space */
     public String getLabels() {
         StringBuilder labels = new StringBuilder();
-        LinkedList<String> uniqueLabels = new LinkedList();
-        dataLabels.values().forEach((dat) -> {
-            if(!uniqueLabels.contains(dat)) {
-                uniqueLabels.add(dat);
-            }
-        });
-        uniqueLabels.forEach((dat) -> {
+        data.getLabelDictionary().getLabels().forEach((dat) -> {
             labels.append(dat).append(", ");
         });
         return labels.toString();
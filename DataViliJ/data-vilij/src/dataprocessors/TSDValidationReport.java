@@ -0,0 +1,96 @@
+package dataprocessors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The problems found by validating <code>.tsd</code> input in one pass, in line order. Only the first
+ * {@link #getMaxProblems()} problems are kept; {@link #isTruncated()} tells whether there were more.
+ *
+ * @author kevingray
+ */
+public final class TSDValidationReport {
+
+    public enum Kind {
+        /** The instance name does not start with <code>@</code>. */
+        BAD_NAME,
+        /** The instance name was already used on an earlier line. */
+        DUPLICATE_NAME,
+        /** The line does not have a label and an <code>x,y</code> pair of numbers. */
+        MALFORMED
+    }
+
+    /** One problem on one line. */
+    public static final class Problem {
+
+        private final int    line;
+        private final int    column;
+        private final Kind   kind;
+        private final String name;
+        private final String message;
+
+        Problem(int line, int column, Kind kind, String name, String message) {
+            this.line = line;
+            this.column = column;
+            this.kind = kind;
+            this.name = name;
+            this.message = message;
+        }
+
+        /** @return the line number, starting from 1 */
+        public int getLine()       { return line; }
+
+        /** @return the column of the field at fault, starting from 1 */
+        public int getColumn()     { return column; }
+
+        public Kind getKind()      { return kind; }
+
+        /** @return the instance name on the line, as far as it could be read */
+        public String getName()    { return name; }
+
+        /** @return the message the loaders report when this is the first problem in the input */
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return String.format("%d:%d %s", line, column, message.trim());
+        }
+    }
+
+    private final List<Problem> problems;
+    private final int           maxProblems;
+    private final boolean       truncated;
+
+    TSDValidationReport(List<Problem> problems, int maxProblems, boolean truncated) {
+        this.problems = Collections.unmodifiableList(new ArrayList<>(problems));
+        this.maxProblems = maxProblems;
+        this.truncated = truncated;
+    }
+
+    /** @return the problems found, in line order, at most {@link #getMaxProblems()} of them */
+    public List<Problem> getProblems() { return problems; }
+
+    public int getMaxProblems()        { return maxProblems; }
+
+    /** @return whether the input has more problems than the report holds */
+    public boolean isTruncated()       { return truncated; }
+
+    /** @return whether the input is valid */
+    public boolean isEmpty()           { return problems.isEmpty(); }
+
+    /**
+     * Splits the problems into pages of at most <code>perPage</code> lines of text each, one problem per line, e.g. for
+     * an error dialog to page through.
+     */
+    public List<String> toPages(int perPage) {
+        List<String> pages = new ArrayList<>();
+        for (int from = 0; from < problems.size(); from += perPage) {
+            StringBuilder page = new StringBuilder();
+            for (int i = from; i < Math.min(problems.size(), from + perPage); i++)
+                page.append(problems.get(i)).append('\n');
+            pages.add(page.toString());
+        }
+        return pages;
+    }
+}
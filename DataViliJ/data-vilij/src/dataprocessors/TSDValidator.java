@@ -0,0 +1,193 @@
+package dataprocessors;
+
+import dataprocessors.TSDProcessor.LineFields;
+import dataprocessors.TSDValidationReport.Kind;
+import dataprocessors.TSDValidationReport.Problem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validates <code>.tsd</code> input without stopping at the first problem. The input is cut into line-aligned chunks
+ * that are parsed in parallel on a {@link ForkJoinPool}; the duplicate name check then runs over the chunks' names in
+ * order. Lines count the same way as in {@link TSDProcessor#processString(String)}: empty lines at the end of the input
+ * are not lines at all, while empty lines before the last instance are lines with an empty, and so invalid, name.
+ *
+ * @author kevingray
+ * @see TSDChunkedLoader#validate
+ */
+final class TSDValidator {
+
+    private static final int DEFAULT_CHUNK_CHARS = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int          maxProblems;
+    private final int          chunkChars;
+
+    /** @param maxProblems the number of problems after which the report is cut off */
+    TSDValidator(int maxProblems) {
+        this(ForkJoinPool.commonPool(), maxProblems, DEFAULT_CHUNK_CHARS);
+    }
+
+    TSDValidator(ForkJoinPool pool, int maxProblems, int chunkChars) {
+        this.pool = pool;
+        this.maxProblems = maxProblems;
+        this.chunkChars = chunkChars;
+    }
+
+    TSDValidationReport validate(CharSequence text) {
+        List<ScanTask> tasks = new ArrayList<>();
+        int            end   = text.length();
+        for (int from = 0; from < end; ) {
+            int to = Math.min(end, from + chunkChars);
+            while (to < end && text.charAt(to - 1) != '\n')
+                to++;
+            tasks.add(new ScanTask(text, from, to, maxProblems));
+            from = to;
+        }
+        for (ScanTask task : tasks)
+            pool.execute(task);
+        List<Scan> scans = new ArrayList<>(tasks.size());
+        for (ScanTask task : tasks)
+            scans.add(task.join());
+        return merge(scans, end == 0, maxProblems);
+    }
+
+    /** The names and the per-line problems of one chunk. Line numbers in the problems count from 0 within the chunk. */
+    static final class Scan {
+
+        private final LineFields    fields   = new LineFields();
+        private final List<Problem> problems = new ArrayList<>();
+        private final int           maxProblems;
+
+        private int      count;
+        private String[] names = new String[1024]; // null for an empty line
+
+        Scan(int maxProblems) { this.maxProblems = maxProblems; }
+
+        private void add(CharSequence chars, int from, int to) {
+            if (count == names.length)
+                names = Arrays.copyOf(names, count * 2);
+            if (from == to) {
+                count++;
+                return;
+            }
+            int kind = TSDProcessor.parseLine(chars, from, to, fields);
+            names[count] = fields.name;
+            // a chunk never contributes more than maxProblems + 1 problems to the first maxProblems + 1 overall
+            if (kind != TSDProcessor.LINE_OK && problems.size() <= maxProblems) {
+                problems.add(new Problem(count, fields.column + 1,
+                                         kind == TSDProcessor.LINE_BAD_NAME ? Kind.BAD_NAME : Kind.MALFORMED,
+                                         fields.name, null));
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Parses the lines in <code>chars[from, to)</code>, which must start at the beginning of a line. Lines end with
+     * <code>\n</code>, <code>\r</code> or <code>\r\n</code>, as for {@link java.io.BufferedReader#readLine()}.
+     */
+    static Scan scan(CharSequence chars, int from, int to, int maxProblems) {
+        Scan scan  = new Scan(maxProblems);
+        int  start = from;
+        for (int i = from; i < to; i++) {
+            char c = chars.charAt(i);
+            if (c == '\n' || c == '\r') {
+                scan.add(chars, start, i);
+                if (c == '\r' && i + 1 < to && chars.charAt(i + 1) == '\n')
+                    i++;
+                start = i + 1;
+            }
+        }
+        if (start < to)
+            scan.add(chars, start, to);
+        return scan;
+    }
+
+    /**
+     * Puts the chunks' results together in order: numbers the lines, finds the duplicate names, and keeps the first
+     * <code>maxProblems</code> problems.
+     *
+     * @param emptyInput whether the input has no characters at all, which counts as a single empty line
+     */
+    static TSDValidationReport merge(List<Scan> scans, boolean emptyInput, int maxProblems) {
+        List<Problem> problems = new ArrayList<>();
+        if (emptyInput) {
+            problems.add(problem(1, 1, Kind.BAD_NAME, ""));
+            return new TSDValidationReport(problems, maxProblems, false);
+        }
+        int lastLine = 0; // the number of the last non-empty line
+        int offset   = 0;
+        for (Scan scan : scans) {
+            for (int i = 0; i < scan.count; i++) {
+                if (scan.names[i] != null)
+                    lastLine = offset + i + 1;
+            }
+            offset += scan.count;
+        }
+
+        Set<String> seen       = new HashSet<>();
+        int         duplicates = 0;
+        int         empties    = 0;
+        offset = 0;
+        for (Scan scan : scans) {
+            for (Problem local : scan.problems)
+                problems.add(problem(offset + local.getLine() + 1, local.getColumn(), local.getKind(), local.getName()));
+            for (int i = 0; i < scan.count && offset + i < lastLine; i++) {
+                String name = scan.names[i] == null ? "" : scan.names[i];
+                if (scan.names[i] == null && empties++ <= maxProblems)
+                    problems.add(problem(offset + i + 1, 1, Kind.BAD_NAME, name));
+                if (!seen.add(name) && duplicates++ <= maxProblems)
+                    problems.add(problem(offset + i + 1, 1, Kind.DUPLICATE_NAME, name));
+            }
+            offset += scan.count;
+        }
+
+        problems.sort(Comparator.comparingInt(Problem::getLine)
+                                .thenComparingInt(Problem::getColumn)
+                                .thenComparing(Problem::getKind));
+        boolean truncated = problems.size() > maxProblems;
+        return new TSDValidationReport(truncated ? problems.subList(0, maxProblems) : problems, maxProblems, truncated);
+    }
+
+    private static Problem problem(int line, int column, Kind kind, String name) {
+        String message;
+        switch (kind) {
+            case DUPLICATE_NAME:
+                message = TSDProcessor.nameTakenMessage(name, line);
+                break;
+            case BAD_NAME:
+                message = TSDProcessor.lineErrorMessage(TSDProcessor.LINE_BAD_NAME, name, line);
+                break;
+            default:
+                message = TSDProcessor.lineErrorMessage(TSDProcessor.LINE_MALFORMED, name, line);
+        }
+        return new Problem(line, column, kind, name, message);
+    }
+
+    private static final class ScanTask extends RecursiveTask<Scan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int          from;
+        private final int          to;
+        private final int          maxProblems;
+
+        ScanTask(CharSequence text, int from, int to, int maxProblems) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.maxProblems = maxProblems;
+        }
+
+        @Override
+        protected Scan compute() { return scan(text, from, to, maxProblems); }
+    }
+}
@@ -45,11 +45,14 @@ public enum AppPropertyTypes {
     /* application-specific parameters */
     DATA_FILE_EXT,
     DATA_FILE_EXT_DESC,
+    BINARY_DATA_FILE_EXT,
+    BINARY_DATA_FILE_EXT_DESC,
     TEXT_AREA,
     SPECIFIED_FILE,
     DISPLAY_BUTTON_TEXT,
     CHART_TITLE,
     LOADING_10_OF,
+    MORE_PROBLEMS,
     PNG_FILE_EXT,
     PNG_FILE_EXT_DESC,
     CLASSIFICATION_ALG,
@@ -58,13 +61,21 @@ public enum AppPropertyTypes {
     LABEL_COUNT_LABEL,
     LABEL_NAMES_LABEL,
     SOURCE_LABEL,
-    MAX_ITERATIONS_LABEL,
-    UPDATE_INTERVAL_LABEL,
-    CONTINUOUS_RUN_LABEL,
+    MAX_SPEED_LABEL,
+    RUN_SPEED_LABEL,
     RETURN_LABEL,
-    CLUSTERING_NUMBER_LABEL,
+    RENDERER_LABEL,
+    CHART_RENDERER,
+    CANVAS_RENDERER,
+    EXPORT_SIZE_TITLE,
+    EXPORT_SIZE,
+    EXPORT_PROGRESS_TITLE,
+    CANCEL_LABEL,
+    DENSITY_THRESHOLD,
     EXIT_WHILE_RUNNING,
     EXIT_WHILE_RUNNING_TITLE,
     INVALID_ALGORITHM_PARAMETERS_TITLE,
-    INVALID_ALGORITHM_PARAMETERS
+    INVALID_ALGORITHM_PARAMETERS,
+    ALGORITHMS_SKIPPED_TITLE,
+    ALGORITHMS_SKIPPED
 }
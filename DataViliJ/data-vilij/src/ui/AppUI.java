@@ -1,23 +1,29 @@
 package ui;
 
 import actions.AppActions;
-import algorithms.Algorithm;
-import algorithms.Clusterer;
-import classification.RandomClassifier;
-import clustering.KMeansClusterer;
-import clustering.RandomClusterer;
+import algorithms.AlgorithmDescriptor;
+import algorithms.AlgorithmRegistry;
+import algorithms.AlgorithmScheduler;
+import algorithms.Parameter;
+import algorithms.ParameterValues;
+import algorithms.RunHandle;
+import algorithms.RunSnapshot;
 import dataprocessors.AppData;
+import dataprocessors.DataSet;
 import static java.io.File.separator;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
+import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
-import javafx.scene.chart.XYChart.Series;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
@@ -25,8 +31,10 @@ import javafx.scene.control.RadioButton;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.Toggle;
 import javafx.scene.control.ToggleGroup;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import settings.AppPropertyTypes;
@@ -51,6 +59,15 @@ public final class AppUI extends UITemplate {
     @SuppressWarnings("FieldCanBeLocal")
     private Button                       scrnshotButton; // toolbar button to take a screenshot of the data
     private LineChart<Number, Number>    chart;          // the chart where data will be displayed
+    private LineChartRenderer            chartRenderer;  // draws data sets in the chart, a bounded number of points at a time
+    private CanvasScatterRenderer        canvasRenderer; // draws every point straight onto a canvas
+    private DataRenderer                 renderer;       // whichever of the two is in use
+    private DataSet                      shownDataSet;   // what the renderer shows, to carry over when switching
+    private final List<RunSnapshot.Line> shownLines = new ArrayList<>();
+    private final FramePacedPublisher<RunSnapshot> runUpdates = new FramePacedPublisher<>(this::present);
+    private RadioButton chartRendererButton, canvasRendererButton;
+    private ToggleGroup selectRenderer;
+    private final Tooltip instanceTip = new Tooltip(); // names the instance under the mouse
     private TextArea                     textArea;       // text area for new data input
     private boolean                      hasNewText;     // whether or not the text area has any new data since last display
     private String scrnshotIconPath, runIconPath, settingsIconPath, editIconPath;
@@ -60,20 +77,20 @@ public final class AppUI extends UITemplate {
     private Label instanceCount, labelCount, labelNames, source;
     private Button editText;
     private int numLabels;
-    private RadioButton clusteringAlg1, clusteringAlg2;
-    private RadioButton classificationAlg1;
-    private ToggleGroup selectClassificationAlg, selectClusteringAlg;
-    private HBox alg1Layout, alg2Layout;
-    private Button alg1Settings, alg2Settings, run;
+    private ToggleGroup selectAlg;  // the algorithms of the chosen type, each carrying its descriptor as user data
+    private VBox algLayout;         // a choice and a settings button for each algorithm of the chosen type
+    private Button run;
+    private CheckBox maxSpeed;     // runs to completion, showing only the result
+    private Label runSpeed;        // how fast the last run went
     private GridPane mainPane;
     private VBox leftPanel;
-    private boolean isClassification;
-    private final HashMap<RadioButton, Algorithm> algList = new HashMap<>();
-    private static final AtomicInteger globalTimer = new AtomicInteger(0);
-    private static final AtomicBoolean runInProgress = new AtomicBoolean(false);
-    private static final AtomicInteger flag = new AtomicInteger(0);
+    private final HashMap<AlgorithmDescriptor, ParameterValues> algSettings = new HashMap<>(); // as last configured
+    private final AlgorithmScheduler scheduler = new AlgorithmScheduler(this::publish);
+    private RunHandle currentRun;  // the run the run button starts and resumes, or null before the first
+    private boolean skippedShown;  // whether the algorithms the registry left out have been reported
     
-    public LineChart<Number, Number> getChart() { return chart; }
+    /** @return the node the data is currently drawn in */
+    public Region getChart() { return renderer.getNode(); }
 
     public AppUI(Stage primaryStage, ApplicationTemplate applicationTemplate) {
         super(primaryStage, applicationTemplate);
@@ -157,38 +174,16 @@ public final class AppUI extends UITemplate {
         selectAlgType = new ToggleGroup();
         selectAlgType.getToggles().addAll(algType1, algType2);
         
-        classificationAlg1 = new RadioButton("RandomClassifier ");
-        classificationAlg1.getStyleClass().add("app-radio-button");
-        algList.put(classificationAlg1, new RandomClassifier());
-//        classificationAlg2 = new RadioButton("Classification Algorithm 2 ");
-//        classificationAlg2.getStyleClass().add("app-radio-button");
-//        algList.put(classificationAlg2, new ClassificationParameters());
-//        classificationAlg3 = new RadioButton("Classification Algorithm 3 ");
-//        classificationAlg3.getStyleClass().add("app-radio-button");
-//        algList.put(classificationAlg3, new ClassificationParameters());
-        selectClassificationAlg = new ToggleGroup();
-        selectClassificationAlg.getToggles().add(classificationAlg1);
-        
-        clusteringAlg1 = new RadioButton("Random Clusterer");
-        algList.put(clusteringAlg1, new RandomClusterer());
-        clusteringAlg2 = new RadioButton("K Means Clusterer");
-        algList.put(clusteringAlg2, new KMeansClusterer());
-//        clusteringAlg3 = new RadioButton("Clustering Algorithm 3 ");
-//        algList.put(clusteringAlg3, new ClusteringParameters());
-        selectClusteringAlg = new ToggleGroup();
-        selectClusteringAlg.getToggles().addAll(clusteringAlg1, clusteringAlg2);
-        
-        alg1Layout = new HBox();
-        alg2Layout = new HBox();
-        
-        alg1Settings = setToolbarButton(settingsIconPath, applicationTemplate.manager.getPropertyValue(SETTINGS_TOOLTIP.name()), false);
-        alg2Settings = setToolbarButton(settingsIconPath, applicationTemplate.manager.getPropertyValue(SETTINGS_TOOLTIP.name()), false);
-        
-        alg1Layout.setVisible(false);
-        alg2Layout.setVisible(false);
+        selectAlg = new ToggleGroup();
+        algLayout = new VBox();
         
         run = setToolbarButton(runIconPath, applicationTemplate.manager.getPropertyValue(RUN_TOOLTIP.name()), false);
         run.setVisible(false);
+        maxSpeed = new CheckBox(manager.getPropertyValue(MAX_SPEED_LABEL.name()));
+        maxSpeed.visibleProperty().bind(run.visibleProperty());
+        HBox runLayout = new HBox(run, maxSpeed);
+        runLayout.setAlignment(Pos.CENTER_LEFT);
+        runSpeed = new Label();
         
         instanceCount = new Label();
         instanceCount.setWrapText(true);
@@ -204,8 +199,18 @@ public final class AppUI extends UITemplate {
         
         newButton.setDisable(false);
         
+        chartRendererButton = new RadioButton(manager.getPropertyValue(CHART_RENDERER.name()));
+        chartRendererButton.getStyleClass().add("app-radio-button");
+        canvasRendererButton = new RadioButton(manager.getPropertyValue(CANVAS_RENDERER.name()));
+        canvasRendererButton.getStyleClass().add("app-radio-button");
+        selectRenderer = new ToggleGroup();
+        selectRenderer.getToggles().addAll(chartRendererButton, canvasRendererButton);
+        selectRenderer.selectToggle(chartRendererButton);
+        HBox rendererLayout = new HBox(new Label(manager.getPropertyValue(RENDERER_LABEL.name())),
+                                       chartRendererButton, canvasRendererButton);
+        
         leftPanel.getChildren().addAll(textArea, editText, instanceCount, labelCount, labelNames, source, algType1, algType2,
-        alg1Layout, alg2Layout, run);
+        algLayout, runLayout, runSpeed, rendererLayout);
         
         NumberAxis xAxis = new NumberAxis();
         NumberAxis yAxis = new NumberAxis(); 
@@ -214,107 +219,80 @@ public final class AppUI extends UITemplate {
         chart.setHorizontalGridLinesVisible(false);
         chart.setVerticalGridLinesVisible(false);
         chart.setTitle(manager.getPropertyValue(AppPropertyTypes.CHART_TITLE.name()));
+        chartRenderer = new LineChartRenderer(chart);
+        canvasRenderer = new CanvasScatterRenderer();
+        renderer = chartRenderer;
         
         GridPane.setRowIndex(leftPanel, 0);
         GridPane.setColumnIndex(leftPanel, 0);
-        GridPane.setRowIndex(chart, 0);
-        GridPane.setColumnIndex(chart, 1);
+        int densityThreshold = Integer.parseInt(manager.getPropertyValue(AppPropertyTypes.DENSITY_THRESHOLD.name()));
+        for (DataRenderer r : new DataRenderer[]{chartRenderer, canvasRenderer}) {
+            GridPane.setRowIndex(r.getNode(), 0);
+            GridPane.setColumnIndex(r.getNode(), 1);
+            r.setDensityThreshold(densityThreshold);
+        }
         
         mainPane.getStylesheets().add(cssPathUI);
-        mainPane.getChildren().addAll(leftPanel, chart);
+        mainPane.getChildren().addAll(leftPanel, renderer.getNode());
         appPane.getChildren().add(mainPane);
+        runUpdates.start();
     }
     
-    private VBox configPane(String title, Algorithm A, boolean classification) {
+    private VBox configPane(String title, AlgorithmDescriptor descriptor) {
         PropertyManager manager = applicationTemplate.manager;
         ErrorDialog     dialog   = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
         VBox configPane = new VBox();
         Label T = new Label(title);
-        
-        Label maxIt = new Label(manager.getPropertyValue(MAX_ITERATIONS_LABEL.name()));
-        TextArea setMaxIt = new TextArea();
-        setMaxIt.setText(Integer.toString(A.getMaxIterations()));
-        setMaxIt.setPrefRowCount(1);
-        setMaxIt.setPrefColumnCount(10);
-        
-        Label updateInterval = new Label(manager.getPropertyValue(UPDATE_INTERVAL_LABEL.name()));
-        TextArea setUpdateInterval = new TextArea();
-        setUpdateInterval.setText(Integer.toString(A.getUpdateInterval()));
-        setUpdateInterval.setPrefRowCount(1);
-        setUpdateInterval.setPrefColumnCount(10);
-        
-        CheckBox contRun = new CheckBox(manager.getPropertyValue(CONTINUOUS_RUN_LABEL.name()));
-        contRun.setSelected(A.tocontinue());
-        
-        Button ret = new Button(manager.getPropertyValue(RETURN_LABEL.name()));
-        
-        configPane.getChildren().addAll(T, maxIt, setMaxIt, updateInterval, setUpdateInterval, contRun);
-        
-        TextArea setNumberOfClusters = new TextArea();
-        setNumberOfClusters.setVisible(false);
-        if(classification == false) {
-            Label numberOfClusters = new Label(manager.getPropertyValue(CLUSTERING_NUMBER_LABEL.name()));
-            setNumberOfClusters.setText(Integer.toString(((Clusterer) A).getNumberOfClusters()));
-            setNumberOfClusters.setVisible(true);
-            setNumberOfClusters.setPrefRowCount(1);
-            setNumberOfClusters.setPrefColumnCount(10);
-            configPane.getChildren().addAll(numberOfClusters, setNumberOfClusters);
+        configPane.getChildren().add(T);
+        
+        ParameterValues        current = algSettings.getOrDefault(descriptor, ParameterValues.defaults());
+        List<Supplier<String>> inputs  = new ArrayList<>(); // the text of each parameter's value, as entered
+        for (Parameter<?> parameter : descriptor.getParameters()) {
+            Object value = current.get(parameter);
+            if (parameter.getType() == Boolean.class) {
+                CheckBox setValue = new CheckBox(parameter.getLabel());
+                setValue.setSelected((Boolean) value);
+                configPane.getChildren().add(setValue);
+                inputs.add(() -> Boolean.toString(setValue.isSelected()));
+            } else {
+                TextArea setValue = new TextArea(String.valueOf(value));
+                setValue.setPrefRowCount(1);
+                setValue.setPrefColumnCount(10);
+                configPane.getChildren().addAll(new Label(parameter.getLabel()), setValue);
+                inputs.add(setValue::getText);
+            }
         }
         
+        Button ret = new Button(manager.getPropertyValue(RETURN_LABEL.name()));
         ret.setOnAction(e -> {
             try {
-                if(Integer.parseInt(setMaxIt.getText()) < 1 || Integer.parseInt(setUpdateInterval.getText()) < 1)
-                    throw new NumberFormatException();
-                if(classification) {
-                    if(algList.get((RadioButton) selectClassificationAlg.getSelectedToggle()).getClass().equals(RandomClassifier.class)) {
-                        RandomClassifier newAlg = new RandomClassifier(
-                                    ((AppData) applicationTemplate.getDataComponent()).getData(),
-                                    Integer.parseInt(setMaxIt.getText()),
-                                    Integer.parseInt(setUpdateInterval.getText()),
-                                    contRun.isSelected());
-                        newAlg.template = applicationTemplate;
-                        algList.put((RadioButton) selectClassificationAlg.getSelectedToggle(), newAlg);
-                    }
-                } else {
-                    if(algList.get((RadioButton) selectClusteringAlg.getSelectedToggle()).getClass().equals(RandomClusterer.class)) {
-                        RandomClusterer newAlg = new RandomClusterer(
-                                    ((AppData) applicationTemplate.getDataComponent()).getData(),
-                                    Integer.parseInt(setMaxIt.getText()),
-                                    Integer.parseInt(setUpdateInterval.getText()),
-                                    contRun.isSelected(),
-                                    Integer.parseInt(setNumberOfClusters.getText()));
-                        newAlg.template = applicationTemplate;
-                        algList.put((RadioButton) selectClusteringAlg.getSelectedToggle(), newAlg);
-                    } else {
-                        KMeansClusterer newAlg = new KMeansClusterer(
-                                    ((AppData) applicationTemplate.getDataComponent()).getData(),
-                                    Integer.parseInt(setMaxIt.getText()),
-                                    Integer.parseInt(setUpdateInterval.getText()),
-                                    contRun.isSelected(),
-                                    Integer.parseInt(setNumberOfClusters.getText()));
-                        newAlg.template = applicationTemplate;
-                        algList.put((RadioButton) selectClusteringAlg.getSelectedToggle(), newAlg);
-                    }
-                }
+                ParameterValues values = ParameterValues.defaults();
+                for (int i = 0; i < inputs.size(); i++)
+                    values = withParsed(values, descriptor.getParameters().get(i), inputs.get(i).get());
+                algSettings.put(descriptor, values);
                 appPane.getChildren().remove(configPane);
                 appPane.getChildren().addAll(toolBar, mainPane);
                 run.setVisible(true);
-            } catch(NumberFormatException ex) {
+            } catch(IllegalArgumentException ex) {
                 dialog.show(manager.getPropertyValue((INVALID_ALGORITHM_PARAMETERS_TITLE).name()),
                             manager.getPropertyValue((INVALID_ALGORITHM_PARAMETERS).name()));
             }
-            
         });
         
         configPane.getChildren().add(ret);
         return configPane;
     }
     
+    private static <T> ParameterValues withParsed(ParameterValues values, Parameter<T> parameter, String text) {
+        return values.with(parameter, parameter.parse(text));
+    }
+    
     private void setWorkspaceActions() {
         hasNewText = false;
         textArea.textProperty().addListener((final ObservableValue<? extends String> observable, final String oldValue, final String newValue) -> {
             if(!newValue.equals(oldValue)) {
                 ((AppActions) applicationTemplate.getActionComponent()).setIsUnsaved(true);
+                ((AppData) applicationTemplate.getDataComponent()).textChanged(newValue);
                 if(!newValue.equals("")) {
                     hasNewText = true;
                     newButton.setDisable(false);
@@ -327,74 +305,59 @@ public final class AppUI extends UITemplate {
             }
         });
         
-        alg1Settings.setOnAction(e -> {
-            VBox config;
-            if(isClassification) {
-                config = configPane("Algorithm Configuration", algList.get((RadioButton) selectClassificationAlg.getSelectedToggle()), isClassification);
-            } else {
-                config = configPane("Algorithm Configuration", algList.get((RadioButton) selectClusteringAlg.getSelectedToggle()), isClassification) ;
-            }
-            appPane.getChildren().removeAll(toolBar, mainPane);
-            appPane.getChildren().add(config);
-        });
-        
-        alg2Settings.setOnAction(e -> {
-            VBox config;
-            if(isClassification) {
-                config = configPane("Algorithm Configuration", algList.get((RadioButton) selectClassificationAlg.getSelectedToggle()), isClassification);
-            } else {
-                config = configPane("Algorithm Configuration", algList.get((RadioButton) selectClusteringAlg.getSelectedToggle()), isClassification) ;
-            }
-            appPane.getChildren().removeAll(toolBar, mainPane);
-            appPane.getChildren().add(config);
-        });
-        
         selectAlgType.selectedToggleProperty().addListener((ObservableValue<? extends Toggle> observable,
                         Toggle oldValue, Toggle newValue) -> {
                             if(selectAlgType.getSelectedToggle().equals(algType1)) {
                                 showClassificationAlgs();
-                                isClassification = true;
                             } else if(selectAlgType.getSelectedToggle().equals(algType2)) {
                                 showClusteringAlgs();
-                                isClassification = false;
                             }
                         });
         
-        selectClassificationAlg.selectedToggleProperty().addListener((ObservableValue<? extends Toggle> observable,
-                        Toggle oldValue, Toggle newValue) -> {
-                            run.setVisible(false);
-                        });
-        
-        selectClusteringAlg.selectedToggleProperty().addListener((ObservableValue<? extends Toggle> observable,
+        selectAlg.selectedToggleProperty().addListener((ObservableValue<? extends Toggle> observable,
                         Toggle oldValue, Toggle newValue) -> {
                             run.setVisible(false);
                         });
         
         run.setOnAction(e -> {
             run.setDisable(true);
-            if(flag.get() == 0) {
-                flag.set(1);
-                Thread alg;
-                if(isClassification == true) {
-                    alg = new Thread(algList.get((RadioButton) selectClassificationAlg.getSelectedToggle()));
-                } else {
-                    alg = new Thread(algList.get((RadioButton) selectClusteringAlg.getSelectedToggle()));
-                }
-                alg.start();
-                runInProgress.set(true);
+            if(currentRun == null || currentRun.isDone()) {
+                runSpeed.setText("");
+                AlgorithmDescriptor descriptor = (AlgorithmDescriptor) selectAlg.getSelectedToggle().getUserData();
+                DataSet             data       = ((AppData) applicationTemplate.getDataComponent()).getData();
+                currentRun = scheduler.submit(descriptor.create(data, algSettings.get(descriptor)), maxSpeed.isSelected());
             } else {
-                runInProgress.set(true);
+                currentRun.resume();
             }
             
         });
         
-        chart.setOnMouseEntered(e -> {
-            chart.setCursor(Cursor.HAND);
-        });
+        for (DataRenderer r : new DataRenderer[]{chartRenderer, canvasRenderer}) {
+            r.getNode().setOnMouseEntered(e -> {
+                r.getNode().setCursor(Cursor.HAND);
+            });
+            
+            r.getNode().setOnMouseExited(e -> {
+                r.getNode().setCursor(Cursor.DEFAULT);
+                instanceTip.hide();
+            });
+            
+            r.getNode().setOnMouseMoved(e -> {
+                int index = shownDataSet == null ? -1 : r.pick(e.getSceneX(), e.getSceneY());
+                if (index < 0) {
+                    instanceTip.hide();
+                    return;
+                }
+                instanceTip.setText(shownDataSet.getName(index) + " (" + shownDataSet.getLabel(index) + ")");
+                instanceTip.show(r.getNode(), e.getScreenX() + 12, e.getScreenY() + 12);
+            });
+        }
         
-        chart.setOnMouseExited(e -> {
-            chart.setCursor(Cursor.DEFAULT);
-        });
+        selectRenderer.selectedToggleProperty().addListener((ObservableValue<? extends Toggle> observable,
+                        Toggle oldValue, Toggle newValue) -> {
+                            if (newValue != null)
+                                switchRenderer(newValue == canvasRendererButton ? canvasRenderer : chartRenderer);
+                        });
         
         editText.setOnAction(e -> {
             clearChart();
@@ -423,29 +386,101 @@ public final class AppUI extends UITemplate {
     }
     
     public void clearChart() {
-        chart.getData().clear();
+        renderer.clear();
+        shownDataSet = null;
+        shownLines.clear();
         scrnshotButton.setDisable(true);
     }
-    
-    public static int getGlobalTimer() {
-        return globalTimer.get();
+
+    /** Puts the given renderer in place of the current one, showing what the current one showed. */
+    private void switchRenderer(DataRenderer next) {
+        if (next == renderer)
+            return;
+        mainPane.getChildren().remove(renderer.getNode());
+        renderer.clear();
+        renderer = next;
+        mainPane.getChildren().add(renderer.getNode());
+        if (shownDataSet != null)
+            renderer.show(shownDataSet);
+        shownLines.forEach(renderer::addLine);
     }
-    
-    public static void resetGlobalTimer() {
-        globalTimer.set(0);
+
+    /**
+     * Shows the given data set in the chart, one series per label, downsampled to the points the chart can show. This
+     * may be called from any thread; the data set must not be changed afterwards, so pass a copy of one that is still
+     * being worked on.
+     */
+    public void showDataSet(DataSet dataSet) {
+        Platform.runLater(() -> {
+            shownDataSet = dataSet;
+            renderer.show(dataSet);
+        });
     }
-    
-    public static synchronized void incrementGlobalTimer() {
-        globalTimer.getAndIncrement();
+
+    /**
+     * Shows what a running algorithm has come up with. This may be called from any thread and as often as the algorithm
+     * likes: the display takes the latest snapshot once per frame and skips the ones it had no frame for.
+     */
+    public void publish(RunSnapshot snapshot) {
+        runUpdates.publish(snapshot);
     }
-    
-    public synchronized void addToChart(XYChart.Series<Number, Number> line) {
-        chart.getData().add(line);
+
+    /** @return the publisher of run snapshots, whose counters tell how many updates the display could not keep up with */
+    public FramePacedPublisher<RunSnapshot> getRunUpdates() { return runUpdates; }
+
+    /**
+     * Shows a run snapshot as a change to what is shown: lines no longer in it are removed and new ones added, and its
+     * data set is diffed against the one shown. Only a snapshot without a data set, where one is shown, clears the
+     * renderer, which cannot drop its data set alone.
+     */
+    private void present(RunSnapshot snapshot) {
+        if (!snapshot.keepsContent()) {
+            if (snapshot.getDataSet() == null && shownDataSet != null) {
+                renderer.clear();
+                shownDataSet = null;
+                shownLines.clear();
+            }
+            for (Iterator<RunSnapshot.Line> shown = shownLines.iterator(); shown.hasNext(); ) {
+                RunSnapshot.Line line = shown.next();
+                if (!snapshot.getLines().contains(line)) {
+                    renderer.removeLine(line);
+                    shown.remove();
+                }
+            }
+            if (snapshot.getDataSet() != null && snapshot.getDataSet() != shownDataSet) {
+                shownDataSet = snapshot.getDataSet();
+                renderer.show(shownDataSet);
+            }
+            for (RunSnapshot.Line line : snapshot.getLines()) {
+                if (!shownLines.contains(line)) {
+                    shownLines.add(line);
+                    renderer.addLine(line);
+                }
+            }
+        }
+        boolean running = snapshot.getPhase() == RunSnapshot.Phase.RUNNING;
+        if (snapshot.getPhase() == RunSnapshot.Phase.FINISHED)
+            runSpeed.setText(applicationTemplate.manager.getPropertyValue(RUN_SPEED_LABEL.name())
+                             + String.format("%,.0f", snapshot.getIterationsPerSecond()));
+        run.setDisable(running);
+        scrnshotButton.setDisable(running);
     }
-    
-    public void addSeriesToChart(Series s) {
-        chart.getData().add(s);
-        s.getNode().setStyle("-fx-stroke: transparent;");
+
+    /**
+     * Prepares an export of what the chart shows, the data set, lines and visible range as they are now, to a PNG
+     * image of the given size. The task does not touch the interface and is meant to be run on a background thread.
+     * This must be called on the JavaFX application thread.
+     */
+    public ChartExportTask exportImage(Path file, int width, int height) {
+        return new ChartExportTask(new ChartImageWriter(shownDataSet, shownLines, renderer.getViewport(), width, height),
+                                   file);
+    }
+
+    /** Adds a named line segment to the chart. This must be called on the JavaFX application thread. */
+    public void addLine(String name, double x1, double y1, double x2, double y2) {
+        RunSnapshot.Line line = new RunSnapshot.Line(name, x1, y1, x2, y2);
+        shownLines.add(line);
+        renderer.addLine(line);
     }
     
     public String getCurrentText() { return textArea.getText(); }
@@ -456,17 +491,8 @@ public final class AppUI extends UITemplate {
         saveButton.setDisable(b);
     }
     
-    public static boolean runInProgress() {
-        return runInProgress.get();
-    }
-    
-    public static void resetFlag() {
-        flag.set(0);
-    }
-    
-    public static void setRunInProgress(boolean b) {
-        runInProgress.set(b);
-    }
+    /** @return the scheduler the algorithms run on */
+    public AlgorithmScheduler getScheduler() { return scheduler; }
     
     public void showTextArea(boolean b) {
         textArea.setVisible(b);
@@ -507,18 +533,41 @@ public final class AppUI extends UITemplate {
     }
     
     public void showClassificationAlgs() {
-        alg1Layout.getChildren().clear();
-        alg2Layout.getChildren().clear();
-        alg1Layout.getChildren().addAll(classificationAlg1, alg1Settings);
-        alg1Layout.setVisible(true);
+        showAlgs(AlgorithmDescriptor.TaskType.CLASSIFICATION);
     }
     
     public void showClusteringAlgs() {
-        alg1Layout.getChildren().clear();
-        alg2Layout.getChildren().clear();
-        alg1Layout.getChildren().addAll(clusteringAlg1, alg1Settings);
-        alg2Layout.getChildren().addAll(clusteringAlg2, alg2Settings);
-        alg1Layout.setVisible(true);
-        alg2Layout.setVisible(true);
+        showAlgs(AlgorithmDescriptor.TaskType.CLUSTERING);
+    }
+
+    /**
+     * Lists the algorithms for the task, from the registry, each with a button to configure it. The first time, any
+     * algorithms the registry had to leave out are reported.
+     */
+    private void showAlgs(AlgorithmDescriptor.TaskType taskType) {
+        algLayout.getChildren().clear();
+        selectAlg.getToggles().clear();
+        run.setVisible(false);
+        if (!skippedShown && !AlgorithmRegistry.getSkipped().isEmpty()) {
+            PropertyManager manager = applicationTemplate.manager;
+            ErrorDialog     dialog  = (ErrorDialog) applicationTemplate.getDialog(Dialog.DialogType.ERROR);
+            dialog.show(manager.getPropertyValue(ALGORITHMS_SKIPPED_TITLE.name()),
+                        manager.getPropertyValue(ALGORITHMS_SKIPPED.name()) + "\n"
+                        + String.join("\n", AlgorithmRegistry.getSkipped()));
+        }
+        skippedShown = true;
+        for (AlgorithmDescriptor descriptor : AlgorithmRegistry.forTask(taskType)) {
+            RadioButton choice = new RadioButton(descriptor.getName());
+            choice.getStyleClass().add("app-radio-button");
+            choice.setUserData(descriptor);
+            choice.setToggleGroup(selectAlg);
+            Button settings = setToolbarButton(settingsIconPath, applicationTemplate.manager.getPropertyValue(SETTINGS_TOOLTIP.name()), false);
+            settings.setOnAction(e -> {
+                selectAlg.selectToggle(choice);
+                appPane.getChildren().removeAll(toolBar, mainPane);
+                appPane.getChildren().add(configPane("Algorithm Configuration", descriptor));
+            });
+            algLayout.getChildren().add(new HBox(choice, settings));
+        }
     }
-}
\ No newline at end of file
+}
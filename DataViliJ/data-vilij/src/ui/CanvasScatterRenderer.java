@@ -0,0 +1,275 @@
+package ui;
+
+import algorithms.RunSnapshot.Line;
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Renders onto a {@link Canvas} instead of through a chart. The points of the data set are plotted straight into a
+ * pixel buffer by a {@link ScatterRaster}, which is copied to the canvas in one go; the axes and lines are then drawn
+ * over it. Every instance is drawn, with no node per point, so memory use does not grow with the data set and a
+ * redraw of a million points takes a few tens of milliseconds.
+ * <p>
+ * Zooming works as in {@link LineChartRenderer}: scroll to zoom around the mouse, double-click to see everything again.
+ * Labels with more instances in view than the density threshold are drawn as a {@link DensityLayer} heatmap under the
+ * points of the other labels.
+ *
+ * @author kevingray
+ */
+final class CanvasScatterRenderer implements DataRenderer {
+
+    private static final double LEFT_MARGIN   = 60;
+    private static final double RIGHT_MARGIN  = 20;
+    private static final double TOP_MARGIN    = 20;
+    private static final double BOTTOM_MARGIN = 40;
+    private static final double TICK_LENGTH   = 5;
+    private static final int    MAX_TICKS     = 10;
+    private static final int    DOT_RADIUS    = 1;
+    private static final double PADDING       = 0.05; // of the data range, on each side, when showing everything
+    private static final double ZOOM_FACTOR   = 1.25;
+
+    private final Pane          pane    = new Pane();
+    private final Canvas        canvas  = new Canvas();
+    private final ScatterRaster raster  = new ScatterRaster();
+    private final List<Line>    lines   = new ArrayList<>();
+    private final DensityLayer  density = new DensityLayer();
+
+    private WritableImage image;
+    private DataSet       dataSet;
+    private Viewport      zoomed; // null when showing everything
+    private Viewport      viewport;
+    private boolean       renderPending;
+
+    CanvasScatterRenderer() {
+        pane.getChildren().add(canvas);
+        pane.setMinSize(0, 0);
+        pane.setPrefSize(500, 400);
+        canvas.widthProperty().bind(pane.widthProperty());
+        canvas.heightProperty().bind(pane.heightProperty());
+        canvas.widthProperty().addListener((observable, oldValue, newValue) -> renderLater());
+        canvas.heightProperty().addListener((observable, oldValue, newValue) -> renderLater());
+        pane.addEventHandler(ScrollEvent.SCROLL, this::zoom);
+        pane.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getClickCount() == 2 && zoomed != null) {
+                zoomed = null;
+                render();
+            }
+        });
+    }
+
+    @Override
+    public Region getNode() { return pane; }
+
+    @Override
+    public void show(DataSet dataSet) {
+        this.dataSet = dataSet;
+        render();
+    }
+
+    @Override
+    public void addLine(Line line) {
+        if (lines.contains(line))
+            return;
+        lines.add(line);
+        render();
+    }
+
+    @Override
+    public void removeLine(Line line) {
+        if (lines.remove(line))
+            render();
+    }
+
+    @Override
+    public int pick(double sceneX, double sceneY) {
+        if (dataSet == null || viewport == null)
+            return -1;
+        Point2D local = canvas.sceneToLocal(sceneX, sceneY);
+        int     plotW = (int) Math.max(0, canvas.getWidth() - LEFT_MARGIN - RIGHT_MARGIN);
+        int     plotH = (int) Math.max(0, canvas.getHeight() - TOP_MARGIN - BOTTOM_MARGIN);
+        if (plotW <= 1 || plotH <= 1)
+            return -1;
+        double xPerPixel = (viewport.xMax - viewport.xMin) / (plotW - 1);
+        double yPerPixel = (viewport.yMax - viewport.yMin) / (plotH - 1);
+        double x         = viewport.xMin + (local.getX() - LEFT_MARGIN) * xPerPixel;
+        double y         = viewport.yMin + (TOP_MARGIN + plotH - 1 - local.getY()) * yPerPixel;
+        return dataSet.nearest(x, y, PICK_PIXELS * xPerPixel, PICK_PIXELS * yPerPixel);
+    }
+
+    @Override
+    public Viewport getViewport() { return viewport; }
+
+    @Override
+    public void setDensityThreshold(int threshold) {
+        density.setThreshold(threshold);
+        render();
+    }
+
+    @Override
+    public void clear() {
+        dataSet = null;
+        lines.clear();
+        render();
+    }
+
+    private void renderLater() {
+        if (renderPending)
+            return;
+        renderPending = true;
+        Platform.runLater(() -> {
+            renderPending = false;
+            render();
+        });
+    }
+
+    private void render() {
+        GraphicsContext gc     = canvas.getGraphicsContext2D();
+        double          width  = canvas.getWidth();
+        double          height = canvas.getHeight();
+        int             plotW  = (int) Math.max(0, width - LEFT_MARGIN - RIGHT_MARGIN);
+        int             plotH  = (int) Math.max(0, height - TOP_MARGIN - BOTTOM_MARGIN);
+        gc.clearRect(0, 0, width, height);
+        if (plotW == 0 || plotH == 0 || (dataSet == null && lines.isEmpty()))
+            return;
+        viewport = zoomed != null ? zoomed : fit();
+
+        raster.reset(plotW, plotH);
+        raster.hideLabels(density.update(dataSet, viewport, plotW, plotH));
+        if (density.any())
+            gc.drawImage(density.getImage(), LEFT_MARGIN, TOP_MARGIN, plotW, plotH);
+        if (dataSet != null) {
+            // zoomed in, only the instances the spatial index finds in view need to be looked at
+            int[] visible = zoomed != null ? dataSet.indicesWithin(viewport) : null;
+            raster.plot(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.getLabelColumn(), visible,
+                        visible == null ? dataSet.size() : visible.length, viewport, DOT_RADIUS);
+        }
+        if (image == null || image.getWidth() != plotW || image.getHeight() != plotH)
+            image = new WritableImage(plotW, plotH);
+        image.getPixelWriter().setPixels(0, 0, plotW, plotH, PixelFormat.getIntArgbPreInstance(), raster.getPixels(),
+                                         0, plotW);
+        gc.drawImage(image, LEFT_MARGIN, TOP_MARGIN);
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT_MARGIN, TOP_MARGIN, plotW, plotH);
+        gc.clip();
+        gc.setLineWidth(2);
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            gc.setStroke(color(ScatterRaster.PALETTE[i % ScatterRaster.PALETTE.length]));
+            gc.strokeLine(toX(line.x1, plotW), toY(line.y1, plotH), toX(line.x2, plotW), toY(line.y2, plotH));
+        }
+        gc.restore();
+        drawAxes(gc, plotW, plotH);
+    }
+
+    /** The smallest viewport, with some padding, that holds the data set and the lines. */
+    private Viewport fit() {
+        double xMin = Double.POSITIVE_INFINITY, xMax = Double.NEGATIVE_INFINITY;
+        double yMin = Double.POSITIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+        if (dataSet != null && dataSet.size() > 0) {
+            Viewport data = Viewport.around(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.size());
+            xMin = data.xMin;
+            xMax = data.xMax;
+            yMin = data.yMin;
+            yMax = data.yMax;
+        }
+        for (Line line : lines) {
+            xMin = Math.min(xMin, Math.min(line.x1, line.x2));
+            xMax = Math.max(xMax, Math.max(line.x1, line.x2));
+            yMin = Math.min(yMin, Math.min(line.y1, line.y2));
+            yMax = Math.max(yMax, Math.max(line.y1, line.y2));
+        }
+        if (xMin > xMax || yMin > yMax)
+            return new Viewport(0, 1, 0, 1);
+        double xPad = xMax > xMin ? (xMax - xMin) * PADDING : 1;
+        double yPad = yMax > yMin ? (yMax - yMin) * PADDING : 1;
+        return new Viewport(xMin - xPad, xMax + xPad, yMin - yPad, yMax + yPad);
+    }
+
+    private void drawAxes(GraphicsContext gc, int plotW, int plotH) {
+        double bottom = TOP_MARGIN + plotH;
+        gc.setStroke(Color.GRAY);
+        gc.setFill(Color.BLACK);
+        gc.setLineWidth(1);
+        gc.strokeLine(LEFT_MARGIN, TOP_MARGIN, LEFT_MARGIN, bottom);
+        gc.strokeLine(LEFT_MARGIN, bottom, LEFT_MARGIN + plotW, bottom);
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        double xStep = tickStep(viewport.xMax - viewport.xMin);
+        for (double x = Math.ceil(viewport.xMin / xStep) * xStep; x <= viewport.xMax; x += xStep) {
+            double px = toX(x, plotW);
+            gc.strokeLine(px, bottom, px, bottom + TICK_LENGTH);
+            gc.fillText(tickLabel(x, xStep), px, bottom + TICK_LENGTH + 2);
+        }
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        double yStep = tickStep(viewport.yMax - viewport.yMin);
+        for (double y = Math.ceil(viewport.yMin / yStep) * yStep; y <= viewport.yMax; y += yStep) {
+            double py = toY(y, plotH);
+            gc.strokeLine(LEFT_MARGIN - TICK_LENGTH, py, LEFT_MARGIN, py);
+            gc.fillText(tickLabel(y, yStep), LEFT_MARGIN - TICK_LENGTH - 2, py);
+        }
+    }
+
+    /** A round step, 1, 2 or 5 times a power of ten, that gives at most {@link #MAX_TICKS} ticks over the range. */
+    static double tickStep(double range) {
+        if (!(range > 0))
+            return 1;
+        double step = Math.pow(10, Math.floor(Math.log10(range / MAX_TICKS)));
+        if (range / step > MAX_TICKS)
+            step *= 2;
+        if (range / step > MAX_TICKS)
+            step *= 2.5;
+        if (range / step > MAX_TICKS)
+            step *= 2;
+        return step;
+    }
+
+    static String tickLabel(double value, double step) {
+        int decimals = Math.max(0, (int) -Math.floor(Math.log10(step)));
+        return String.format("%." + decimals + "f", Math.abs(value) < step / 2 ? 0.0 : value);
+    }
+
+    private double toX(double x, int plotW) {
+        return LEFT_MARGIN + (x - viewport.xMin) / (viewport.xMax - viewport.xMin) * (plotW - 1);
+    }
+
+    private double toY(double y, int plotH) {
+        return TOP_MARGIN + plotH - 1 - (y - viewport.yMin) / (viewport.yMax - viewport.yMin) * (plotH - 1);
+    }
+
+    private static Color color(int argb) {
+        return Color.rgb((argb >> 16) & 0xff, (argb >> 8) & 0xff, argb & 0xff);
+    }
+
+    private void zoom(ScrollEvent e) {
+        if (viewport == null || e.getDeltaY() == 0)
+            return;
+        double factor = e.getDeltaY() > 0 ? 1 / ZOOM_FACTOR : ZOOM_FACTOR;
+        double plotW  = canvas.getWidth() - LEFT_MARGIN - RIGHT_MARGIN;
+        double plotH  = canvas.getHeight() - TOP_MARGIN - BOTTOM_MARGIN;
+        double x      = viewport.xMin + (e.getX() - LEFT_MARGIN) / plotW * (viewport.xMax - viewport.xMin);
+        double y      = viewport.yMin + (TOP_MARGIN + plotH - e.getY()) / plotH * (viewport.yMax - viewport.yMin);
+        zoomed = new Viewport(x - (x - viewport.xMin) * factor, x + (viewport.xMax - x) * factor,
+                              y - (y - viewport.yMin) * factor, y + (viewport.yMax - y) * factor);
+        render();
+        e.consume();
+    }
+}
@@ -0,0 +1,47 @@
+package ui;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javafx.concurrent.Task;
+
+/**
+ * Writes what the chart shows to a PNG file of a chosen size, for running on a background thread. Progress goes from
+ * zero to one as the bands of the image are written; cancelling stops at the next band and deletes the partial file,
+ * as does a failure. Made by {@link AppUI#exportImage}, which captures what is shown when it is called.
+ *
+ * @author kevingray
+ */
+public final class ChartExportTask extends Task<Path> {
+
+    private final ChartImageWriter writer;
+    private final Path             file;
+
+    ChartExportTask(ChartImageWriter writer, Path file) {
+        this.writer = writer;
+        this.file = file;
+    }
+
+    public Path getFile() { return file; }
+
+    /** @return the file written, or null if the export was cancelled */
+    @Override
+    protected Path call() throws IOException {
+        boolean written = false;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            written = writer.write(out, new ChartImageWriter.Progress() {
+                @Override
+                public void bandWritten(int bands, int totalBands) { updateProgress(bands, totalBands); }
+
+                @Override
+                public boolean isCancelled() { return ChartExportTask.this.isCancelled(); }
+            });
+        } finally {
+            if (!written)
+                Files.deleteIfExists(file);
+        }
+        return written ? file : null;
+    }
+}
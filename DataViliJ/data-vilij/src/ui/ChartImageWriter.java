@@ -0,0 +1,190 @@
+package ui;
+
+import algorithms.RunSnapshot;
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws a data set and its lines, as {@link CanvasScatterRenderer} shows them, into a PNG image of any size without a
+ * JavaFX node, so it can run on any thread. The image is drawn and encoded in horizontal bands of
+ * {@link #BAND_ROWS} rows, so memory use depends on the width of the image only, and the work can be stopped between
+ * bands. Margins, text and dots grow with the image, so a large export looks like a sharper version of the screen.
+ *
+ * @author kevingray
+ */
+final class ChartImageWriter {
+
+    /** Told about each band as it is written, and asked whether to go on. */
+    interface Progress {
+
+        void bandWritten(int bands, int totalBands);
+
+        boolean isCancelled();
+    }
+
+    static final int BAND_ROWS = 256;
+
+    private static final int    BASE_WIDTH    = 800; // the image size at which the sizes below are used as they are
+    private static final int    BASE_HEIGHT   = 600;
+    private static final double LEFT_MARGIN   = 60;
+    private static final double RIGHT_MARGIN  = 20;
+    private static final double TOP_MARGIN    = 20;
+    private static final double BOTTOM_MARGIN = 40;
+    private static final double TICK_LENGTH   = 5;
+    private static final double FONT_SIZE     = 12;
+    private static final int    WHITE         = 0xffffffff;
+
+    private final DataSet                 dataSet;
+    private final List<RunSnapshot.Line>  lines;
+    private final Viewport                viewport;
+    private final int                     width;
+    private final int                     height;
+    private final double                  scale;
+    private final int                     left;
+    private final int                     top;
+    private final int                     plotW;
+    private final int                     plotH;
+
+    /**
+     * @param dataSet  the data set to draw, which must not change while the image is written, or null for none
+     * @param viewport the part of the plane to draw, or null for the unit square
+     */
+    ChartImageWriter(DataSet dataSet, List<RunSnapshot.Line> lines, Viewport viewport, int width, int height) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("An image needs at least one pixel.");
+        this.dataSet = dataSet;
+        this.lines = new ArrayList<>(lines);
+        this.viewport = viewport != null && viewport.xMax > viewport.xMin && viewport.yMax > viewport.yMin
+                        ? viewport : new Viewport(0, 1, 0, 1);
+        this.width = width;
+        this.height = height;
+        this.scale = Math.max(1, Math.min((double) width / BASE_WIDTH, (double) height / BASE_HEIGHT));
+        this.left = (int) Math.round(LEFT_MARGIN * scale);
+        this.top = (int) Math.round(TOP_MARGIN * scale);
+        this.plotW = Math.max(0, width - left - (int) Math.round(RIGHT_MARGIN * scale));
+        this.plotH = Math.max(0, height - top - (int) Math.round(BOTTOM_MARGIN * scale));
+    }
+
+    /** @return the number of bands the image is written in */
+    int getBands() { return (height + BAND_ROWS - 1) / BAND_ROWS; }
+
+    /**
+     * Writes the image as a PNG. The stream is not closed.
+     *
+     * @return <code>false</code> if the progress asked to stop, in which case what was written is not a whole image
+     */
+    boolean write(OutputStream out, Progress progress) throws IOException {
+        PngStream     png       = new PngStream(out, width, height);
+        BufferedImage band      = new BufferedImage(width, Math.min(BAND_ROWS, height), BufferedImage.TYPE_INT_RGB);
+        int[]         pixels    = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+        ScatterRaster raster    = new ScatterRaster();
+        int           dotRadius = (int) Math.round(scale);
+        int           bands     = getBands();
+        for (int b = 0; b < bands; b++) {
+            if (progress.isCancelled())
+                return false;
+            int bandTop  = b * BAND_ROWS;
+            int bandRows = Math.min(BAND_ROWS, height - bandTop);
+            Arrays.fill(pixels, WHITE);
+            plotPoints(raster, pixels, bandTop, bandRows, dotRadius);
+            Graphics2D g = band.createGraphics();
+            try {
+                g.translate(0, -bandTop);
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                drawLines(g);
+                drawAxes(g);
+            } finally {
+                g.dispose();
+            }
+            png.writeRows(pixels, bandRows);
+            progress.bandWritten(b + 1, bands);
+        }
+        png.finish();
+        return true;
+    }
+
+    private void plotPoints(ScatterRaster raster, int[] pixels, int bandTop, int bandRows, int dotRadius) {
+        int from = Math.max(0, bandTop - top);
+        int to   = Math.min(plotH, bandTop + bandRows - top);
+        if (dataSet == null || plotW == 0 || to <= from)
+            return;
+        raster.reset(plotW, to - from);
+        raster.plot(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.getLabelColumn(), null, dataSet.size(),
+                    viewport, plotH, from, dotRadius);
+        int[] dots = raster.getPixels();
+        for (int r = 0; r < to - from; r++) {
+            int source = r * plotW;
+            int target = (top + from + r - bandTop) * width + left;
+            for (int c = 0; c < plotW; c++) {
+                if (dots[source + c] != 0)
+                    pixels[target + c] = dots[source + c];
+            }
+        }
+    }
+
+    private void drawLines(Graphics2D g) {
+        g.setClip(left, top, plotW, plotH);
+        g.setStroke(new BasicStroke((float) (2 * scale)));
+        for (int i = 0; i < lines.size(); i++) {
+            RunSnapshot.Line line = lines.get(i);
+            g.setColor(new Color(ScatterRaster.PALETTE[i % ScatterRaster.PALETTE.length]));
+            g.draw(new Line2D.Double(toX(line.x1), toY(line.y1), toX(line.x2), toY(line.y2)));
+        }
+        g.setClip(null);
+    }
+
+    private void drawAxes(Graphics2D g) {
+        double tick   = TICK_LENGTH * scale;
+        double bottom = top + plotH;
+        g.setStroke(new BasicStroke((float) scale));
+        g.setColor(Color.GRAY);
+        g.draw(new Line2D.Double(left, top, left, bottom));
+        g.draw(new Line2D.Double(left, bottom, left + plotW, bottom));
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, (int) Math.round(FONT_SIZE * scale)));
+        FontMetrics metrics = g.getFontMetrics();
+
+        double xStep = CanvasScatterRenderer.tickStep(viewport.xMax - viewport.xMin);
+        for (double x = Math.ceil(viewport.xMin / xStep) * xStep; x <= viewport.xMax; x += xStep) {
+            double px    = toX(x);
+            String label = CanvasScatterRenderer.tickLabel(x, xStep);
+            g.setColor(Color.GRAY);
+            g.draw(new Line2D.Double(px, bottom, px, bottom + tick));
+            g.setColor(Color.BLACK);
+            g.drawString(label, (float) (px - metrics.stringWidth(label) / 2.0),
+                         (float) (bottom + tick + 2 * scale + metrics.getAscent()));
+        }
+        double yStep = CanvasScatterRenderer.tickStep(viewport.yMax - viewport.yMin);
+        for (double y = Math.ceil(viewport.yMin / yStep) * yStep; y <= viewport.yMax; y += yStep) {
+            double py    = toY(y);
+            String label = CanvasScatterRenderer.tickLabel(y, yStep);
+            g.setColor(Color.GRAY);
+            g.draw(new Line2D.Double(left - tick, py, left, py));
+            g.setColor(Color.BLACK);
+            g.drawString(label, (float) (left - tick - 2 * scale - metrics.stringWidth(label)),
+                         (float) (py + (metrics.getAscent() - metrics.getDescent()) / 2.0));
+        }
+    }
+
+    private double toX(double x) {
+        return left + (x - viewport.xMin) / (viewport.xMax - viewport.xMin) * (plotW - 1);
+    }
+
+    private double toY(double y) {
+        return top + plotH - 1 - (y - viewport.yMin) / (viewport.yMax - viewport.yMin) * (plotH - 1);
+    }
+}
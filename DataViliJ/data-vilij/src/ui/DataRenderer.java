@@ -0,0 +1,51 @@
+package ui;
+
+import algorithms.RunSnapshot.Line;
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import javafx.scene.layout.Region;
+
+/**
+ * Draws a data set, one color per label, together with straight lines such as the average line or a classifier's
+ * boundary, on a pair of axes. {@link AppUI} shows one renderer at a time and can switch between them.
+ * <p>
+ * All methods must be called on the JavaFX application thread.
+ *
+ * @author kevingray
+ */
+interface DataRenderer {
+
+    /** How far from the mouse, in pixels, an instance may be drawn and still be picked. */
+    double PICK_PIXELS = 5;
+
+    /** @return the node that displays the rendering, to be placed in the scene */
+    Region getNode();
+
+    /** Shows the given data set in place of the previous one. It must not be changed while it is shown. */
+    void show(DataSet dataSet);
+
+    /** Adds a line to what is shown, unless an equal one already is; lines stay until removed or {@link #clear()}. */
+    void addLine(Line line);
+
+    /** Removes a line equal to the given one, leaving the data set and the other lines as they are. */
+    void removeLine(Line line);
+
+    /**
+     * Finds the instance drawn at a point of the scene, such as the one under the mouse.
+     *
+     * @return the index of the instance in the data set shown, or <code>-1</code> if there is none near the point
+     */
+    int pick(double sceneX, double sceneY);
+
+    /** @return the part of the plane currently shown, or null if nothing has been shown yet */
+    Viewport getViewport();
+
+    /**
+     * Sets how many instances of one label may be in view before the label is drawn as a density heatmap instead of
+     * point by point; it goes back to points once zooming in leaves no more than this many in view.
+     */
+    void setDensityThreshold(int threshold);
+
+    /** Removes the data set and all lines. */
+    void clear();
+}
@@ -0,0 +1,69 @@
+package ui;
+
+import dataprocessors.DensityGrid;
+import java.util.Arrays;
+
+/**
+ * Colors the bins of a {@link DensityGrid} into an image with one pixel per bin, for the labels too dense to draw point
+ * by point. A bin takes the colors of its labels, mixed in proportion to their counts, and is more opaque the more
+ * instances it holds, on a logarithmic scale so that sparse bins stay visible next to the densest one.
+ *
+ * @author kevingray
+ */
+final class DensityImage {
+
+    /** The opacity of a bin holding a single instance. */
+    private static final double MIN_ALPHA = 0.25;
+
+    private int[] pixels = new int[0];
+    private int[] totals = new int[0];
+
+    /**
+     * @param dense for each label id, whether its bins are drawn; ids past the end of the array are not
+     * @return the pixels, row by row from the top of the viewport, as premultiplied ARGB; valid until the next call
+     */
+    int[] render(DensityGrid grid, boolean[] dense) {
+        int cells = grid.getColumns() * grid.getRows();
+        if (pixels.length < cells) {
+            pixels = new int[cells];
+            totals = new int[cells];
+        }
+        Arrays.fill(totals, 0, cells, 0);
+        int labels = Math.min(dense.length, grid.getNumLabels());
+        for (int label = 0; label < labels; label++) {
+            if (!dense[label])
+                continue;
+            int[] counts = grid.getCounts(label);
+            for (int cell = 0; cell < cells; cell++)
+                totals[cell] += counts[cell];
+        }
+        int max = 0;
+        for (int cell = 0; cell < cells; cell++)
+            max = Math.max(max, totals[cell]);
+        double logMax  = Math.log1p(max);
+        int    columns = grid.getColumns();
+        int    rows    = grid.getRows();
+        for (int cell = 0; cell < cells; cell++) {
+            int pixel = (rows - 1 - cell / columns) * columns + cell % columns;
+            int total = totals[cell];
+            if (total == 0) {
+                pixels[pixel] = 0;
+                continue;
+            }
+            double red = 0, green = 0, blue = 0;
+            for (int label = 0; label < labels; label++) {
+                if (!dense[label] || grid.getCounts(label)[cell] == 0)
+                    continue;
+                double weight = (double) grid.getCounts(label)[cell] / total;
+                int    color  = ScatterRaster.PALETTE[label % ScatterRaster.PALETTE.length];
+                red += weight * ((color >> 16) & 0xff);
+                green += weight * ((color >> 8) & 0xff);
+                blue += weight * (color & 0xff);
+            }
+            double alpha = logMax > 0 ? MIN_ALPHA + (1 - MIN_ALPHA) * Math.log1p(total) / logMax : 1;
+            pixels[pixel] = (int) Math.round(alpha * 255) << 24 | (int) Math.round(alpha * red) << 16
+                            | (int) Math.round(alpha * green) << 8 | (int) Math.round(alpha * blue);
+        }
+        return pixels;
+    }
+}
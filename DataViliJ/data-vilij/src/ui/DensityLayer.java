@@ -0,0 +1,83 @@
+package ui;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import dataprocessors.DensityGrid;
+import dataprocessors.LabelDictionary;
+import java.util.Arrays;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Decides, for each label, whether it has too many instances in view to draw point by point, and draws the labels
+ * that do as a density image instead. A label switches to its density once more than the threshold of its instances
+ * are inside the viewport, and back to points once it falls below. The bins are {@link #BIN_PIXELS} pixels across and
+ * are kept in a {@link DensityGrid}, so relabelling the same data set, as a clustering algorithm does, only moves the
+ * counts of the instances whose label changed.
+ * <p>
+ * The image is drawn stretched over the plot area, with the viewport's bottom-left corner at its bottom-left.
+ *
+ * @author kevingray
+ */
+final class DensityLayer {
+
+    /** The width and height of a bin, in pixels of the plot area. */
+    static final int BIN_PIXELS = 2;
+
+    private final DensityGrid  grid  = new DensityGrid();
+    private final DensityImage image = new DensityImage();
+
+    private int           threshold = Integer.MAX_VALUE;
+    private boolean[]     dense     = new boolean[0];
+    private boolean       any;
+    private WritableImage fxImage;
+
+    /** @param threshold the most instances of one label in view that are still drawn as points */
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Works out which labels are dense in the viewport and, if any are, redraws the density image.
+     *
+     * @return for each label id, whether it is drawn as a density; not to be changed
+     */
+    boolean[] update(DataSet dataSet, Viewport viewport, double plotWidth, double plotHeight) {
+        int numLabels = dataSet == null ? 0 : dataSet.getLabelTableSize();
+        if (dense.length != numLabels)
+            dense = new boolean[numLabels];
+        Arrays.fill(dense, false);
+        any = false;
+        if (dataSet == null || !anyLabelAbove(dataSet.getLabelDictionary()) || plotWidth < 1 || plotHeight < 1)
+            return dense;
+        int columns = (int) Math.ceil(plotWidth / BIN_PIXELS);
+        int rows    = (int) Math.ceil(plotHeight / BIN_PIXELS);
+        grid.update(dataSet, viewport, columns, rows);
+        for (int label = 0; label < numLabels; label++) {
+            dense[label] = grid.getTotal(label) > threshold;
+            any |= dense[label];
+        }
+        if (any) {
+            if (fxImage == null || fxImage.getWidth() != columns || fxImage.getHeight() != rows)
+                fxImage = new WritableImage(columns, rows);
+            fxImage.getPixelWriter().setPixels(0, 0, columns, rows, PixelFormat.getIntArgbPreInstance(),
+                                               image.render(grid, dense), 0, columns);
+        }
+        return dense;
+    }
+
+    /** @return whether the last update found a label to draw as a density */
+    boolean any() { return any; }
+
+    /** @return the density image of the last update that found a dense label */
+    WritableImage getImage() { return fxImage; }
+
+    /** Whether any label has enough instances at all to be dense, which saves binning small data sets. */
+    private boolean anyLabelAbove(LabelDictionary dictionary) {
+        for (int label = 0; label < dictionary.size(); label++) {
+            if (dictionary.count(label) > threshold)
+                return true;
+        }
+        return false;
+    }
+}
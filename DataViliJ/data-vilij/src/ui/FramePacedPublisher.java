@@ -0,0 +1,71 @@
+package ui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javafx.animation.AnimationTimer;
+
+/**
+ * Hands results from a worker thread to the JavaFX application thread at most once per frame. Workers {@link #publish}
+ * immutable snapshots as often as they like; an {@link AnimationTimer} takes the latest one on each frame and passes
+ * it on, and any snapshot replaced before a frame got to it is dropped and counted. However fast the worker goes, the
+ * event queue sees no more than one update per frame and the display is never behind by more than one frame.
+ *
+ * @param <T> the type of the snapshots, which must not change once published
+ * @author kevingray
+ */
+public final class FramePacedPublisher<T> {
+
+    private final AtomicReference<T> latest    = new AtomicReference<>();
+    private final AtomicLong         published = new AtomicLong();
+    private final AtomicLong         dropped   = new AtomicLong();
+    private final AtomicLong         delivered = new AtomicLong();
+    private final Consumer<T>        consumer;
+
+    private AnimationTimer timer;
+
+    /** @param consumer what to do with each snapshot that makes it to a frame, on the JavaFX application thread */
+    public FramePacedPublisher(Consumer<T> consumer) {
+        this.consumer = consumer;
+    }
+
+    /** Makes the given snapshot the next one to be shown, in place of any that has not been shown yet. Thread-safe. */
+    public void publish(T snapshot) {
+        published.incrementAndGet();
+        if (latest.getAndSet(snapshot) != null)
+            dropped.incrementAndGet();
+    }
+
+    /** Starts passing snapshots on, once per frame. This must be called on the JavaFX application thread. */
+    public void start() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) { deliver(); }
+            };
+        }
+        timer.start();
+    }
+
+    public void stop() {
+        if (timer != null)
+            timer.stop();
+    }
+
+    /** Passes on the latest snapshot, if one came in since the last call; this is what happens on each frame. */
+    boolean deliver() {
+        T snapshot = latest.getAndSet(null);
+        if (snapshot == null)
+            return false;
+        delivered.incrementAndGet();
+        consumer.accept(snapshot);
+        return true;
+    }
+
+    public long getPublished() { return published.get(); }
+
+    /** @return the number of snapshots that were replaced by a later one before a frame could show them */
+    public long getDropped()   { return dropped.get(); }
+
+    public long getDelivered() { return delivered.get(); }
+}
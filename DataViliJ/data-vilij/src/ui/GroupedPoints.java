@@ -0,0 +1,184 @@
+package ui;
+
+import dataprocessors.DataSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the points of a data set grouped by label in lists that live from one update to the next, such as the data of
+ * one chart series per label. Applying a new sampling of the data set only touches what changed: an instance that
+ * keeps its label keeps its point, an instance whose label changed has its point taken out of the old group and a new
+ * one added to the new group, and a group is only created or dropped when its label appears or disappears. Instances
+ * are told apart by name, so successive copies of the same data set, as a clustering algorithm produces them, line up.
+ * <p>
+ * A point is taken out of its list by moving the last point of the list into its place, so the order within a group
+ * is not kept, and additions to a group are made in one call per update.
+ *
+ * @param <P> the type of the points
+ * @author kevingray
+ */
+final class GroupedPoints<P> {
+
+    /** Where the groups live and how their points are made. */
+    interface Target<P> {
+
+        /** @return a new, empty list to hold the points of the given label */
+        List<P> addGroup(String label);
+
+        /** Called once the group of the given label has no points left; the list is not used again. */
+        void removeGroup(String label);
+
+        P newPoint(double x, double y);
+
+        /** Gives an existing point new coordinates, for an instance that moved without changing its label. */
+        void movePoint(P point, double x, double y);
+    }
+
+    private static final class Group<P> {
+
+        final String          label;
+        final List<P>         points;
+        final List<Member<P>> members = new ArrayList<>();
+        final List<P>         pending = new ArrayList<>();
+
+        Group(String label, List<P> points) {
+            this.label = label;
+            this.points = points;
+        }
+    }
+
+    private static final class Member<P> {
+
+        Group<P> group;
+        P        point;
+        int      position;
+        double   x;
+        double   y;
+        int      stamp;
+    }
+
+    private final Target<P>              target;
+    private final Map<String, Group<P>>  groups  = new LinkedHashMap<>();
+    private final Map<String, Member<P>> members = new HashMap<>();
+
+    private int stamp;
+    private int added;
+    private int removed;
+
+    GroupedPoints(Target<P> target) {
+        this.target = target;
+    }
+
+    /** @return the number of points created by the last {@link #apply}, including those of instances that moved */
+    int getAdded()    { return added; }
+
+    /** @return the number of points taken out by the last {@link #apply}, including those of instances that moved */
+    int getRemoved()  { return removed; }
+
+    /** @return the number of points currently held over all groups */
+    int size()        { return members.size(); }
+
+    /**
+     * Brings the groups in line with a sampling of a data set, such as the one {@code ChartDownsampler} makes.
+     *
+     * @param sampled for each label id of the data set, the indices of the instances to show
+     */
+    void apply(DataSet dataSet, int[][] sampled) {
+        stamp++;
+        added = 0;
+        removed = 0;
+        // first mark the instances that stay in their group, so that only the others are taken out
+        for (int id = 0; id < sampled.length; id++) {
+            if (sampled[id].length == 0)
+                continue;
+            String label = dataSet.labelOf(id);
+            for (int index : sampled[id]) {
+                Member<P> member = members.get(dataSet.getName(index));
+                if (member == null || !member.group.label.equals(label))
+                    continue;
+                member.stamp = stamp;
+                double x = dataSet.getX(index);
+                double y = dataSet.getY(index);
+                if (x != member.x || y != member.y) {
+                    member.x = x;
+                    member.y = y;
+                    target.movePoint(member.point, x, y);
+                }
+            }
+        }
+        for (Iterator<Member<P>> it = members.values().iterator(); it.hasNext(); ) {
+            Member<P> member = it.next();
+            if (member.stamp != stamp) {
+                take(member);
+                it.remove();
+            }
+        }
+        for (int id = 0; id < sampled.length; id++) {
+            if (sampled[id].length == 0)
+                continue;
+            Group<P> group = null;
+            for (int index : sampled[id]) {
+                String name = dataSet.getName(index);
+                if (members.containsKey(name))
+                    continue;
+                if (group == null)
+                    group = group(dataSet.labelOf(id));
+                Member<P> member = new Member<>();
+                member.group = group;
+                member.x = dataSet.getX(index);
+                member.y = dataSet.getY(index);
+                member.point = target.newPoint(member.x, member.y);
+                member.position = group.members.size();
+                member.stamp = stamp;
+                group.members.add(member);
+                group.pending.add(member.point);
+                members.put(name, member);
+            }
+            if (group != null) {
+                group.points.addAll(group.pending);
+                added += group.pending.size();
+                group.pending.clear();
+            }
+        }
+        for (Iterator<Group<P>> it = groups.values().iterator(); it.hasNext(); ) {
+            Group<P> group = it.next();
+            if (group.members.isEmpty()) {
+                it.remove();
+                target.removeGroup(group.label);
+            }
+        }
+    }
+
+    /** Forgets every group without calling back, for when the lists have already been thrown away. */
+    void clear() {
+        groups.clear();
+        members.clear();
+    }
+
+    private Group<P> group(String label) {
+        Group<P> group = groups.get(label);
+        if (group == null) {
+            group = new Group<>(label, target.addGroup(label));
+            groups.put(label, group);
+        }
+        return group;
+    }
+
+    /** Takes a point out of its group by moving the group's last point into its place. */
+    private void take(Member<P> member) {
+        List<Member<P>> inGroup = member.group.members;
+        int             last    = inGroup.size() - 1;
+        Member<P>       moved   = inGroup.remove(last);
+        member.group.points.remove(last);
+        if (moved != member) {
+            moved.position = member.position;
+            inGroup.set(member.position, moved);
+            member.group.points.set(member.position, moved.point);
+        }
+        removed++;
+    }
+}
@@ -0,0 +1,267 @@
+package ui;
+
+import algorithms.RunSnapshot.Line;
+import dataprocessors.ChartDownsampler;
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
+
+/**
+ * Renders through a {@link LineChart}: a {@link DataSet} becomes one scatter series per label, drawing only the points
+ * a {@link ChartDownsampler} picks for the visible area, and each line a two-point series. The series are kept from
+ * one data set to the next and a {@link GroupedPoints} moves only the points whose label changed, so showing each
+ * iteration of a clustering algorithm does not rebuild the chart. Scrolling over the chart zooms in or out around the mouse, which
+ * brings back the detail the downsampling left out; double-clicking goes back to the whole data set.
+ * <p>
+ * A label with more instances in view than the density threshold gets no points at all: it is drawn by a
+ * {@link DensityLayer} into an image laid over the plot area, and the axes are held to the range the image covers.
+ * <p>
+ * All methods must be called on the JavaFX application thread.
+ *
+ * @author kevingray
+ */
+final class LineChartRenderer implements DataRenderer {
+
+    /** How much one scroll step zooms in or out. */
+    private static final double ZOOM_FACTOR = 1.25;
+    private static final int    TICKS       = 10;
+    private static final double PADDING     = 0.05; // of the data range, on each side, when a label is a density
+    private static final int[]  NO_POINTS   = new int[0];
+
+    private final LineChart<Number, Number>                   chart;
+    private final NumberAxis                                  xAxis;
+    private final NumberAxis                                  yAxis;
+    private final ChartDownsampler                            downsampler = new ChartDownsampler();
+    private final Map<String, XYChart.Series<Number, Number>> series      = new HashMap<>();
+    private final Map<Line, XYChart.Series<Number, Number>>   lineSeries  = new HashMap<>();
+    private final GroupedPoints<XYChart.Data<Number, Number>> points;
+    private final Region                                      plotBackground;
+    private final Pane                                        overlay     = new Pane();
+    private final ImageView                                   densityView = new ImageView();
+    private final DensityLayer                                density     = new DensityLayer();
+    private final StackPane                                   pane;
+
+    private DataSet dataSet;
+    private boolean zoomed;
+    private boolean renderPending;
+
+    LineChartRenderer(LineChart<Number, Number> chart) {
+        this.chart = chart;
+        this.xAxis = (NumberAxis) chart.getXAxis();
+        this.yAxis = (NumberAxis) chart.getYAxis();
+        this.points = new GroupedPoints<>(new GroupedPoints.Target<XYChart.Data<Number, Number>>() {
+            @Override
+            public List<XYChart.Data<Number, Number>> addGroup(String label) {
+                XYChart.Series<Number, Number> added = new XYChart.Series<>();
+                added.setName(label);
+                series.put(label, added);
+                chart.getData().add(added);
+                added.getNode().setStyle("-fx-stroke: transparent;");
+                return added.getData();
+            }
+
+            @Override
+            public void removeGroup(String label) { chart.getData().remove(series.remove(label)); }
+
+            @Override
+            public XYChart.Data<Number, Number> newPoint(double x, double y) { return new XYChart.Data<>(x, y); }
+
+            @Override
+            public void movePoint(XYChart.Data<Number, Number> point, double x, double y) {
+                point.setXValue(x);
+                point.setYValue(y);
+            }
+        });
+        // points move between series from one update to the next; animating each of them only slows the chart down
+        chart.setAnimated(false);
+        chart.addEventHandler(ScrollEvent.SCROLL, this::zoom);
+        chart.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getClickCount() == 2)
+                resetZoom();
+        });
+        // the number of points worth drawing depends on the size of the plot area
+        xAxis.widthProperty().addListener((observable, oldValue, newValue) -> renderLater());
+        yAxis.heightProperty().addListener((observable, oldValue, newValue) -> renderLater());
+
+        // the density image sits over the chart, lined up with its plot area wherever the chart lays that out
+        densityView.setVisible(false);
+        overlay.getChildren().add(densityView);
+        overlay.setMouseTransparent(true);
+        this.pane = new StackPane(chart, overlay);
+        this.plotBackground = (Region) chart.lookup(".chart-plot-background");
+        plotBackground.boundsInParentProperty().addListener((observable, oldValue, newValue) -> placeDensity());
+        plotBackground.getParent().boundsInParentProperty().addListener(
+                (observable, oldValue, newValue) -> placeDensity());
+    }
+
+    @Override
+    public Region getNode() { return pane; }
+
+    @Override
+    public void show(DataSet dataSet) {
+        this.dataSet = dataSet;
+        render();
+    }
+
+    @Override
+    public void addLine(Line line) {
+        if (lineSeries.containsKey(line))
+            return;
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
+        series.setName(line.name);
+        series.getData().add(new XYChart.Data<>(line.x1, line.y1));
+        series.getData().add(new XYChart.Data<>(line.x2, line.y2));
+        chart.getData().add(series);
+        lineSeries.put(line, series);
+    }
+
+    @Override
+    public void removeLine(Line line) {
+        XYChart.Series<Number, Number> removed = lineSeries.remove(line);
+        if (removed != null)
+            chart.getData().remove(removed);
+    }
+
+    @Override
+    public int pick(double sceneX, double sceneY) {
+        if (dataSet == null || xAxis.getWidth() <= 0 || yAxis.getHeight() <= 0)
+            return -1;
+        Point2D onX       = xAxis.sceneToLocal(sceneX, sceneY);
+        Point2D onY       = yAxis.sceneToLocal(sceneX, sceneY);
+        double  xPerPixel = (xAxis.getUpperBound() - xAxis.getLowerBound()) / xAxis.getWidth();
+        double  yPerPixel = (yAxis.getUpperBound() - yAxis.getLowerBound()) / yAxis.getHeight();
+        return dataSet.nearest(xAxis.getValueForDisplay(onX.getX()).doubleValue(),
+                               yAxis.getValueForDisplay(onY.getY()).doubleValue(),
+                               PICK_PIXELS * xPerPixel, PICK_PIXELS * yPerPixel);
+    }
+
+    @Override
+    public Viewport getViewport() {
+        return new Viewport(xAxis.getLowerBound(), xAxis.getUpperBound(), yAxis.getLowerBound(), yAxis.getUpperBound());
+    }
+
+    @Override
+    public void setDensityThreshold(int threshold) {
+        density.setThreshold(threshold);
+        render();
+    }
+
+    @Override
+    public void clear() {
+        dataSet = null;
+        series.clear();
+        lineSeries.clear();
+        points.clear();
+        chart.getData().clear();
+        densityView.setVisible(false);
+        if (!zoomed) {
+            xAxis.setAutoRanging(true);
+            yAxis.setAutoRanging(true);
+        }
+    }
+
+    private void renderLater() {
+        if (renderPending || dataSet == null)
+            return;
+        renderPending = true;
+        Platform.runLater(() -> {
+            renderPending = false;
+            render();
+        });
+    }
+
+    private void render() {
+        if (dataSet == null)
+            return;
+        Viewport  viewport = zoomed ? getViewport()
+                                    : Viewport.around(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.size());
+        double    width    = xAxis.getWidth() > 0 ? xAxis.getWidth() : chart.getWidth();
+        double    height   = yAxis.getHeight() > 0 ? yAxis.getHeight() : chart.getHeight();
+        Viewport  shown    = zoomed ? viewport : padded(viewport);
+        boolean[] dense    = density.update(dataSet, shown, width, height);
+        if (!zoomed) {
+            // auto-ranging would only see the points of the labels that are not a density
+            xAxis.setAutoRanging(!density.any());
+            yAxis.setAutoRanging(!density.any());
+            if (density.any()) {
+                range(xAxis, shown.xMin, shown.xMax);
+                range(yAxis, shown.yMin, shown.yMax);
+            }
+        }
+        int[][] sampled = downsampler.sample(dataSet, viewport, width, height);
+        for (int label = 0; label < dense.length && label < sampled.length; label++) {
+            if (dense[label])
+                sampled[label] = NO_POINTS;
+        }
+        points.apply(dataSet, sampled);
+        densityView.setImage(density.any() ? density.getImage() : null);
+        densityView.setVisible(density.any());
+        placeDensity();
+    }
+
+    private static Viewport padded(Viewport viewport) {
+        double xPad = viewport.xMax > viewport.xMin ? (viewport.xMax - viewport.xMin) * PADDING : 1;
+        double yPad = viewport.yMax > viewport.yMin ? (viewport.yMax - viewport.yMin) * PADDING : 1;
+        return new Viewport(viewport.xMin - xPad, viewport.xMax + xPad, viewport.yMin - yPad, viewport.yMax + yPad);
+    }
+
+    /** Stretches the density image over the plot area. */
+    private void placeDensity() {
+        if (!densityView.isVisible())
+            return;
+        Bounds plot = overlay.sceneToLocal(plotBackground.localToScene(plotBackground.getLayoutBounds()));
+        densityView.setLayoutX(plot.getMinX());
+        densityView.setLayoutY(plot.getMinY());
+        densityView.setFitWidth(plot.getWidth());
+        densityView.setFitHeight(plot.getHeight());
+    }
+
+    private void zoom(ScrollEvent e) {
+        if (dataSet == null || e.getDeltaY() == 0)
+            return;
+        double  factor = e.getDeltaY() > 0 ? 1 / ZOOM_FACTOR : ZOOM_FACTOR;
+        Point2D onX    = xAxis.sceneToLocal(e.getSceneX(), e.getSceneY());
+        Point2D onY    = yAxis.sceneToLocal(e.getSceneX(), e.getSceneY());
+        scale(xAxis, xAxis.getValueForDisplay(onX.getX()).doubleValue(), factor);
+        scale(yAxis, yAxis.getValueForDisplay(onY.getY()).doubleValue(), factor);
+        zoomed = true;
+        render();
+        e.consume();
+    }
+
+    private static void scale(NumberAxis axis, double around, double factor) {
+        double lower = axis.getLowerBound();
+        double upper = axis.getUpperBound();
+        range(axis, around - (around - lower) * factor, around + (upper - around) * factor);
+    }
+
+    private static void range(NumberAxis axis, double lower, double upper) {
+        axis.setAutoRanging(false);
+        axis.setLowerBound(lower);
+        axis.setUpperBound(upper);
+        axis.setTickUnit((upper - lower) / TICKS);
+    }
+
+    private void resetZoom() {
+        if (!zoomed)
+            return;
+        zoomed = false;
+        xAxis.setAutoRanging(true);
+        yAxis.setAutoRanging(true);
+        render();
+    }
+}
@@ -0,0 +1,113 @@
+package ui;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an opaque RGB image as a PNG file a few rows at a time, so that an image never has to be held in memory as a
+ * whole. Rows go through a single deflate stream, which is cut into an image data chunk every time {@link #CHUNK_SIZE}
+ * bytes of it have come out.
+ *
+ * @author kevingray
+ */
+final class PngStream {
+
+    private static final byte[] SIGNATURE  = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int    CHUNK_SIZE = 1 << 16;
+    private static final int    RGB        = 2;
+
+    private final DataOutputStream out;
+    private final int              width;
+    private final int              height;
+    private final Deflater         deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[]           row;
+    private final byte[]           chunk    = new byte[CHUNK_SIZE];
+    private int                    chunkLength;
+    private int                    rowsWritten;
+
+    /** Writes the signature and header; the rows follow through {@link #writeRows}. */
+    PngStream(OutputStream out, int width, int height) throws IOException {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("An image needs at least one pixel.");
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + 3 * width];
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // bits per sample
+        header[9] = RGB;
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * Adds the next rows of the image.
+     *
+     * @param pixels the rows, as RGB with anything in the top byte ignored, <code>width</code> pixels to a row
+     */
+    void writeRows(int[] pixels, int rows) throws IOException {
+        if (rowsWritten + rows > height)
+            throw new IllegalStateException("More rows than the image has.");
+        for (int r = 0; r < rows; r++) {
+            int offset = r * width;
+            row[0] = 0; // no filter
+            for (int c = 0, b = 1; c < width; c++) {
+                int rgb = pixels[offset + c];
+                row[b++] = (byte) (rgb >> 16);
+                row[b++] = (byte) (rgb >> 8);
+                row[b++] = (byte) rgb;
+            }
+            deflater.setInput(row);
+            while (!deflater.needsInput())
+                drain();
+        }
+        rowsWritten += rows;
+    }
+
+    /** Ends the image; every row must have been written. This does not close the underlying stream. */
+    void finish() throws IOException {
+        if (rowsWritten != height)
+            throw new IllegalStateException("The image is missing " + (height - rowsWritten) + " rows.");
+        deflater.finish();
+        while (!deflater.finished())
+            drain();
+        deflater.end();
+        if (chunkLength > 0)
+            writeChunk("IDAT", chunk, chunkLength);
+        writeChunk("IEND", chunk, 0);
+        out.flush();
+    }
+
+    /** Takes what the deflater has ready into the chunk buffer, writing the chunk out once it is full. */
+    private void drain() throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, CHUNK_SIZE - chunkLength);
+        if (chunkLength == CHUNK_SIZE) {
+            writeChunk("IDAT", chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32  crc       = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,106 @@
+package ui;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Arrays;
+
+/**
+ * An ARGB pixel buffer that scatter points are plotted into directly, one small square dot per instance, without a
+ * scene graph node per point. This is the part of {@link CanvasScatterRenderer} that scales with the size of the data
+ * set: plotting is a single pass over the coordinate and label columns.
+ *
+ * @author kevingray
+ */
+final class ScatterRaster {
+
+    /** The colors of the default JavaFX chart style, one per label id, repeating after eight. */
+    static final int[] PALETTE = {0xfff3622d, 0xfffba71b, 0xff57b757, 0xff41a9c9,
+                                  0xff4258c9, 0xff9a42c8, 0xffc84164, 0xff888888};
+
+    private int       width;
+    private int       height;
+    private int[]     pixels = new int[0];
+    private boolean[] hidden = new boolean[0];
+
+    int getWidth()    { return width; }
+
+    int getHeight()   { return height; }
+
+    /** @return the pixels, row by row from the top, as premultiplied ARGB; they are fully opaque or fully clear */
+    int[] getPixels() { return pixels; }
+
+    /** Leaves out the instances of the labels whose ids are marked, such as those drawn as a density instead. */
+    void hideLabels(boolean[] hidden) {
+        this.hidden = hidden;
+    }
+
+    /** Sets the size of the buffer and makes it fully transparent. */
+    void reset(int width, int height) {
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        if (pixels.length < this.width * this.height)
+            pixels = new int[this.width * this.height];
+        else
+            Arrays.fill(pixels, 0, this.width * this.height, 0);
+    }
+
+    /**
+     * Plots the first <code>size</code> instances, mapping the viewport onto the whole buffer. Later instances are drawn
+     * over earlier ones.
+     *
+     * @param dotRadius the dot around each point reaches this many pixels out in each direction
+     * @return the number of instances that fell inside the viewport
+     */
+    int plot(double[] xs, double[] ys, int[] labelIds, int size, Viewport viewport, int dotRadius) {
+        return plot(xs, ys, labelIds, null, size, viewport, dotRadius);
+    }
+
+    /**
+     * Plots only the instances whose indices are the first <code>size</code> of <code>subset</code>, such as those a
+     * spatial index found inside the viewport, in the order given; a null subset plots the first <code>size</code>.
+     */
+    int plot(double[] xs, double[] ys, int[] labelIds, int[] subset, int size, Viewport viewport, int dotRadius) {
+        return plot(xs, ys, labelIds, subset, size, viewport, height, 0, dotRadius);
+    }
+
+    /**
+     * Plots into a band of rows of a taller image, so that an image too large to hold at once can be drawn a band at
+     * a time: the viewport is mapped onto <code>fullHeight</code> rows, of which the buffer holds the ones from
+     * <code>firstRow</code> on. Dots that straddle the edge of the band are drawn in part.
+     *
+     * @return the number of instances whose dot reaches into the buffer
+     */
+    int plot(double[] xs, double[] ys, int[] labelIds, int[] subset, int size, Viewport viewport, int fullHeight,
+             int firstRow, int dotRadius) {
+        if (width == 0 || height == 0)
+            return 0;
+        double xScale = viewport.xMax > viewport.xMin ? (width - 1) / (viewport.xMax - viewport.xMin) : 0;
+        double yScale = viewport.yMax > viewport.yMin ? (fullHeight - 1) / (viewport.yMax - viewport.yMin) : 0;
+        int    drawn  = 0;
+        for (int s = 0; s < size; s++) {
+            int    i     = subset == null ? s : subset[s];
+            double x     = xs[i];
+            double y     = ys[i];
+            int    label = labelIds[i];
+            if (label < hidden.length && hidden[label])
+                continue;
+            if (!(x >= viewport.xMin && x <= viewport.xMax && y >= viewport.yMin && y <= viewport.yMax))
+                continue;
+            int row = fullHeight - 1 - (int) ((y - viewport.yMin) * yScale + 0.5) - firstRow;
+            if (row + dotRadius < 0 || row - dotRadius >= height)
+                continue;
+            int column = (int) ((x - viewport.xMin) * xScale + 0.5);
+            int color  = PALETTE[label % PALETTE.length];
+            int top    = Math.max(0, row - dotRadius);
+            int bottom = Math.min(height - 1, row + dotRadius);
+            int left   = Math.max(0, column - dotRadius);
+            int right  = Math.min(width - 1, column + dotRadius);
+            for (int r = top; r <= bottom; r++) {
+                int offset = r * width;
+                for (int c = left; c <= right; c++)
+                    pixels[offset + c] = color;
+            }
+            drawn++;
+        }
+        return drawn;
+    }
+}
@@ -0,0 +1,111 @@
+package algorithms;
+
+import dataprocessors.DataSet;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class AlgorithmRegistryTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     *
+     * Test for: the service files list every algorithm once, each for its task, found by id, none is skipped, and the
+     *           scan is kept
+     */
+    @Test
+    public void DescriptorsCheck() {
+        List<String> ids = new ArrayList<>();
+        for (AlgorithmDescriptor descriptor : AlgorithmRegistry.getDescriptors())
+            ids.add(descriptor.getId());
+        assertEquals(Arrays.asList("random-classifier", "perceptron", "logistic-regression", "random-clusterer",
+                                   "kmeans", "minibatch-kmeans", "hamerly-kmeans"), ids);
+        assertSame(AlgorithmRegistry.getDescriptors(), AlgorithmRegistry.getDescriptors());
+        assertEquals(3, AlgorithmRegistry.forTask(AlgorithmDescriptor.TaskType.CLASSIFICATION).size());
+        assertEquals(4, AlgorithmRegistry.forTask(AlgorithmDescriptor.TaskType.CLUSTERING).size());
+        assertNull(AlgorithmRegistry.find("no-such-algorithm"));
+        for (AlgorithmDescriptor descriptor : AlgorithmRegistry.getDescriptors()) {
+            Algorithm algorithm = descriptor.create(new DataSet(), ParameterValues.defaults());
+            Class<?>  expected  = descriptor.getTaskType() == AlgorithmDescriptor.TaskType.CLASSIFICATION
+                                  ? Classifier.class : Clusterer.class;
+            assertTrue(descriptor.getId(), expected.isInstance(algorithm));
+        }
+
+        assertTrue(AlgorithmRegistry.getSkipped().isEmpty());
+
+        ClassLoader  empty   = new URLClassLoader(new URL[0], null);
+        List<String> skipped = new ArrayList<>();
+        assertTrue(AlgorithmRegistry.scan(empty, skipped).isEmpty());
+        assertTrue(skipped.isEmpty());
+    }
+
+    /**
+     *
+     * Test for: a service file naming a class that is not there leaves that one out, says so, and keeps the others
+     */
+    @Test
+    public void SkippedCheck() throws Exception {
+        File services = folder.newFolder("META-INF", "services");
+        Files.write(new File(services, AlgorithmDescriptor.class.getName()).toPath(),
+                    Collections.singletonList("no.such.Descriptor"), Charset.defaultCharset());
+        ClassLoader  broken  = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()},
+                                                  AlgorithmRegistry.class.getClassLoader());
+        List<String> skipped = new ArrayList<>();
+        assertEquals(AlgorithmRegistry.getDescriptors().size(), AlgorithmRegistry.scan(broken, skipped).size());
+        assertEquals(1, skipped.size());
+        assertTrue(skipped.get(0), skipped.get(0).contains("no.such.Descriptor"));
+    }
+
+    /**
+     *
+     * Test for: values default until set, are checked against the parameter's range when set or parsed, and setting one
+     *           leaves the values it came from as they were
+     */
+    @Test
+    public void ParameterValuesCheck() {
+        ParameterValues defaults = ParameterValues.defaults();
+        ParameterValues three    = defaults.with(Parameter.CLUSTERS, 3);
+        assertEquals(2, (int) defaults.get(Parameter.CLUSTERS));
+        assertEquals(3, (int) three.get(Parameter.CLUSTERS));
+        assertEquals(1, (int) three.get(Parameter.MAX_ITERATIONS));
+        assertEquals(three, defaults.with(Parameter.CLUSTERS, Parameter.CLUSTERS.parse(" 3 ")));
+        assertEquals("clusters=3", three.toString());
+        assertFalse(Parameter.CONTINUOUS_RUN.parse("FALSE"));
+        for (String bad : new String[]{"5", "1", "three"}) {
+            try {
+                Parameter.CLUSTERS.parse(bad);
+                fail(bad);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            defaults.with(Parameter.MAX_ITERATIONS, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Parameter.CONTINUOUS_RUN.parse("yes");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package algorithms;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class AlgorithmSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /** Counts to its maximum, pausing after every iteration unless it runs continuously. */
+    private static final class Counter implements Algorithm {
+
+        final CountDownLatch paused = new CountDownLatch(1);
+        final boolean        continuous;
+        final int            maxIterations;
+
+        Counter(int maxIterations, boolean continuous) {
+            this.maxIterations = maxIterations;
+            this.continuous = continuous;
+        }
+
+        @Override
+        public int getMaxIterations() { return maxIterations; }
+
+        @Override
+        public int getUpdateInterval() { return 1; }
+
+        @Override
+        public boolean tocontinue() { return continuous; }
+
+        @Override
+        public void run() {
+            RunHandle run = RunHandle.current();
+            while (run.getIteration() < maxIterations && !run.isCancelled()) {
+                run.nextIteration();
+                if (!tocontinue() || run.isPauseRequested()) {
+                    paused.countDown();
+                    if (!run.pauseHere(RunSnapshot.unchanged().in(RunSnapshot.Phase.PAUSED)))
+                        return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Once let through, runs its iterations continuously, sleeping for a while in each, and publishes a finished
+     * snapshot at the end.
+     */
+    private static final class Finisher implements Algorithm {
+
+        final CountDownLatch start;
+        final int            maxIterations;
+        final long           sleepMillis;
+
+        Finisher(CountDownLatch start, int maxIterations, long sleepMillis) {
+            this.start = start;
+            this.maxIterations = maxIterations;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public int getMaxIterations() { return maxIterations; }
+
+        @Override
+        public int getUpdateInterval() { return 1; }
+
+        @Override
+        public boolean tocontinue() { return true; }
+
+        @Override
+        public void run() {
+            RunHandle run = RunHandle.current();
+            try {
+                start.await();
+                while (run.getIteration() < maxIterations) {
+                    run.nextIteration();
+                    if (sleepMillis > 0)
+                        Thread.sleep(sleepMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            run.publish(RunSnapshot.unchanged().in(RunSnapshot.Phase.FINISHED));
+        }
+    }
+
+    private static void awaitState(RunHandle run, RunHandle.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (run.getState() != state) {
+            assertTrue("still " + run.getState(), System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     *
+     * Test for: each resume lets a paused run take exactly one more step, with its own counter, and runs at once do not
+     *           wait on each other
+     */
+    @Test
+    public void PauseResumeCheck() throws Exception {
+        AlgorithmScheduler scheduler = new AlgorithmScheduler();
+        RunHandle          stepping  = scheduler.submit(new Counter(3, false));
+        RunHandle          free      = scheduler.submit(new Counter(1000000, true));
+        free.await();
+        assertEquals(RunHandle.State.FINISHED, free.getState());
+        assertEquals(1000000, free.getIteration());
+        for (int step = 1; step <= 3; step++) {
+            awaitState(stepping, RunHandle.State.PAUSED);
+            assertEquals(step, stepping.getIteration());
+            long resumedAt = System.nanoTime();
+            stepping.resume();
+            if (step < 3)
+                awaitState(stepping, RunHandle.State.PAUSED);
+            assertTrue(System.nanoTime() - resumedAt < TimeUnit.MILLISECONDS.toNanos(500));
+        }
+        stepping.await();
+        assertEquals(RunHandle.State.FINISHED, stepping.getState());
+        assertFalse(scheduler.hasActiveRuns());
+    }
+
+    /**
+     *
+     * Test for: a resume that comes as soon as the paused snapshot is shown, before the run has settled into waiting,
+     *           is not lost
+     */
+    @Test
+    public void ResumeOnPausedSnapshotCheck() throws Exception {
+        AtomicReference<RunHandle> handle    = new AtomicReference<>();
+        CountDownLatch             submitted = new CountDownLatch(1);
+        AlgorithmScheduler         scheduler = new AlgorithmScheduler(snapshot -> {
+            if (snapshot.getPhase() == RunSnapshot.Phase.PAUSED) {
+                try {
+                    submitted.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                handle.get().resume();
+            }
+        });
+        handle.set(scheduler.submit(new Counter(3, false)));
+        submitted.countDown();
+        awaitState(handle.get(), RunHandle.State.FINISHED);
+        assertEquals(3, handle.get().getIteration());
+        scheduler.shutdown();
+    }
+
+    /**
+     *
+     * Test for: a pause request stops a continuous run at its next check, cancelling wakes and ends it, and a run
+     *           outside a scheduler never pauses
+     */
+    @Test
+    public void PauseRequestAndCancelCheck() throws Exception {
+        AlgorithmScheduler scheduler = new AlgorithmScheduler();
+        Counter            counter   = new Counter(Integer.MAX_VALUE, true);
+        RunHandle          run       = scheduler.submit(counter);
+        run.pause();
+        assertTrue(counter.paused.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        awaitState(run, RunHandle.State.PAUSED);
+        assertTrue(scheduler.hasActiveRuns());
+        run.cancel();
+        run.await();
+        assertEquals(RunHandle.State.CANCELLED, run.getState());
+
+        Counter direct = new Counter(5, false);
+        direct.run();
+        assertEquals(0, direct.paused.getCount());
+        scheduler.shutdown();
+    }
+
+    /**
+     *
+     * Test for: a run at maximum speed is flagged as one, and its rate stays fixed once it has ended
+     */
+    @Test
+    public void MaxSpeedCheck() throws Exception {
+        AlgorithmScheduler scheduler = new AlgorithmScheduler();
+        RunHandle          paced     = scheduler.submit(new Counter(10, true));
+        RunHandle          fast      = scheduler.submit(new Counter(100000, true), true);
+        paced.await();
+        fast.await();
+        assertFalse(paced.isMaxSpeed());
+        assertTrue(fast.isMaxSpeed());
+        double rate = fast.getIterationsPerSecond();
+        assertTrue(rate > 0);
+        Thread.sleep(20);
+        assertEquals(rate, fast.getIterationsPerSecond(), 0);
+        assertTrue(RunHandle.current().isMaxSpeed());
+        scheduler.shutdown();
+    }
+
+    /**
+     *
+     * Test for: a finished snapshot carries the rate of the run that published it, not that of whichever run started
+     *           last
+     */
+    @Test
+    public void FinishedRateCheck() throws Exception {
+        AtomicReference<RunSnapshot> slowFinish = new AtomicReference<>();
+        AtomicReference<RunSnapshot> fastFinish = new AtomicReference<>();
+        AtomicReference<RunHandle>   slowRun    = new AtomicReference<>();
+        AlgorithmScheduler           scheduler  = new AlgorithmScheduler(snapshot -> {
+            if (snapshot.getPhase() == RunSnapshot.Phase.FINISHED)
+                (RunHandle.current() == slowRun.get() ? slowFinish : fastFinish).set(snapshot);
+        });
+        CountDownLatch submitted = new CountDownLatch(1);
+        slowRun.set(scheduler.submit(new Finisher(submitted, 10, 5)));
+        RunHandle fast = scheduler.submit(new Finisher(submitted, 100000, 0));
+        submitted.countDown();
+        slowRun.get().await();
+        fast.await();
+        assertTrue(slowFinish.get().getIterationsPerSecond() > 0);
+        assertTrue(slowFinish.get().getIterationsPerSecond() < 1000);
+        assertTrue(fastFinish.get().getIterationsPerSecond() >= fast.getIterationsPerSecond());
+        assertEquals(0, RunSnapshot.unchanged().getIterationsPerSecond(), 0);
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package batch;
+
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class BatchRunnerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     *
+     * Test for: K-Means run from the command line writes every instance labelled by cluster, two far apart groups in two
+     *           clusters, and prints its timing
+     */
+    @Test
+    public void ClusterFileCheck() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Path tsd = dir.resolve("groups.tsd");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            lines.append(String.format("@near%d\tl\t%d,%d%n@far%d\tl\t%d,%d%n", i, i % 5, i / 5, i, 100 + i % 5, i / 5));
+        Files.write(tsd, lines.toString().getBytes(Charset.defaultCharset()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(0, BatchRunner.run(new PrintStream(out), new PrintStream(err), tsd.toString(), "kmeans", "20", "5",
+                                        "2"));
+        assertTrue(out.toString().contains("iterations"));
+        DataSet labelled = TSDProcessor.load(dir.resolve("groups-kmeans.tsd"));
+        assertEquals(100, labelled.size());
+        String near = labelled.getLabels().get("@near0");
+        String far  = labelled.getLabels().get("@far0");
+        assertNotEquals(near, far);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(near, labelled.getLabels().get("@near" + i));
+            assertEquals(far, labelled.getLabels().get("@far" + i));
+        }
+    }
+
+    /**
+     *
+     * Test for: a classifier writes its output triple to the file given, bad arguments, among them a number of
+     *           clusters given to a classifier, are turned away with the usage, and a file that repeats a name is
+     *           turned away with the line it repeats it on
+     */
+    @Test
+    public void ClassifierAndUsageCheck() throws Exception {
+        Path dir    = folder.getRoot().toPath();
+        Path tsd    = dir.resolve("points.tsd");
+        Path output = dir.resolve("line.txt");
+        Files.write(tsd, Arrays.asList("@a\tl1\t1,2", "@b\tl2\t3,4"), Charset.defaultCharset());
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream());
+        assertEquals(0, BatchRunner.run(quiet, quiet, tsd.toString(), "random-classifier", "10", "1",
+                                        output.toString()));
+        String[] triple = Files.readAllLines(output, Charset.defaultCharset()).get(0).split("\t");
+        assertEquals(3, triple.length);
+        for (String value : triple)
+            Integer.parseInt(value);
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(1, BatchRunner.run(quiet, new PrintStream(err), tsd.toString(), "no-such-algorithm", "10", "1"));
+        assertTrue(err.toString().contains("Usage"));
+        assertEquals(1, BatchRunner.run(quiet, quiet, tsd.toString(), "kmeans", "ten", "1"));
+
+        Files.write(tsd, Arrays.asList("@a\tl1\t1,2", "@a\tl2\t3,4"), Charset.defaultCharset());
+        err.reset();
+        assertEquals(2, BatchRunner.run(quiet, new PrintStream(err), tsd.toString(), "kmeans", "10", "1"));
+        assertTrue(err.toString().contains("line: 2"));
+        err.reset();
+        assertEquals(1, BatchRunner.run(quiet, new PrintStream(err), tsd.toString(), "random-classifier", "10", "1", "2",
+                                        output.toString()));
+        assertTrue(err.toString().contains("Usage"));
+    }
+}
@@ -0,0 +1,166 @@
+package batch;
+
+import algorithms.AlgorithmRegistry;
+import algorithms.Parameter;
+import algorithms.ParameterValues;
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class SweepRunnerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** Three far apart groups of 50, the first labelled a and the other two b. */
+    private DataSet groups() throws Exception {
+        Path          tsd   = folder.newFile("sweep.tsd").toPath();
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            lines.append(String.format("@a%d\ta\t%d,%d%n@b%d\tb\t%d,%d%n@c%d\tb\t%d,%d%n", i, i % 5, i / 5,
+                                       i, 100 + i % 5, i / 5, i, 50 + i % 5, 100 + i / 5));
+        Files.write(tsd, lines.toString().getBytes(Charset.defaultCharset()));
+        return TSDProcessor.load(tsd);
+    }
+
+    /**
+     *
+     * Test for: a grid varied by two parameters holds every pair of their values, the first varying slowest
+     */
+    @Test
+    public void GridCheck() {
+        List<ParameterValues> grid = SweepRunner.vary(Collections.singletonList(ParameterValues.defaults()),
+                                                      Parameter.CLUSTERS, Arrays.asList(2, 3, 4));
+        grid = SweepRunner.vary(grid, Parameter.SEED, Arrays.asList(1, 2));
+        assertEquals(6, grid.size());
+        assertEquals("clusters=2, seed=1", grid.get(0).toString());
+        assertEquals("clusters=2, seed=2", grid.get(1).toString());
+        assertEquals("clusters=4, seed=2", grid.get(5).toString());
+    }
+
+    /**
+     *
+     * Test for: seeded K-Means runs over several numbers of clusters, on two workers, score lower inertia with more
+     *           clusters, the same seed scores the same, the best is taken, and the data swept is left as it was
+     */
+    @Test
+    public void ClusteringSweepCheck() throws Exception {
+        DataSet               dataSet = groups();
+        List<ParameterValues> grid    = Collections.singletonList(ParameterValues.defaults()
+                                                                                 .with(Parameter.MAX_ITERATIONS, 50));
+        grid = SweepRunner.vary(grid, Parameter.CLUSTERS, Arrays.asList(2, 3, 4));
+        grid = SweepRunner.vary(grid, Parameter.SEED, Arrays.asList(7, 7));
+        SweepRunner runner = new SweepRunner(2);
+        try {
+            List<SweepResult> results = runner.run(AlgorithmRegistry.find("kmeans"), dataSet, grid);
+            assertEquals(6, results.size());
+            for (int i = 0; i < 6; i++) {
+                assertNull(results.get(i).getFailure());
+                assertSame(grid.get(i), results.get(i).getValues());
+                assertEquals("inertia", results.get(i).getScoreName());
+            }
+            for (int i = 0; i < 6; i += 2)
+                assertEquals(results.get(i).getScore(), results.get(i + 1).getScore(), 0);
+            assertTrue(results.get(0).getScore() > results.get(2).getScore());
+            assertTrue(results.get(2).getScore() > results.get(4).getScore());
+            assertSame(results.get(4), SweepRunner.best(results));
+
+            runner.run(AlgorithmRegistry.find("random-clusterer"), dataSet,
+                       Collections.singletonList(ParameterValues.defaults().with(Parameter.CLUSTERS, 4)));
+        } finally {
+            runner.shutdown();
+        }
+        assertEquals(2, dataSet.getLabelTableSize());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("a", dataSet.getLabels().get("@a" + i));
+            assertEquals("b", dataSet.getLabels().get("@c" + i));
+        }
+    }
+
+    /**
+     *
+     * Test for: a classifier sweep scores the accuracy of each learned line on the first two labels, all of them right
+     *           for groups a line can split
+     */
+    @Test
+    public void ClassificationSweepCheck() throws Exception {
+        List<ParameterValues> grid = Collections.singletonList(ParameterValues.defaults()
+                                                                              .with(Parameter.MAX_ITERATIONS, 500)
+                                                                              .with(Parameter.SEED, 3));
+        grid = SweepRunner.vary(grid, Parameter.BATCH_SIZE, Arrays.asList(16, 150));
+        SweepRunner runner = new SweepRunner(2);
+        try {
+            List<SweepResult> results = runner.run(AlgorithmRegistry.find("logistic-regression"), groups(), grid);
+            for (SweepResult result : results) {
+                assertEquals("accuracy", result.getScoreName());
+                assertEquals(result.toString(), 1.0, result.getScore(), 0);
+            }
+            assertNotNull(SweepRunner.best(results));
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    /**
+     *
+     * Test for: shutting a sweep down stops the run under way and the ones waiting, and each is reported as cancelled
+     */
+    @Test
+    public void ShutdownCheck() throws Exception {
+        DataSet                            dataSet = groups();
+        ParameterValues                    endless = ParameterValues.defaults()
+                                                                    .with(Parameter.MAX_ITERATIONS, Integer.MAX_VALUE);
+        List<ParameterValues>              grid    = SweepRunner.vary(Collections.singletonList(endless),
+                                                                      Parameter.SEED, Arrays.asList(1, 2, 3));
+        SweepRunner                        runner  = new SweepRunner(1);
+        AtomicReference<List<SweepResult>> results = new AtomicReference<>();
+        Thread sweep = new Thread(() -> {
+            try {
+                results.set(runner.run(AlgorithmRegistry.find("random-clusterer"), dataSet, grid));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sweep.start();
+        Thread.sleep(100);
+        runner.shutdown();
+        sweep.join(10000);
+        assertFalse(sweep.isAlive());
+        assertEquals(3, results.get().size());
+        for (SweepResult result : results.get())
+            assertTrue(result.toString(), result.getFailure() instanceof CancellationException);
+    }
+
+    /**
+     *
+     * Test for: a sweep from the command line turns away a file that repeats a name, running nothing
+     */
+    @Test
+    public void InvalidFileCheck() throws Exception {
+        Path tsd = folder.newFile("duplicate.tsd").toPath();
+        Files.write(tsd, Arrays.asList("@a\ta\t1,2", "@b\tb\t3,4", "@a\tb\t5,6"), Charset.defaultCharset());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(2, SweepRunner.sweep(new PrintStream(out), new PrintStream(err), tsd.toString(), "kmeans", "1",
+                                          "clusters=2,3"));
+        assertEquals("", out.toString());
+        assertTrue(err.toString(), err.toString().contains("line: 3"));
+    }
+}
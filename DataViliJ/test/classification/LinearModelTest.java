@@ -0,0 +1,100 @@
+package classification;
+
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class LinearModelTest {
+
+    /** Two blobs far from the origin, above and below the line y = 2x + 300, with targets +1 and -1. */
+    private static double[][] sides(Random random, int size) {
+        double[][] points = new double[3][size];
+        for (int i = 0; i < size; i++) {
+            double x    = 1000 + 50 * random.nextGaussian();
+            double side = i % 2 == 0 ? 1 : -1;
+            points[0][i] = x;
+            points[1][i] = 2 * x + 300 + side * (40 + 10 * Math.abs(random.nextGaussian()));
+            points[2][i] = side;
+        }
+        return points;
+    }
+
+    /**
+     *
+     * Test for: both losses learn a line that puts every point of two separable groups on its own side, far from the
+     *           origin, and points without a target are left out
+     */
+    @Test
+    public void SeparableCheck() {
+        double[][] points = sides(new Random(3), 5000);
+        points[2][0] = 0;
+        points[0][0] = -1e9;
+        for (LinearModel.Loss loss : LinearModel.Loss.values()) {
+            LinearModel model  = new LinearModel(points[0], points[1], points[2], 5000, loss);
+            Random      random = new Random(8);
+            assertEquals(4999, model.getTrainingSize());
+            for (int step = 1; step <= 2000; step++)
+                model.step(random, 256, 0.5 / Math.sqrt(step));
+            model.evaluate();
+            assertEquals(loss.name(), 1.0, model.getLastAccuracy(), 0);
+            double[] line = model.getLine();
+            for (int i = 1; i < 5000; i++)
+                assertTrue(points[2][i] * (line[0] * points[0][i] + line[1] * points[1][i] + line[2]) > 0);
+        }
+    }
+
+    /**
+     *
+     * Test for: a full-batch gradient summed in parts over a pool moves the weights as one summed on a single thread
+     */
+    @Test
+    public void ParallelGradientCheck() {
+        double[][]  points = sides(new Random(11), 100000);
+        LinearModel split  = new LinearModel(points[0], points[1], points[2], 100000, LinearModel.Loss.LOGISTIC,
+                                             new ForkJoinPool(4));
+        LinearModel single = new LinearModel(points[0], points[1], points[2], 100000, LinearModel.Loss.LOGISTIC,
+                                             new ForkJoinPool(1));
+        for (int step = 0; step < 5; step++)
+            assertEquals(single.step(null, 100000, 0.5), split.step(null, 100000, 0.5), 1e-9);
+        assertArrayEquals(single.getLine(), split.getLine(), 1e-9);
+        assertEquals(single.evaluate(), split.evaluate(), 1e-9);
+    }
+
+    /**
+     *
+     * Test for: the classifier stops well before its iteration limit once the loss stops going down, and its output
+     *           triple separates the two labels
+     */
+    @Test
+    public void ConvergenceCheck() throws Exception {
+        StringBuilder tsd    = new StringBuilder();
+        Random        random = new Random(5);
+        for (int i = 0; i < 400; i++)
+            tsd.append(String.format("@p%d\t%s\t%s,%s%n", i, i % 2 == 0 ? "up" : "down", random.nextDouble() * 10,
+                                     (i % 2 == 0 ? 12 : -2) + random.nextDouble() * 10));
+        Path file = Files.createTempFile("separable", ".tsd");
+        Files.write(file, tsd.toString().getBytes(Charset.defaultCharset()));
+        DataSet dataSet = TSDProcessor.load(file);
+        Files.delete(file);
+        LinearClassifier classifier = new LinearClassifier(dataSet, 100000, 10, true, LinearModel.Loss.PERCEPTRON);
+        classifier.run();
+        assertTrue(classifier.hasConverged());
+        List<Integer> output = classifier.getOutput();
+        int           up     = dataSet.getLabelDictionary().idOf("up");
+        for (int i = 0; i < dataSet.size(); i++) {
+            double side = output.get(0) * dataSet.getX(i) + output.get(1) * dataSet.getY(i) + output.get(2);
+            assertEquals(dataSet.getLabelId(i) == up, side > 0);
+        }
+    }
+}
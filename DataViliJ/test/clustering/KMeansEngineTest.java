@@ -0,0 +1,263 @@
+package clustering;
+
+import algorithms.AlgorithmRegistry;
+import algorithms.AlgorithmScheduler;
+import algorithms.Parameter;
+import algorithms.ParameterValues;
+import algorithms.RunHandle;
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class KMeansEngineTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /** Points scattered around four centers, so that K-Means settles quickly. */
+    private static double[][] blobs(Random random, int size) {
+        double[][] points  = new double[2][size];
+        double[]   centers = {0, 0, 10, 0, 0, 10, 10, 10};
+        for (int i = 0; i < size; i++) {
+            int blob = random.nextInt(4);
+            points[0][i] = centers[2 * blob] + random.nextGaussian();
+            points[1][i] = centers[2 * blob + 1] + random.nextGaussian();
+        }
+        return points;
+    }
+
+    /** One plain iteration of Lloyd's algorithm, point by point. */
+    private static int[] lloyd(double[] xs, double[] ys, double[] centroidXs, double[] centroidYs) {
+        int      k      = centroidXs.length;
+        int[]    labels = new int[xs.length];
+        double[] sumX   = new double[k];
+        double[] sumY   = new double[k];
+        int[]    counts = new int[k];
+        for (int i = 0; i < xs.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                double d = Math.pow(xs[i] - centroidXs[c], 2) + Math.pow(ys[i] - centroidYs[c], 2);
+                if (d < best) {
+                    best = d;
+                    labels[i] = c;
+                }
+            }
+            sumX[labels[i]] += xs[i];
+            sumY[labels[i]] += ys[i];
+            counts[labels[i]]++;
+        }
+        for (int c = 0; c < k; c++) {
+            if (counts[c] > 0) {
+                centroidXs[c] = sumX[c] / counts[c];
+                centroidYs[c] = sumY[c] / counts[c];
+            }
+        }
+        return labels;
+    }
+
+    /**
+     *
+     * Test for: iterations split over a pool assign and move centroids exactly as plain Lloyd iterations do, and the
+     *           number of changed points drops to zero once the clusters settle
+     */
+    @Test
+    public void SameAsLloydCheck() {
+        double[][]   points     = blobs(new Random(5), 200000);
+        double[]     centroidXs = {3, 6, 1, 9};
+        double[]     centroidYs = {1, 2, 8, 7};
+        KMeansEngine engine     = new KMeansEngine(points[0], points[1], 200000, 4, new ForkJoinPool(4));
+        for (int c = 0; c < 4; c++)
+            engine.setCentroid(c, centroidXs[c], centroidYs[c]);
+        assertEquals(200000, engine.iterate());
+        assertArrayEquals(lloyd(points[0], points[1], centroidXs, centroidYs), engine.getAssignment());
+        int changed = -1;
+        for (int iteration = 0; iteration < 50 && changed != 0; iteration++) {
+            changed = engine.iterate();
+            assertArrayEquals(lloyd(points[0], points[1], centroidXs, centroidYs), engine.getAssignment());
+            for (int c = 0; c < 4; c++) {
+                assertEquals(centroidXs[c], engine.getCentroidX(c), DELTA);
+                assertEquals(centroidYs[c], engine.getCentroidY(c), DELTA);
+            }
+        }
+        assertEquals(0, changed);
+        int total = 0;
+        for (int c = 0; c < 4; c++)
+            total += engine.getClusterSize(c);
+        assertEquals(200000, total);
+        assertEquals(2 * 200000, engine.getInertia(), 0.05 * 2 * 200000); // two unit variances per point
+    }
+
+    /**
+     *
+     * Test for: points without a location go in the first cluster and do not move its centroid
+     */
+    @Test
+    public void NaNLocationCheck() {
+        double[]     xs     = {0, 1, Double.NaN};
+        double[]     ys     = {0, 1, 5};
+        KMeansEngine engine = new KMeansEngine(xs, ys, 3, 1);
+        engine.setCentroid(0, 10, 10);
+        engine.iterate();
+        assertArrayEquals(new int[]{0, 0, 0}, engine.getAssignment());
+        assertEquals(2, engine.getClusterSize(0));
+        assertEquals(0.5, engine.getCentroidX(0), DELTA);
+        assertEquals(0.5, engine.getCentroidY(0), DELTA);
+    }
+
+    /**
+     *
+     * Test for: k-means++ places one centroid in each well separated blob and the result settles in a few iterations
+     */
+    @Test
+    public void SeedingCheck() {
+        double[][]   points = blobs(new Random(17), 100000);
+        KMeansEngine engine = new KMeansEngine(points[0], points[1], 100000, 4);
+        engine.seed(new Random(3));
+        boolean[] found = new boolean[4];
+        for (int c = 0; c < 4; c++) {
+            int blob = (engine.getCentroidX(c) > 5 ? 1 : 0) + (engine.getCentroidY(c) > 5 ? 2 : 0);
+            found[blob] = true;
+        }
+        assertArrayEquals(new boolean[]{true, true, true, true}, found);
+        int iterations = 1;
+        while (engine.iterate() > 0)
+            iterations++;
+        assertTrue("took " + iterations + " iterations", iterations < 10);
+    }
+
+    /**
+     *
+     * Test for: an empty cluster takes the point farthest from its centroid, which leaves that point's cluster, and
+     *           seeding copes with fewer distinct points than clusters
+     */
+    @Test
+    public void ReseedCheck() {
+        double[]     xs     = {0, 1, 2, 30};
+        double[]     ys     = {0, 0, 0, 0};
+        KMeansEngine engine = new KMeansEngine(xs, ys, 4, 2);
+        engine.setCentroid(0, 1, 0);
+        engine.setCentroid(1, 100, 100);
+        assertEquals(4, engine.iterate());
+        assertArrayEquals(new int[]{0, 0, 0, 1}, engine.getAssignment());
+        assertEquals(1, engine.getReseeded());
+        assertEquals(1, engine.getCentroidX(0), DELTA);
+        assertEquals(30, engine.getCentroidX(1), DELTA);
+        assertEquals(3, engine.getClusterSize(0));
+        assertEquals(2, engine.getInertia(), DELTA);
+
+        double[]     same  = {5, 5, 5};
+        KMeansEngine dense = new KMeansEngine(same, same, 3, 3);
+        dense.seed(new Random(1));
+        for (int c = 0; c < 3; c++)
+            assertEquals(5, dense.getCentroidX(c), DELTA);
+        dense.iterate();
+        assertFalse(Double.isNaN(dense.getCentroidX(1)));
+    }
+
+    /**
+     *
+     * Test for: mini-batches that together see a fraction of the points settle close to where full iterations do
+     */
+    @Test
+    public void MiniBatchCheck() {
+        double[][]   points = blobs(new Random(23), 200000);
+        KMeansEngine full   = new KMeansEngine(points[0], points[1], 200000, 4);
+        full.seed(new Random(9));
+        while (full.iterate() > 0)
+            ;
+        KMeansEngine mini = new KMeansEngine(points[0], points[1], 200000, 4);
+        mini.seed(new Random(9));
+        Random random = new Random(4);
+        for (int step = 0; step < 50; step++)
+            mini.miniBatch(random, 256);
+        assertEquals(200000, mini.assign());
+        assertEquals(full.getInertia(), mini.getInertia(), 0.01 * full.getInertia());
+        int total = 0;
+        for (int c = 0; c < 4; c++)
+            total += mini.getClusterSize(c);
+        assertEquals(200000, total);
+    }
+
+    /**
+     *
+     * Test for: bounded iterations give the same clusters and centroids as plain ones, computing far fewer distances
+     *           once the centroids settle, and an empty cluster is reseeded as a plain iteration reseeds it
+     */
+    @Test
+    public void BoundedSameAsPlainCheck() {
+        double[][]   points  = blobs(new Random(61), 150000);
+        points[0][7] = Double.NaN;
+        KMeansEngine plain   = new KMeansEngine(points[0], points[1], 150000, 4, new ForkJoinPool(3));
+        KMeansEngine bounded = new KMeansEngine(points[0], points[1], 150000, 4, new ForkJoinPool(3));
+        double[]     starts  = {4, 5, 5, 5, 6, 5, 50, 50}; // the last centroid starts far from every point
+        for (int c = 0; c < 4; c++) {
+            plain.setCentroid(c, starts[2 * c], starts[2 * c + 1]);
+            bounded.setCentroid(c, starts[2 * c], starts[2 * c + 1]);
+        }
+        long saved = 0;
+        for (int iteration = 0; iteration < 30; iteration++) {
+            assertEquals(plain.iterate(), bounded.iterateBounded());
+            assertArrayEquals(plain.getAssignment(), bounded.getAssignment());
+            for (int c = 0; c < 4; c++) {
+                assertEquals(plain.getCentroidX(c), bounded.getCentroidX(c), DELTA);
+                assertEquals(plain.getCentroidY(c), bounded.getCentroidY(c), DELTA);
+            }
+            assertEquals(plain.getInertia(), bounded.getInertia(), 1e-6 * plain.getInertia());
+            assertEquals(plain.getDistancesComputed() + plain.getDistancesSaved(),
+                         bounded.getDistancesComputed() + bounded.getDistancesSaved());
+            if (iteration >= 20)
+                saved += bounded.getDistancesSaved();
+        }
+        assertTrue(bounded.getReseeded() > 0);
+        assertEquals(plain.getReseeded(), bounded.getReseeded());
+        assertEquals(0, plain.getDistancesSaved());
+        assertTrue("saved " + saved, saved > 10 * 150000L * 4 * 3 / 4);
+    }
+
+    /**
+     *
+     * Test for: a K-Means run, plain or bounded, stops at the first iteration that changes no cluster instead of going
+     *           on to its maximum, and says that it converged
+     */
+    @Test
+    public void ConvergedRunStopsCheck() throws Exception {
+        double[][]    points = blobs(new Random(21), 2000);
+        Path          tsd    = folder.newFile("blobs.tsd").toPath();
+        StringBuilder lines  = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            lines.append(String.format("@i%d\tl\t%s,%s%n", i, points[0][i], points[1][i]));
+        Files.write(tsd, lines.toString().getBytes(Charset.defaultCharset()));
+        DataSet dataSet = TSDProcessor.load(tsd);
+        ParameterValues values = ParameterValues.defaults().with(Parameter.MAX_ITERATIONS, 1000)
+                                                .with(Parameter.CLUSTERS, 4).with(Parameter.SEED, 5);
+        AlgorithmScheduler scheduler = new AlgorithmScheduler();
+        for (String id : new String[]{"kmeans", "hamerly-kmeans"}) {
+            KMeansClusterer clusterer = (KMeansClusterer) AlgorithmRegistry.find(id).create(dataSet, values);
+            RunHandle       run       = scheduler.submit(clusterer, true);
+            run.await();
+            assertTrue(id, clusterer.hasConverged());
+            assertTrue(id, run.getIteration() < 1000);
+            assertEquals(id, 2000, clusterer.getOutput().size());
+        }
+        KMeansClusterer capped = new KMeansClusterer(dataSet, 1, 1, true, 4);
+        RunHandle       run    = scheduler.submit(capped, true);
+        run.await();
+        assertFalse(capped.hasConverged());
+        assertEquals(1, run.getIteration());
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,66 @@
+package dataprocessors;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class ChartDownsamplerTest {
+
+    private static DataSet randomDataSet(int size, int labels) {
+        Random  random  = new Random(219);
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < size; i++)
+            dataSet.addInstance("@i" + i, "l" + (i % labels), random.nextDouble() * 100, random.nextDouble() * 100);
+        return dataSet;
+    }
+
+    /**
+     *
+     * Test for: each label yields a bounded number of points however many instances there are
+     */
+    @Test
+    public void BoundedSeriesCheck() {
+        DataSet          dataSet     = randomDataSet(200000, 3);
+        ChartDownsampler downsampler = new ChartDownsampler(500);
+        Viewport         all         = Viewport.around(dataSet.getXColumn(), dataSet.getYColumn(), dataSet.size());
+        int[][]          sampled     = downsampler.sample(dataSet, all, 800, 600);
+        assertEquals(3, sampled.length);
+        for (int id = 0; id < sampled.length; id++) {
+            assertTrue(sampled[id].length > 0);
+            assertTrue(sampled[id].length <= 500);
+            for (int index : sampled[id])
+                assertEquals(id, dataSet.getLabelId(index));
+        }
+    }
+
+    /**
+     *
+     * Test for: zooming in leaves out what is outside the viewport and brings back every instance inside it
+     */
+    @Test
+    public void ZoomedDetailCheck() {
+        DataSet          dataSet     = randomDataSet(200000, 2);
+        ChartDownsampler downsampler = new ChartDownsampler(500);
+        Viewport         zoomed      = new Viewport(10, 10.5, 20, 20.5);
+        int              inside      = 0;
+        for (int i = 0; i < dataSet.size(); i++) {
+            if (dataSet.getX(i) >= 10 && dataSet.getX(i) <= 10.5 && dataSet.getY(i) >= 20 && dataSet.getY(i) <= 20.5)
+                inside++;
+        }
+        int[][] sampled = downsampler.sample(dataSet, zoomed, 800, 600);
+        int     drawn   = 0;
+        for (int[] indices : sampled) {
+            for (int index : indices) {
+                assertTrue(dataSet.getX(index) >= 10 && dataSet.getX(index) <= 10.5);
+                drawn++;
+            }
+        }
+        assertTrue(inside > 0);
+        assertEquals(inside, drawn);
+    }
+}
@@ -0,0 +1,88 @@
+package dataprocessors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class DataSetTest {
+
+    private static DataSet sample() {
+        DataSet dataSet = new DataSet();
+        dataSet.addInstance("@a", "l1", 1, 2);
+        dataSet.addInstance("@b", "l2", 3, 4);
+        dataSet.addInstance("@c", "l1", 5, 6);
+        return dataSet;
+    }
+
+    /**
+     * 
+     * Test for: the label and location maps read through to the columns
+     */
+    @Test
+    public void MapViewsCheck() {
+        DataSet dataSet = sample();
+        Map<String, String> expected = new HashMap<>();
+        expected.put("@a", "l1");
+        expected.put("@b", "l2");
+        expected.put("@c", "l1");
+        assertEquals(expected, dataSet.getLabels());
+        assertEquals(3, dataSet.getLocations().size());
+        assertEquals(6, dataSet.getLocations().get("@c").getY(), 0);
+        assertEquals(2, dataSet.getLabelTableSize());
+        assertEquals(dataSet.getLabelId(0), dataSet.getLabelId(2));
+    }
+
+    /**
+     * 
+     * Test for: relabeling through the map view and through updateLabel
+     */
+    @Test
+    public void RelabelCheck() {
+        DataSet dataSet = sample();
+        dataSet.getLabels().put("@a", "0");
+        dataSet.updateLabel("@b", "0");
+        assertEquals("0", dataSet.getLabel(0));
+        assertEquals(dataSet.getLabelId(0), dataSet.getLabelId(1));
+        assertEquals("l1", dataSet.getLabels().get("@c"));
+    }
+
+    /**
+     * 
+     * Test for: relabeling an instance that does not exist
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void UpdateMissingLabelCheck() {
+        sample().updateLabel("@z", "l1");
+    }
+
+    /**
+     * 
+     * Test for: the label dictionary counts follow adds, relabels, removals and copies
+     */
+    @Test
+    public void LabelCountsCheck() {
+        DataSet         dataSet    = sample();
+        LabelDictionary dictionary = dataSet.getLabelDictionary();
+        assertEquals(2, dictionary.getNumLabels());
+        assertEquals(2, dictionary.count("l1"));
+        dataSet.updateLabel("@b", "l1");
+        assertEquals(1, dictionary.getNumLabels());
+        assertEquals(Arrays.asList("l1"), dictionary.getLabels());
+        dataSet.getLabels().put("@a", "l3");
+        dataSet.addInstance("@c", "l2", 0, 0);
+        dataSet.removeInstance("@b");
+        assertEquals(Arrays.asList("l2", "l3"), dictionary.getLabels());
+        assertEquals(0, dictionary.count("l1"));
+        DataSet copy = dataSet.copy();
+        copy.updateLabel("@a", "l2");
+        assertEquals(2, copy.getLabelDictionary().count("l2"));
+        assertEquals(1, dictionary.count("l2"));
+    }
+}
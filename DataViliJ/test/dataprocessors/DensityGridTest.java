@@ -0,0 +1,86 @@
+package dataprocessors;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class DensityGridTest {
+
+    private static final Viewport VIEWPORT = new Viewport(0, 100, 0, 50);
+    private static final int      COLUMNS  = 40;
+    private static final int      ROWS     = 20;
+
+    private static DataSet randomDataSet(Random random, int size) {
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < size; i++)
+            dataSet.addInstance("@i" + i, "l" + random.nextInt(3), random.nextDouble() * 120 - 10,
+                                random.nextDouble() * 60 - 5);
+        return dataSet;
+    }
+
+    private static void assertSameAsBruteForce(DataSet dataSet, DensityGrid grid) {
+        int[][] expected = new int[dataSet.getLabelTableSize()][COLUMNS * ROWS];
+        for (int i = 0; i < dataSet.size(); i++) {
+            double x = dataSet.getX(i);
+            double y = dataSet.getY(i);
+            if (!VIEWPORT.contains(x, y))
+                continue;
+            int column = Math.min(COLUMNS - 1, (int) ((x - VIEWPORT.xMin) * COLUMNS / (VIEWPORT.xMax - VIEWPORT.xMin)));
+            int row    = Math.min(ROWS - 1, (int) ((y - VIEWPORT.yMin) * ROWS / (VIEWPORT.yMax - VIEWPORT.yMin)));
+            expected[dataSet.getLabelId(i)][row * COLUMNS + column]++;
+        }
+        for (int label = 0; label < expected.length; label++) {
+            assertArrayEquals(expected[label], grid.getCounts(label));
+            int total = 0;
+            for (int count : expected[label])
+                total += count;
+            assertEquals(total, grid.getTotal(label));
+        }
+    }
+
+    /**
+     *
+     * Test for: binning split over a pool counts every instance inside the viewport in its bin, under its label
+     */
+    @Test
+    public void ParallelBinCheck() {
+        DataSet     dataSet = randomDataSet(new Random(311), 300000);
+        DensityGrid grid    = new DensityGrid(new ForkJoinPool(4));
+        assertFalse(grid.update(dataSet, VIEWPORT, COLUMNS, ROWS));
+        assertEquals(300000, grid.getChanged());
+        assertSameAsBruteForce(dataSet, grid);
+    }
+
+    /**
+     *
+     * Test for: relabelling a copy only recounts the instances that changed, while moving the viewport or the
+     *           instances bins everything again
+     */
+    @Test
+    public void IncrementalRelabelCheck() {
+        Random      random  = new Random(47);
+        DataSet     dataSet = randomDataSet(random, 5000);
+        DensityGrid grid    = new DensityGrid();
+        grid.update(dataSet, VIEWPORT, COLUMNS, ROWS);
+
+        DataSet relabelled = dataSet.copy();
+        int     newLabel   = relabelled.internLabel("new");
+        for (int i = 0; i < 100; i++)
+            relabelled.setLabelId(i * 7, newLabel);
+        assertTrue(grid.update(relabelled, VIEWPORT, COLUMNS, ROWS));
+        assertEquals(100, grid.getChanged());
+        assertSameAsBruteForce(relabelled, grid);
+
+        assertFalse(grid.update(relabelled, new Viewport(0, 50, 0, 50), COLUMNS, ROWS));
+        assertFalse(grid.update(relabelled, VIEWPORT, COLUMNS, ROWS));
+        relabelled.addInstance("@moved", "l0", 1, 1);
+        assertFalse(grid.update(relabelled, VIEWPORT, COLUMNS, ROWS));
+        assertSameAsBruteForce(relabelled, grid);
+    }
+}
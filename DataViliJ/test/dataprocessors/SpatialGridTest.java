@@ -0,0 +1,109 @@
+package dataprocessors;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class SpatialGridTest {
+
+    private static int[] bruteWithin(DataSet dataSet, Viewport viewport) {
+        return IntStream.range(0, dataSet.size())
+                        .filter(i -> viewport.contains(dataSet.getX(i), dataSet.getY(i)))
+                        .toArray();
+    }
+
+    private static int bruteNearest(DataSet dataSet, double x, double y, double xRadius, double yRadius) {
+        int    best     = -1;
+        double bestDist = 1;
+        for (int i = 0; i < dataSet.size(); i++) {
+            double dx   = (dataSet.getX(i) - x) / xRadius;
+            double dy   = (dataSet.getY(i) - y) / yRadius;
+            double dist = dx * dx + dy * dy;
+            if (dist < bestDist || (dist == bestDist && best == -1)) {
+                best = i;
+                bestDist = dist;
+            }
+        }
+        return best;
+    }
+
+    private static void assertSameAsBruteForce(DataSet dataSet, Random random) {
+        for (int q = 0; q < 200; q++) {
+            double   x        = random.nextDouble() * 120 - 10;
+            double   y        = random.nextDouble() * 60 - 5;
+            Viewport viewport = new Viewport(x, x + random.nextDouble() * 20, y, y + random.nextDouble() * 10);
+            assertArrayEquals(bruteWithin(dataSet, viewport), dataSet.indicesWithin(viewport));
+            assertEquals(bruteNearest(dataSet, x, y, 2, 1), dataSet.nearest(x, y, 2, 1));
+        }
+    }
+
+    /**
+     *
+     * Test for: range and nearest queries find exactly what a scan over every instance finds
+     */
+    @Test
+    public void QueriesCheck() {
+        Random  random  = new Random(219);
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 20000; i++)
+            dataSet.addInstance("@i" + i, "l", random.nextDouble() * 100, random.nextDouble() * 50);
+        dataSet.addInstance("@nan", "l", Double.NaN, 1);
+        assertSameAsBruteForce(dataSet, random);
+        assertArrayEquals(new int[0], dataSet.indicesWithin(new Viewport(200, 300, 200, 300)));
+        assertEquals(-1, dataSet.nearest(500, 500, 1, 1));
+    }
+
+    /**
+     *
+     * Test for: the index follows instances being added, moved and removed, including outside its original bounds,
+     *           and a copy sharing the index is not affected by changes to the original
+     */
+    @Test
+    public void UpdatesCheck() {
+        Random  random  = new Random(219);
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 5000; i++)
+            dataSet.addInstance("@i" + i, "l", random.nextDouble() * 100, random.nextDouble() * 50);
+        dataSet.buildSpatialIndex();
+        DataSet copy   = dataSet.copy();
+        int[]   before = copy.indicesWithin(new Viewport(0, 50, 0, 25));
+
+        for (int i = 0; i < 2000; i++)
+            dataSet.addInstance("@j" + i, "l", random.nextDouble() * 110 - 5, random.nextDouble() * 55 - 2);
+        for (int i = 0; i < 1000; i++)
+            dataSet.addInstance("@i" + random.nextInt(5000), "l", random.nextDouble() * 100, random.nextDouble() * 50);
+        for (int i = 0; i < 1500; i++)
+            dataSet.removeInstance("@i" + random.nextInt(5000));
+        assertSameAsBruteForce(dataSet, random);
+
+        assertArrayEquals(before, copy.indicesWithin(new Viewport(0, 50, 0, 25)));
+        assertArrayEquals(bruteWithin(copy, new Viewport(0, 50, 0, 25)), before);
+    }
+
+    /**
+     *
+     * Test for: a zoomed-in sampling through the index matches a sampling of every instance
+     */
+    @Test
+    public void IndexedSamplingCheck() {
+        Random  random  = new Random(219);
+        DataSet dataSet = new DataSet();
+        for (int i = 0; i < 100000; i++)
+            dataSet.addInstance("@i" + i, "l" + (i % 3), random.nextDouble() * 100, random.nextDouble() * 100);
+        ChartDownsampler downsampler = new ChartDownsampler(500);
+        Viewport         zoomed      = new Viewport(20, 40, 30, 45);
+        int[][]          indexed     = downsampler.sample(dataSet, zoomed, 800, 600);
+        int[][]          scanned     = downsampler.sample(dataSet.getXColumn(), dataSet.getYColumn(),
+                                                          dataSet.getLabelColumn(), dataSet.size(),
+                                                          dataSet.getLabelTableSize(), zoomed, 800, 600);
+        assertEquals(scanned.length, indexed.length);
+        for (int id = 0; id < scanned.length; id++)
+            assertArrayEquals(scanned[id], indexed[id]);
+    }
+}
@@ -0,0 +1,62 @@
+package dataprocessors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class TSDBinaryFormatTest {
+
+    /**
+     * 
+     * Test for: tsd -> tsdb -> tsd keeps every name, label and coordinate
+     */
+    @Test
+    public void RoundTripCheck() throws Exception {
+        String tsd = "@a\tl1\t3,8.4\n@b\tl2\t-1.0E-7,2\n@c\tl1\t0.1,1e300\n";
+        DataSet original = new TSDProcessor().processLines(new BufferedReader(new StringReader(tsd)), new StringBuilder(), 0);
+        original.updateLabel("@b", "l1");
+        Path binary = Files.createTempFile("roundtrip", ".tsdb");
+        Path text   = Files.createTempFile("roundtrip", ".tsd");
+        try {
+            TSDBinaryFormat.write(original, binary);
+            DataSet snapshot = TSDBinaryFormat.read(binary);
+            assertEquals(original.getLabels(), snapshot.getLabels());
+            assertEquals(original.getLocations(), snapshot.getLocations());
+
+            TSDBinaryFormat.writeTSD(snapshot, text);
+            DataSet reparsed;
+            try (BufferedReader reader = Files.newBufferedReader(text, Charset.defaultCharset())) {
+                reparsed = new TSDProcessor().processLines(reader, new StringBuilder(), 0);
+            }
+            assertEquals(original.getLabels(), reparsed.getLabels());
+            assertEquals(original.getLocations(), reparsed.getLocations());
+        } finally {
+            Files.delete(binary);
+            Files.delete(text);
+        }
+    }
+
+    /**
+     * 
+     * Test for: reading a file that is not a snapshot
+     */
+    @Test(expected = IOException.class)
+    public void NotASnapshotCheck() throws Exception {
+        Path text = Files.createTempFile("plain", ".tsdb");
+        try {
+            Files.write(text, "@a\tl\t1,2\n@b\tl\t3,4\n".getBytes());
+            TSDBinaryFormat.read(text);
+        } finally {
+            Files.delete(text);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dataprocessors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class TSDEditTrackerTest {
+
+    private static String fullParseError(String text) {
+        try {
+            TSDProcessor processor = new TSDProcessor();
+            processor.dataNameCheck(text);
+            processor.processString(text);
+            return null;
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String trackedError(TSDEditTracker tracker, String text) {
+        try {
+            tracker.update(text);
+            return null;
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * 
+     * Test for: a sequence of edits gives the same result as parsing each version of the text from scratch
+     */
+    @Test
+    public void RandomEditsCheck() {
+        String[] pieces = {"@a\tl\t1,2", "@b\tm\t3,4", "@a\tl\t5,6", "c\tl\t1,1", "@d\tl\t1,", "", "@e\tn\t-1,0.5"};
+        Random random = new Random(7);
+        TSDProcessor processor = new TSDProcessor();
+        TSDEditTracker tracker = new TSDEditTracker(processor);
+        StringBuilder text = new StringBuilder();
+        for (int step = 0; step < 2000; step++) {
+            int lines = text.length() == 0 ? 0 : text.toString().split("\n", -1).length;
+            if (lines > 0 && random.nextInt(3) == 0) {
+                List<String> split = new ArrayList<>(Arrays.asList(text.toString().split("\n", -1)));
+                split.remove(random.nextInt(split.size()));
+                text.setLength(0);
+                text.append(String.join("\n", split));
+            } else {
+                int at = random.nextInt(text.length() + 1);
+                String piece = pieces[random.nextInt(pieces.length)];
+                text.insert(at, random.nextBoolean() ? piece + "\n" : piece);
+            }
+            String current = text.toString();
+            String expected = fullParseError(current);
+            if (expected != null && !expected.startsWith("TSDProcessor"))
+                continue; // lines made only of tabs make dataNameCheck fail outright; the tracker reports them normally
+            assertEquals(current, expected, trackedError(tracker, current));
+            if (expected == null) {
+                DataSet reference = new DataSet();
+                for (String line : current.split("\n")) {
+                    String[] fields = line.split("\t");
+                    String[] pair = fields[2].split(",");
+                    reference.addInstance(fields[0], fields[1], Double.parseDouble(pair[0]), Double.parseDouble(pair[1]));
+                }
+                assertEquals(current, reference.getLabels(), tracker.getDataSet().getLabels());
+                assertEquals(current, reference.getLocations(), tracker.getDataSet().getLocations());
+                assertEquals(current, reference.size(), processor.getNumInstances());
+            }
+        }
+    }
+
+    /**
+     *
+     * Test for: once the processor is filled from elsewhere, as from a file, the next edit starts it again from the
+     *           text alone instead of applying changes to lines it no longer holds
+     */
+    @Test
+    public void ProcessorReplacedCheck() throws Exception {
+        TSDProcessor   processor = new TSDProcessor();
+        TSDEditTracker tracker   = new TSDEditTracker(processor);
+        tracker.update("@a\tl\t1,2\n@b\tl\t3,4");
+        processor.clear();
+        processor.processString("@x\tl\t1,1\n@y\tm\t2,2\n@z\tm\t3,3");
+        tracker.processorReplaced();
+        tracker.update("@x\tl\t1,1\n@y\tm\t2,5");
+        assertEquals(2, processor.getNumInstances());
+        assertEquals(2, tracker.getDataSet().size());
+        assertEquals(5, tracker.getDataSet().getY(tracker.getDataSet().indexOf("@y")), 0);
+        assertNull(tracker.getDataSet().getLabels().get("@a"));
+    }
+
+    /**
+     *
+     * Test for: a data set taken from the tracker keeps its instances through later edits, which go to a copy
+     */
+    @Test
+    public void SharedDataSetCheck() throws Exception {
+        TSDProcessor   processor = new TSDProcessor();
+        TSDEditTracker tracker   = new TSDEditTracker(processor);
+        tracker.update("@a\tl\t1,2\n@b\tl\t3,4");
+        DataSet shared = tracker.getDataSet();
+        assertSame(shared, tracker.getDataSet());
+        tracker.update("@a\tl\t1,7\n@c\tm\t5,6");
+        assertEquals(2, shared.size());
+        assertEquals(2, shared.getY(shared.indexOf("@a")), 0);
+        assertTrue(shared.indexOf("@c") < 0);
+        DataSet edited = tracker.getDataSet();
+        assertNotSame(shared, edited);
+        assertEquals(7, edited.getY(edited.indexOf("@a")), 0);
+        assertTrue(edited.indexOf("@b") < 0);
+    }
+}
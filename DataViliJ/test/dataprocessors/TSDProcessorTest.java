@@ -6,6 +6,12 @@
 package dataprocessors;
 
 import dataprocessors.TSDProcessor.NameTakenException;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -71,4 +77,189 @@ public class TSDProcessorTest {
         String taken = "@a\nla\t5,4";
         processor.processString(taken);
     }
+    
+    /**
+     * 
+     * Test for: streaming load of valid input, including the text area preview
+     */
+    @Test
+    public void ProcessLinesValidCheck() throws Exception {
+        TSDProcessor processor = new TSDProcessor();
+        String valid = "@a\tl\t3,8.4\n@b\tl\t1,2\n@c\tm\t5,6\n\n";
+        StringBuilder preview = new StringBuilder();
+        DataSet dataSet = processor.processLines(new BufferedReader(new StringReader(valid)), preview, 2);
+        assertEquals(3, dataSet.getLocations().size());
+        assertEquals("m", dataSet.getLabels().get("@c"));
+        assertEquals(8.4, dataSet.getLocations().get("@a").getY(), 0);
+        assertEquals("@a\tl\t3,8.4\n@b\tl\t1,2\n", preview.toString());
+        assertEquals(3, processor.getNumInstances());
+        assertEquals(2, processor.getNumLabels());
+    }
+    
+    /**
+     * 
+     * Test for: a load that fails leaves the processor with the instances it had
+     */
+    @Test
+    public void ProcessLinesFailedCheck() throws Exception {
+        TSDProcessor processor = new TSDProcessor();
+        processor.processLines(new BufferedReader(new StringReader("@a\tl\t3,8.4\n@b\tm\t1,2")), new StringBuilder(), 2);
+        boolean thrown = false;
+        try {
+            processor.processLines(new BufferedReader(new StringReader("@c\tl\t1,1\n@c\tl\t2,2")), new StringBuilder(), 2);
+        } catch (Exception e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertEquals(2, processor.getNumInstances());
+        assertEquals(2, processor.getNumLabels());
+    }
+    
+    /**
+     * 
+     * Test for: loading a file without the application takes text and snapshots, and turns a bad file away with the
+     *           line at fault
+     */
+    @Test
+    public void LoadFileCheck() throws Exception {
+        Path text     = Files.createTempFile("load", ".tsd");
+        Path snapshot = Files.createTempFile("load", TSDBinaryFormat.EXTENSION);
+        try {
+            Files.write(text, "@a\tl\t1,2\n@b\tm\t3,4\n".getBytes(Charset.defaultCharset()));
+            DataSet dataSet = TSDProcessor.load(text);
+            assertEquals(2, dataSet.size());
+            TSDBinaryFormat.write(dataSet, snapshot);
+            assertEquals(dataSet.getLocations(), TSDProcessor.load(snapshot).getLocations());
+
+            Files.write(text, "@a\tl\t1,2\n@b\tm\t3,4\n@a\tl\t5,6\n".getBytes(Charset.defaultCharset()));
+            try {
+                TSDProcessor.load(text);
+                fail();
+            } catch (TSDProcessor.InvalidTSDException e) {
+                assertEquals(3, e.getLineNumber());
+            }
+        } finally {
+            Files.delete(text);
+            Files.delete(snapshot);
+        }
+    }
+    
+    /**
+     * 
+     * Test for: streaming load reports the same messages as dataNameCheck and processString
+     */
+    @Test
+    public void ProcessLinesSameMessagesCheck() {
+        String[] inputs = {"@a\tl\t3,3\nb\tl\t1,1", "@a\tl\t3,3\n@b\tl\t1,", "@a\tl\t3,3\n\n@b\tl\t1,1",
+                           "@a\tl\t3,3\nx\tl\t1,1\n@a\tl\t1,1", ""};
+        for (String input : inputs) {
+            String expected = null;
+            String actual   = null;
+            try {
+                TSDProcessor processor = new TSDProcessor();
+                processor.dataNameCheck(input);
+                processor.processString(input);
+            } catch (Exception e) {
+                expected = e.getMessage();
+            }
+            try {
+                new TSDProcessor().processLines(new BufferedReader(new StringReader(input)), new StringBuilder(), 10);
+            } catch (Exception e) {
+                actual = e.getMessage();
+            }
+            assertNotNull(expected);
+            assertEquals(expected, actual);
+        }
+    }
+    
+    /**
+     * 
+     * Test for: chunked loading gives the same data set and messages as the streaming load
+     */
+    @Test
+    public void ChunkedLoadCheck() throws Exception {
+        StringBuilder valid = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            valid.append("@i").append(i).append("\tl").append(i % 3).append("\t").append(i).append(",").append(i * 0.5).append("\r\n");
+        String[] inputs = {valid.toString(), valid + "@i7\tl\t1,1\n", valid + "\n\n@x\tl\t1,\n\n", valid + "\n\n"};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (String input : inputs) {
+            Path file = Files.createTempFile("chunked", ".tsd");
+            try {
+                Files.write(file, input.getBytes(Charset.defaultCharset()));
+                StringBuilder expectedPreview = new StringBuilder();
+                StringBuilder actualPreview   = new StringBuilder();
+                DataSet       expected        = null;
+                DataSet       actual          = null;
+                String        expectedError   = null;
+                String        actualError     = null;
+                try {
+                    expected = new TSDProcessor().processLines(new BufferedReader(new StringReader(input)), expectedPreview, 10);
+                } catch (Exception e) {
+                    expectedError = e.getMessage();
+                }
+                try {
+                    TSDProcessor processor = new TSDProcessor();
+                    actual = new TSDChunkedLoader(processor, pool, 512).load(file, actualPreview, 10);
+                    assertEquals(actual.size(), processor.getNumInstances());
+                } catch (Exception e) {
+                    actualError = e.getMessage();
+                }
+                assertEquals(expectedError, actualError);
+                assertEquals(expectedPreview.toString(), actualPreview.toString());
+                if (expected != null) {
+                    assertEquals(expected.getLabels(), actual.getLabels());
+                    assertEquals(expected.getLocations(), actual.getLocations());
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+        pool.shutdown();
+    }
+    
+    /**
+     * 
+     * Test for: the in-place line parser accepts and rejects the same lines, with the same values, as splitting does
+     */
+    @Test
+    public void ParseLineSameAsSplitCheck() {
+        String[] lines = {"@a\tl\t3,4", "@a\tl\t3,", "@a\tl\t,5", "@a\tl\t3,,5", "@a\tl\t3,4,5", "@a\tl\t1e5,2E-3",
+                          "@a\tl\tNaN,Infinity", "@a\tl\t+.5,-0", "@a\tl\t1d,2f", "@a\tl\t 3 , 4 ", "@a\tl\t0x1p3,1",
+                          "@a\tl\t.,1", "@a\tl\t5.,-.25", "@a\t\t3,4", "@a\t", "@a\tl", "@a\tl\t", "\t\t", "", "a\tl\t3,4",
+                          "@a\tl\t3,4\textra", "@a\tl\t\t3,4", "@a\tl\t0.1234567890123456789,12345678901234567",
+                          "@a\tl\t0.0000000000000000000001,1.5", "@a\tl\t00012.50,-9", "@a\tl\t--1,1", "@a\tl\t1.2.3,1"};
+        TSDProcessor.LineFields fields = new TSDProcessor.LineFields();
+        for (String line : lines) {
+            String[] list  = line.split("\t");
+            String   name  = list.length > 0 ? list[0] : "";
+            int      kind  = TSDProcessor.LINE_MALFORMED;
+            double   x     = 0;
+            double   y     = 0;
+            if (!name.startsWith("@")) {
+                kind = TSDProcessor.LINE_BAD_NAME;
+            } else {
+                try {
+                    String[] pair = list[2].split(",");
+                    x = Double.parseDouble(pair[0]);
+                    y = Double.parseDouble(pair[1]);
+                    kind = TSDProcessor.LINE_OK;
+                } catch (Exception e) {
+                }
+            }
+            assertEquals(line, kind, TSDProcessor.parseLine(line, fields));
+            assertEquals(line, name, fields.name);
+            if (kind == TSDProcessor.LINE_OK) {
+                assertEquals(line, list[1], fields.label);
+                assertEquals(line, Double.doubleToLongBits(x), Double.doubleToLongBits(fields.x));
+                assertEquals(line, Double.doubleToLongBits(y), Double.doubleToLongBits(fields.y));
+            }
+        }
+        java.util.Random random = new java.util.Random(219);
+        for (int i = 0; i < 100000; i++) {
+            String number = String.format("%." + random.nextInt(12) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12)));
+            assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)),
+                         Double.doubleToLongBits(TSDLineParser.parseDouble(number, 0, number.length())));
+        }
+    }
 }
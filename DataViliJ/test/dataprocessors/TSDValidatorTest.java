@@ -0,0 +1,102 @@
+package dataprocessors;
+
+import dataprocessors.TSDValidationReport.Kind;
+import dataprocessors.TSDValidationReport.Problem;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class TSDValidatorTest {
+
+    /**
+     *
+     * Test for: every problem is reported with its line, column and kind, across chunk boundaries
+     */
+    @Test
+    public void AllProblemsCheck() {
+        String text = "@a\tl\t1,2\n"
+                    + "b\tl\t1,2\n"
+                    + "@a\tl\t1,x\n"
+                    + "\n"
+                    + "@c\tl\t1;2\n"
+                    + "@d\tl\t3,4\n\n\n";
+        ForkJoinPool pool = new ForkJoinPool(3);
+        for (int chunkChars = 1; chunkChars <= text.length(); chunkChars += 7) {
+            TSDValidationReport report   = new TSDValidator(pool, 10, chunkChars).validate(text);
+            List<Problem>       problems = report.getProblems();
+            assertFalse(report.isTruncated());
+            assertEquals(5, problems.size());
+            assertEquals(Kind.BAD_NAME, problems.get(0).getKind());
+            assertEquals(2, problems.get(0).getLine());
+            assertEquals(Kind.DUPLICATE_NAME, problems.get(1).getKind());
+            assertEquals(3, problems.get(1).getLine());
+            assertEquals(Kind.MALFORMED, problems.get(2).getKind());
+            assertEquals(8, problems.get(2).getColumn());
+            assertEquals(Kind.BAD_NAME, problems.get(3).getKind());
+            assertEquals(4, problems.get(3).getLine());
+            assertEquals(Kind.MALFORMED, problems.get(4).getKind());
+            assertEquals(5, problems.get(4).getLine());
+            assertEquals(6, problems.get(4).getColumn());
+        }
+        pool.shutdown();
+    }
+
+    /**
+     *
+     * Test for: the first problem of each kind has the message the loader reports
+     */
+    @Test
+    public void SameMessagesCheck() {
+        String[] inputs = {"", "x\tl\t1,1", "@a\tl\t1,1\n@a\tl\t2,2", "@a\tl\t1", "@a\tl\t1,1\n\n@b\tl\t1,1"};
+        for (String input : inputs) {
+            String expected = null;
+            try {
+                TSDProcessor processor = new TSDProcessor();
+                processor.dataNameCheck(input);
+                processor.processString(input);
+            } catch (Exception e) {
+                expected = e.getMessage();
+            }
+            TSDValidationReport report = new TSDValidator(5).validate(input);
+            Problem first = report.getProblems().stream()
+                                  .filter(p -> p.getKind() == Kind.DUPLICATE_NAME).findFirst()
+                                  .orElse(report.getProblems().get(0));
+            assertEquals(input, expected, first.getMessage());
+        }
+    }
+
+    /**
+     *
+     * Test for: the report stops at the maximum, and a file gives the same report as its text
+     */
+    @Test
+    public void TruncatedFileCheck() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append(i % 2 == 0 ? "@" : "").append("i").append(i).append("\tl\t").append(i).append(",0\r\n");
+        TSDValidationReport report = new TSDValidator(25).validate(text);
+        assertTrue(report.isTruncated());
+        assertEquals(25, report.getProblems().size());
+        assertEquals(2, report.getProblems().get(0).getLine());
+        assertEquals(50, report.getProblems().get(24).getLine());
+        assertEquals(3, report.toPages(10).size());
+
+        Path file = Files.createTempFile("validate", ".tsd");
+        try {
+            Files.write(file, text.toString().getBytes(Charset.defaultCharset()));
+            TSDValidationReport fromFile = new TSDChunkedLoader(new TSDProcessor(), ForkJoinPool.commonPool(), 1000)
+                    .validate(file, 25);
+            assertEquals(report.toPages(10), fromFile.toPages(10));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ui;
+
+import algorithms.RunSnapshot;
+import dataprocessors.ChartDownsampler.Viewport;
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class ChartImageWriterTest {
+
+    private static final int WHITE = 0xffffff;
+
+    /** Writes the lines to a temporary file and loads them as a data set. */
+    private static DataSet load(List<String> lines) throws Exception {
+        Path file = Files.createTempFile("export", ".tsd");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            return TSDProcessor.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static ChartImageWriter.Progress until(int bands) {
+        return new ChartImageWriter.Progress() {
+            private int written;
+
+            @Override
+            public void bandWritten(int done, int totalBands) { written = done; }
+
+            @Override
+            public boolean isCancelled() { return written >= bands; }
+        };
+    }
+
+    private static BufferedImage write(ChartImageWriter writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(writer.write(out, until(Integer.MAX_VALUE)));
+        return ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     *
+     * Test for: points land where the canvas would draw them, in their label's color, including a dot that straddles
+     *           two bands, and the result is a PNG of the requested size
+     */
+    @Test
+    public void BandedImageCheck() throws Exception {
+        // at 800 x 600 the plot is 720 x 540 pixels from (60, 20); y = 303 / 53.9 lands on image row 256, a band edge
+        DataSet dataSet = load(Arrays.asList("@a\tl0\t0,0", "@b\tl1\t10,10", "@c\tl1\t5," + 303 / 53.9));
+        ChartImageWriter writer = new ChartImageWriter(dataSet, Collections.emptyList(), new Viewport(0, 10, 0, 10),
+                                                       800, 600);
+        assertEquals(3, writer.getBands());
+        BufferedImage image = write(writer);
+        assertEquals(800, image.getWidth());
+        assertEquals(600, image.getHeight());
+        int first  = ScatterRaster.PALETTE[0] & WHITE;
+        int second = ScatterRaster.PALETTE[1] & WHITE;
+        assertEquals(first, image.getRGB(61, 558) & WHITE); // the dot reaches a pixel past the axes
+        assertEquals(second, image.getRGB(779, 20) & WHITE);
+        for (int row = 255; row <= 257; row++)
+            assertEquals(second, image.getRGB(420, row) & WHITE);
+        assertEquals(WHITE, image.getRGB(420, 254) & WHITE);
+        assertEquals(WHITE, image.getRGB(420, 258) & WHITE);
+        assertEquals(WHITE, image.getRGB(400, 300) & WHITE);
+    }
+
+    /**
+     *
+     * Test for: lines are drawn over the plot, a large image scales up and decodes, and cancelling stops the writing
+     */
+    @Test
+    public void LinesLargeAndCancelCheck() throws IOException {
+        List<RunSnapshot.Line>  lines  = Collections.singletonList(new RunSnapshot.Line("line", 0, 5, 10, 5));
+        ChartImageWriter        writer = new ChartImageWriter(null, lines, new Viewport(0, 10, 0, 10), 800, 600);
+        BufferedImage           image  = write(writer);
+        assertNotEquals(WHITE, image.getRGB(400, 289) & WHITE);
+
+        ChartImageWriter large = new ChartImageWriter(null, lines, new Viewport(0, 10, 0, 10), 4000, 3000);
+        assertEquals(12, large.getBands());
+        image = write(large);
+        assertEquals(4000, image.getWidth());
+        assertEquals(3000, image.getHeight());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertFalse(large.write(out, until(2)));
+    }
+}
@@ -0,0 +1,59 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class FramePacedPublisherTest {
+
+    /**
+     *
+     * Test for: each frame gets only the latest snapshot, and the ones it replaced are counted as dropped
+     */
+    @Test
+    public void LatestWinsCheck() {
+        List<Integer>                shown     = new ArrayList<>();
+        FramePacedPublisher<Integer> publisher = new FramePacedPublisher<>(shown::add);
+        assertFalse(publisher.deliver());
+        for (int i = 0; i < 5; i++)
+            publisher.publish(i);
+        assertTrue(publisher.deliver());
+        assertFalse(publisher.deliver());
+        publisher.publish(5);
+        assertTrue(publisher.deliver());
+        assertEquals(Arrays.asList(4, 5), shown);
+        assertEquals(6, publisher.getPublished());
+        assertEquals(4, publisher.getDropped());
+        assertEquals(2, publisher.getDelivered());
+    }
+
+    /**
+     *
+     * Test for: nothing is lost or shown twice while a worker publishes as fast as it can during frames
+     */
+    @Test
+    public void ConcurrentPublishCheck() throws InterruptedException {
+        List<Integer>                shown     = new ArrayList<>();
+        FramePacedPublisher<Integer> publisher = new FramePacedPublisher<>(shown::add);
+        Thread worker = new Thread(() -> {
+            for (int i = 0; i < 200000; i++)
+                publisher.publish(i);
+        });
+        worker.start();
+        while (worker.isAlive())
+            publisher.deliver();
+        worker.join();
+        publisher.deliver();
+        assertEquals(199999, (int) shown.get(shown.size() - 1));
+        for (int i = 1; i < shown.size(); i++)
+            assertTrue(shown.get(i) > shown.get(i - 1));
+        assertEquals(200000, publisher.getPublished());
+        assertEquals(publisher.getPublished(), publisher.getDropped() + publisher.getDelivered());
+    }
+}
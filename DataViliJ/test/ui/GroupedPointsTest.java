@@ -0,0 +1,154 @@
+package ui;
+
+import dataprocessors.DataSet;
+import dataprocessors.TSDProcessor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class GroupedPointsTest {
+
+    private static final class Lists implements GroupedPoints.Target<double[]> {
+
+        final Map<String, List<double[]>> groups  = new LinkedHashMap<>();
+        int                               created = 0;
+
+        @Override
+        public List<double[]> addGroup(String label) {
+            List<double[]> points = new ArrayList<>();
+            groups.put(label, points);
+            return points;
+        }
+
+        @Override
+        public void removeGroup(String label) { groups.remove(label); }
+
+        @Override
+        public double[] newPoint(double x, double y) {
+            created++;
+            return new double[]{x, y};
+        }
+
+        @Override
+        public void movePoint(double[] point, double x, double y) {
+            point[0] = x;
+            point[1] = y;
+        }
+    }
+
+    /** Writes the lines to a temporary file and loads them as a data set. */
+    private static DataSet load(List<String> lines) throws Exception {
+        Path file = Files.createTempFile("grouped", ".tsd");
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            return TSDProcessor.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Every instance, grouped by label id, as a sampling that leaves nothing out. */
+    private static int[][] everything(DataSet dataSet) {
+        int[][] sampled = new int[dataSet.getLabelTableSize()][];
+        int[]   counts  = new int[sampled.length];
+        for (int i = 0; i < dataSet.size(); i++)
+            counts[dataSet.getLabelId(i)]++;
+        for (int id = 0; id < sampled.length; id++)
+            sampled[id] = new int[counts[id]];
+        int[] next = new int[sampled.length];
+        for (int i = 0; i < dataSet.size(); i++)
+            sampled[dataSet.getLabelId(i)][next[dataSet.getLabelId(i)]++] = i;
+        return sampled;
+    }
+
+    private static void assertGroupsMatch(DataSet dataSet, Lists lists) {
+        int total = 0;
+        for (Map.Entry<String, List<double[]>> group : lists.groups.entrySet()) {
+            assertFalse(group.getValue().isEmpty());
+            total += group.getValue().size();
+        }
+        assertEquals(dataSet.size(), total);
+        for (int i = 0; i < dataSet.size(); i++) {
+            boolean found = false;
+            for (double[] point : lists.groups.get(dataSet.getLabel(i)))
+                found |= point[0] == dataSet.getX(i) && point[1] == dataSet.getY(i);
+            assertTrue(found);
+        }
+    }
+
+    /**
+     *
+     * Test for: showing a copy with a few labels changed only moves the points of those instances
+     */
+    @Test
+    public void OnlyChangedPointsMoveCheck() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            lines.add("@i" + i + "\tl" + (i % 3) + "\t" + i + "," + -i);
+        DataSet dataSet = load(lines);
+        Lists                   lists   = new Lists();
+        GroupedPoints<double[]> grouped = new GroupedPoints<>(lists);
+        grouped.apply(dataSet, everything(dataSet));
+        assertEquals(1000, lists.created);
+        assertEquals(3, lists.groups.size());
+        assertGroupsMatch(dataSet, lists);
+
+        Map<double[], Boolean> before = new IdentityHashMap<>();
+        for (List<double[]> points : lists.groups.values())
+            for (double[] point : points)
+                before.put(point, true);
+        DataSet next = dataSet.copy();
+        for (int i = 0; i < 30; i += 3)
+            next.updateLabel("@i" + i, "l1");
+        grouped.apply(next, everything(next));
+        assertEquals(10, grouped.getAdded());
+        assertEquals(10, grouped.getRemoved());
+        assertEquals(1010, lists.created);
+        assertGroupsMatch(next, lists);
+        int kept = 0;
+        for (List<double[]> points : lists.groups.values())
+            for (double[] point : points)
+                kept += before.containsKey(point) ? 1 : 0;
+        assertEquals(990, kept);
+    }
+
+    /**
+     *
+     * Test for: a label that disappears takes its group with it, and one that appears gets a new group
+     */
+    @Test
+    public void GroupsComeAndGoCheck() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            lines.add("@i" + i + "\t" + (i < 5 ? "a" : "b") + "\t" + i + "," + i);
+        DataSet dataSet = load(lines);
+        Lists                   lists   = new Lists();
+        GroupedPoints<double[]> grouped = new GroupedPoints<>(lists);
+        grouped.apply(dataSet, everything(dataSet));
+
+        DataSet next = dataSet.copy();
+        for (int i = 0; i < 5; i++)
+            next.updateLabel("@i" + i, "c");
+        grouped.apply(next, everything(next));
+        assertFalse(lists.groups.containsKey("a"));
+        assertEquals(5, lists.groups.get("c").size());
+        assertEquals(10, grouped.size());
+        assertGroupsMatch(next, lists);
+
+        int[][] none = new int[next.getLabelTableSize()][0];
+        grouped.apply(next, none);
+        assertTrue(lists.groups.isEmpty());
+        assertEquals(0, grouped.size());
+    }
+}
@@ -0,0 +1,50 @@
+package ui;
+
+import dataprocessors.ChartDownsampler.Viewport;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author kevingray
+ */
+public class ScatterRasterTest {
+
+    /**
+     *
+     * Test for: points land on the right pixels in their label's color, and points outside the viewport are skipped
+     */
+    @Test
+    public void PlotCheck() {
+        ScatterRaster raster = new ScatterRaster();
+        raster.reset(11, 11);
+        double[] xs       = {0, 10, 5, 20};
+        double[] ys       = {0, 10, 5, 5};
+        int[]    labelIds = {0, 1, 9, 0};
+        int      drawn    = raster.plot(xs, ys, labelIds, 4, new Viewport(0, 10, 0, 10), 0);
+        int[]    pixels   = raster.getPixels();
+        assertEquals(3, drawn);
+        assertEquals(ScatterRaster.PALETTE[0], pixels[10 * 11]);
+        assertEquals(ScatterRaster.PALETTE[1], pixels[10]);
+        assertEquals(ScatterRaster.PALETTE[1], pixels[5 * 11 + 5]);
+        assertEquals(0, pixels[0]);
+    }
+
+    /**
+     *
+     * Test for: dots are clipped at the edges, and a reset clears the buffer
+     */
+    @Test
+    public void EdgesAndResetCheck() {
+        ScatterRaster raster = new ScatterRaster();
+        raster.reset(4, 3);
+        raster.plot(new double[]{0}, new double[]{0}, new int[]{2}, 1, new Viewport(0, 1, 0, 1), 1);
+        int[] pixels = raster.getPixels();
+        assertEquals(ScatterRaster.PALETTE[2], pixels[2 * 4]);
+        assertEquals(ScatterRaster.PALETTE[2], pixels[4 + 1]);
+        assertEquals(0, pixels[2]);
+        raster.reset(4, 3);
+        for (int i = 0; i < 12; i++)
+            assertEquals(0, raster.getPixels()[i]);
+    }
+}
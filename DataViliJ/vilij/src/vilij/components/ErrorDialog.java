@@ -5,15 +5,20 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import vilij.propertymanager.PropertyManager;
 import vilij.settings.PropertyTypes;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * This class provides the template for displaying error messages to the end user of a Vilij application. It always
- * provides the two controls: (i) a customizable error message, and (ii) a single button to close the dialog.
+ * provides the two controls: (i) a customizable error message, and (ii) a single button to close the dialog. A message
+ * made of several pages, such as a list of problems, also gets buttons to move between the pages.
  *
  * @author Ritwik Banerjee
  */
@@ -21,7 +26,13 @@ public class ErrorDialog extends Stage implements Dialog {
 
     private static ErrorDialog dialog;
 
-    private Label errorMessage = new Label();
+    private Label        errorMessage = new Label();
+    private Label        pageNumber   = new Label();
+    private HBox         pager        = new HBox();
+    private Button       previous;
+    private Button       next;
+    private List<String> pages        = Collections.emptyList();
+    private int          page;
 
     private ErrorDialog() {/* empty constructor */ }
 
@@ -49,9 +60,18 @@ public class ErrorDialog extends Stage implements Dialog {
         Button          closeButton = new Button(manager.getPropertyValue(PropertyTypes.CLOSE_LABEL.name()));
         VBox            messagePane = new VBox();
 
+        previous = new Button(manager.getPropertyValue(PropertyTypes.PREVIOUS_LABEL.name()));
+        next = new Button(manager.getPropertyValue(PropertyTypes.NEXT_LABEL.name()));
+
         closeButton.setOnAction(e -> this.close());
+        previous.setOnAction(e -> showPage(page - 1));
+        next.setOnAction(e -> showPage(page + 1));
+        pager.setAlignment(Pos.CENTER);
+        pager.setSpacing(10);
+        pager.getChildren().addAll(previous, pageNumber, next);
         messagePane.setAlignment(Pos.CENTER);
         messagePane.getChildren().add(errorMessage);
+        messagePane.getChildren().add(pager);
         messagePane.getChildren().add(closeButton);
         messagePane.setPadding(new Insets(80, 60, 80, 60));
         messagePane.setSpacing(20);
@@ -68,8 +88,30 @@ public class ErrorDialog extends Stage implements Dialog {
      */
     @Override
     public void show(String errorDialogTitle, String errorMessage) {
-        setTitle(errorDialogTitle);    // set the title of the dialog
-        setErrorMessage(errorMessage); // set the main error message
-        showAndWait();                 // open the dialog and wait for the user to click the close button
+        show(errorDialogTitle, Collections.singletonList(errorMessage));
+    }
+
+    /**
+     * Loads the specified title and pages of error messages into the error dialog and then displays the dialog, starting
+     * at the first page.
+     *
+     * @param errorDialogTitle the specified error dialog title
+     * @param errorPages       the pages of the error message, at least one
+     */
+    public void show(String errorDialogTitle, List<String> errorPages) {
+        setTitle(errorDialogTitle);
+        pages = errorPages;
+        pager.setVisible(pages.size() > 1);
+        pager.setManaged(pages.size() > 1);
+        showPage(0);
+        showAndWait();
+    }
+
+    private void showPage(int page) {
+        this.page = page;
+        setErrorMessage(pages.get(page));
+        pageNumber.setText((page + 1) + " / " + pages.size());
+        previous.setDisable(page == 0);
+        next.setDisable(page == pages.size() - 1);
     }
 }
@@ -47,5 +47,7 @@ public enum PropertyTypes {
 
     /* standard labels and titles */
     CLOSE_LABEL,
+    PREVIOUS_LABEL,
+    NEXT_LABEL,
     SAVE_WORK_TITLE
 }